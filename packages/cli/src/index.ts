@@ -3,13 +3,14 @@
 import { Command } from "commander";
 import cliProgress from "cli-progress";
 import { version } from "../package.json";
-import axios, { AxiosProgressEvent } from "axios";
+import axios, { AxiosError, AxiosProgressEvent } from "axios";
 import FormData from "form-data";
 import fs from "fs";
 import AdmZip from "adm-zip";
 import path from "path";
 import os from "os";
 import { randomUUID } from "crypto";
+import { buildManifest } from "./utils/manifest";
 
 const program = new Command();
 
@@ -22,9 +23,15 @@ program
   .requiredOption("-e, --endpoint <string>", "Halo API endpoint")
   .requiredOption("-i, --id <string>", "Static Page ID")
   .requiredOption("-t, --token <string>", "Personal access token")
+  .option("--full", "Upload all files instead of only the changed ones")
   .action(async (str) => {
     const fileStat = fs.statSync(str.file);
 
+    if (fileStat.isDirectory() && !str.full && (await deployChanges(str))) {
+      console.log("Deployed successfully");
+      return;
+    }
+
     let distToUpload = str.file;
 
     if (fileStat.isDirectory()) {
@@ -45,12 +52,7 @@ program
     formData.append("file", fs.createReadStream(distToUpload));
     formData.append("unzip", fileStat.isDirectory() ? "true" : "false");
 
-    const processBar = new cliProgress.SingleBar(
-      {
-        format: "Uploading [{bar}] {percentage}% | ETA: {eta}s | {value}/{total}",
-      },
-      cliProgress.Presets.legacy
-    );
+    const processBar = createProgressBar();
 
     processBar.start(100, 0);
 
@@ -73,4 +75,72 @@ program
     console.log("Deployed successfully");
   });
 
+function createProgressBar() {
+  return new cliProgress.SingleBar(
+    {
+      format: "Uploading [{bar}] {percentage}% | ETA: {eta}s | {value}/{total}",
+    },
+    cliProgress.Presets.legacy
+  );
+}
+
+/**
+ * Upload only the files whose content is not on the server yet.
+ *
+ * @returns false if the server does not support incremental deployments
+ */
+async function deployChanges(str: { file: string; endpoint: string; id: string; token: string }) {
+  const baseUrl = `${str.endpoint}/apis/console.api.staticpage.halo.run/v1alpha1/projects/${str.id}`;
+  const headers = { Authorization: `Bearer ${str.token}` };
+
+  const manifest = await buildManifest(str.file);
+
+  let missing: string[];
+  try {
+    const { data } = await axios.post(`${baseUrl}/deploy/check`, { files: manifest.files }, { headers });
+    missing = data.missing;
+  } catch (error) {
+    if (isMissingEndpoint(error)) {
+      return false;
+    }
+    throw error;
+  }
+
+  console.log(`${missing.length} of ${Object.keys(manifest.files).length} files changed`);
+
+  const formData = new FormData();
+  formData.append("manifest", JSON.stringify({ files: manifest.files }));
+  missing.forEach((hash) => {
+    formData.append("file", fs.createReadStream(manifest.sources[hash]), { filename: hash });
+  });
+
+  const processBar = createProgressBar();
+
+  processBar.start(100, 0);
+
+  await axios.post(`${baseUrl}/deploy`, formData, {
+    headers,
+    onUploadProgress: (progressEvent: AxiosProgressEvent) => {
+      const process = parseInt(Math.round((progressEvent.loaded * 100) / (progressEvent.total || 1)) + "");
+      processBar.update(process);
+    },
+  });
+
+  processBar.stop();
+
+  return true;
+}
+
+/**
+ * Check whether the server has no route for the request, as servers without incremental
+ * deployments answer, rather than e.g. no project with the given ID.
+ */
+function isMissingEndpoint(error: unknown) {
+  if (!(error instanceof AxiosError) || error.response?.status !== 404) {
+    return false;
+  }
+  const detail = error.response.data?.detail;
+  return typeof detail === "string" && detail.startsWith("No static resource");
+}
+
 program.parse(process.argv);
@@ -0,0 +1,40 @@
+import { createHash } from "crypto";
+import fs from "fs";
+import path from "path";
+
+export interface DeployManifest {
+  // SHA-256 hash of each file, keyed by the path relative to the site root
+  files: Record<string, string>;
+  // Absolute path of a file for each hash
+  sources: Record<string, string>;
+}
+
+function hashFile(file: string): Promise<string> {
+  return new Promise((resolve, reject) => {
+    const hash = createHash("sha256");
+    fs.createReadStream(file)
+      .on("data", (chunk) => hash.update(chunk))
+      .on("error", reject)
+      .on("end", () => resolve(hash.digest("hex")));
+  });
+}
+
+export async function buildManifest(root: string): Promise<DeployManifest> {
+  const manifest: DeployManifest = { files: {}, sources: {} };
+
+  const walk = async (dir: string) => {
+    for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+      const file = path.join(dir, entry.name);
+      if (entry.isDirectory()) {
+        await walk(file);
+      } else if (entry.isFile()) {
+        const hash = await hashFile(file);
+        manifest.files[path.relative(root, file).split(path.sep).join("/")] = hash;
+        manifest.sources[hash] = file;
+      }
+    }
+  };
+
+  await walk(root);
+  return manifest;
+}
@@ -1,10 +1,13 @@
 package cc.ryanc.staticpages;
 
+import static run.halo.app.extension.index.IndexAttributeFactory.simpleAttribute;
+
 import cc.ryanc.staticpages.extensions.Project;
 import cc.ryanc.staticpages.extensions.ProjectVersion;
 import org.springframework.stereotype.Component;
 import run.halo.app.extension.Scheme;
 import run.halo.app.extension.SchemeManager;
+import run.halo.app.extension.index.IndexSpec;
 import run.halo.app.plugin.BasePlugin;
 import run.halo.app.plugin.PluginContext;
 
@@ -20,7 +23,17 @@ public class StaticPagesPlugin extends BasePlugin {
     @Override
     public void start() {
         schemeManager.register(Project.class);
-        schemeManager.register(ProjectVersion.class);
+        // Versions are always looked up by project, so let the store filter them by index
+        schemeManager.register(ProjectVersion.class, indexSpecs -> {
+            indexSpecs.add(new IndexSpec()
+                .setName(ProjectVersion.PROJECT_NAME_INDEX)
+                .setIndexFunc(simpleAttribute(ProjectVersion.class,
+                    version -> version.getSpec().getProjectName())));
+            indexSpecs.add(new IndexSpec()
+                .setName(ProjectVersion.ACTIVE_INDEX)
+                .setIndexFunc(simpleAttribute(ProjectVersion.class, version ->
+                    Boolean.toString(Boolean.TRUE.equals(version.getSpec().getActive())))));
+        });
     }
 
     @Override
@@ -12,13 +12,22 @@ import static org.springdoc.core.fn.builders.schema.Builder.schemaBuilder;
 import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
 
 import cc.ryanc.staticpages.extensions.ProjectVersion;
+import cc.ryanc.staticpages.model.DeployContext;
 import cc.ryanc.staticpages.model.ProjectFile;
+import cc.ryanc.staticpages.model.ProjectLockStatus;
 import cc.ryanc.staticpages.model.UploadContext;
+import cc.ryanc.staticpages.model.UploadSession;
 import cc.ryanc.staticpages.service.PageProjectService;
+import cc.ryanc.staticpages.service.ProjectLockManager;
+import cc.ryanc.staticpages.service.UploadSessionManager;
 import cc.ryanc.staticpages.service.VersionService;
+import cc.ryanc.staticpages.utils.ArchiveFormat;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.Schema;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import lombok.RequiredArgsConstructor;
 import org.springdoc.webflux.core.fn.SpringdocRouteBuilder;
 import org.springframework.http.HttpStatus;
@@ -36,12 +45,15 @@ import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Mono;
 import run.halo.app.core.extension.endpoint.CustomEndpoint;
 import run.halo.app.extension.GroupVersion;
+import run.halo.app.infra.utils.JsonUtils;
 
 @RequiredArgsConstructor
 @Component
 public class PageProjectEndpoint implements CustomEndpoint {
     private final PageProjectService pageProjectService;
     private final VersionService versionService;
+    private final UploadSessionManager uploadSessionManager;
+    private final ProjectLockManager lockManager;
 
     @Override
     public RouterFunction<ServerResponse> endpoint() {
@@ -51,10 +63,13 @@ public class PageProjectEndpoint implements CustomEndpoint {
                 request -> request.body(BodyExtractors.toMultipartData())
                     .map(UploadRequest::new)
                     .flatMap(uploadReq -> {
+                        var file = uploadReq.getFile();
                         var context = UploadContext.builder()
                             .name(request.pathVariable("name"))
                             .unzip(uploadReq.getUnzip())
-                            .filePart(uploadReq.getFile())
+                            .format(uploadReq.archiveFormat())
+                            .filename(file.filename())
+                            .content(file.content())
                             .dir(uploadReq.getDir())
                             .build();
                         return pageProjectService.upload(context);
@@ -77,6 +92,153 @@ public class PageProjectEndpoint implements CustomEndpoint {
                     .response(responseBuilder().implementation(Path.class))
                     .build()
             )
+            .POST("/projects/{name}/upload-sessions", contentType(MediaType.APPLICATION_JSON),
+                this::createUploadSession, builder -> builder
+                    .operationId("CreateUploadSession")
+                    .description("Start a resumable upload of a file sent in chunks. Sessions "
+                        + "are kept in memory and do not survive a restart, after which the "
+                        + "upload has to be started again.")
+                    .tag(tag)
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("name")
+                        .required(true)
+                    )
+                    .requestBody(requestBodyBuilder()
+                        .required(true)
+                        .implementation(CreateUploadSessionRequest.class)
+                    )
+                    .response(responseBuilder().implementation(UploadSession.class))
+            )
+            .GET("/projects/{name}/upload-sessions/{sessionId}", this::getUploadSession,
+                builder -> builder
+                    .operationId("GetUploadSession")
+                    .description("Get the received chunks of an upload session")
+                    .tag(tag)
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("name")
+                        .required(true)
+                    )
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("sessionId")
+                        .required(true)
+                    )
+                    .response(responseBuilder().implementation(UploadSession.class))
+            )
+            .PUT("/projects/{name}/upload-sessions/{sessionId}/chunks/{index}",
+                this::writeUploadChunk, builder -> builder
+                    .operationId("WriteUploadChunk")
+                    .description("Write a chunk of an upload session at its offset")
+                    .tag(tag)
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("name")
+                        .required(true)
+                    )
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("sessionId")
+                        .required(true)
+                    )
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("index")
+                        .required(true)
+                        .implementation(Integer.class)
+                    )
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.QUERY)
+                        .name("offset")
+                        .required(true)
+                        .implementation(Long.class)
+                        .description("Offset of the chunk in the uploaded file")
+                    )
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.QUERY)
+                        .name("checksum")
+                        .required(true)
+                        .description("Hex encoded SHA-256 hash of the chunk")
+                    )
+                    .requestBody(requestBodyBuilder()
+                        .required(true)
+                        .content(contentBuilder()
+                            .mediaType(MediaType.APPLICATION_OCTET_STREAM_VALUE)
+                            .schema(schemaBuilder().type("string").format("binary"))
+                        ))
+                    .response(responseBuilder().implementation(UploadSession.class))
+            )
+            .POST("/projects/{name}/upload-sessions/{sessionId}/commit",
+                this::commitUploadSession, builder -> builder
+                    .operationId("CommitUploadSession")
+                    .description("Upload the assembled file of a complete upload session")
+                    .tag(tag)
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("name")
+                        .required(true)
+                    )
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("sessionId")
+                        .required(true)
+                    )
+                    .response(responseBuilder().implementation(Path.class))
+            )
+            .DELETE("/projects/{name}/upload-sessions/{sessionId}", this::deleteUploadSession,
+                builder -> builder
+                    .operationId("DeleteUploadSession")
+                    .description("Abort an upload session and delete the received chunks")
+                    .tag(tag)
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("name")
+                        .required(true)
+                    )
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("sessionId")
+                        .required(true)
+                    )
+                    .response(responseBuilder()
+                        .responseCode(String.valueOf(HttpStatus.NO_CONTENT.value())))
+            )
+            .POST("/projects/{name}/deploy/check", contentType(MediaType.APPLICATION_JSON),
+                this::checkDeployment, builder -> builder
+                    .operationId("CheckProjectDeployment")
+                    .description("Find the content of a deployment that is not on the server yet")
+                    .tag(tag)
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("name")
+                        .required(true)
+                    )
+                    .requestBody(requestBodyBuilder()
+                        .required(true)
+                        .implementation(DeployManifest.class)
+                    )
+                    .response(responseBuilder().implementation(DeployCheckResult.class))
+            )
+            .POST("/projects/{name}/deploy", contentType(MediaType.MULTIPART_FORM_DATA),
+                this::deploy, builder -> builder
+                    .operationId("DeployProject")
+                    .description("Create a new version from the manifest of a deployment, "
+                        + "uploading only the content reported missing by the check")
+                    .tag(tag)
+                    .parameter(parameterBuilder()
+                        .in(ParameterIn.PATH)
+                        .name("name")
+                        .required(true)
+                    )
+                    .requestBody(requestBodyBuilder()
+                        .required(true)
+                        .content(contentBuilder()
+                            .mediaType(MediaType.MULTIPART_FORM_DATA_VALUE)
+                            .schema(schemaBuilder().implementation(DeployRequest.class))
+                        ))
+                    .response(responseBuilder().implementation(Path.class))
+            )
             .GET("/projects/{name}/files", this::listFiles, builder -> builder
                 .operationId("ListFilesInProject")
                 .tag(tag)
@@ -208,15 +370,97 @@ public class PageProjectEndpoint implements CustomEndpoint {
                     .response(responseBuilder()
                         .responseCode(String.valueOf(HttpStatus.NO_CONTENT.value())))
             )
+            .GET("/locks", this::listLocks, builder -> builder
+                .operationId("ListProjectLocks")
+                .description("List the holders and waiters of the project locks in use")
+                .tag(tag)
+                .response(responseBuilder().implementationArray(ProjectLockStatus.class))
+            )
             .build();
     }
 
+    private Mono<ServerResponse> createUploadSession(ServerRequest request) {
+        final var projectName = request.pathVariable("name");
+        return request.bodyToMono(CreateUploadSessionRequest.class)
+            .switchIfEmpty(Mono.error(new ServerWebInputException("Required body is missing.")))
+            .flatMap(req -> pageProjectService.createUploadSession(projectName, req.filename(),
+                req.size(), req.unzip(), req.dir()))
+            .flatMap(session -> ServerResponse.ok().bodyValue(session));
+    }
+
+    private Mono<ServerResponse> getUploadSession(ServerRequest request) {
+        final var projectName = request.pathVariable("name");
+        final var sessionId = request.pathVariable("sessionId");
+        return uploadSessionManager.get(projectName, sessionId)
+            .flatMap(session -> ServerResponse.ok().bodyValue(session));
+    }
+
+    private Mono<ServerResponse> writeUploadChunk(ServerRequest request) {
+        final var projectName = request.pathVariable("name");
+        final var sessionId = request.pathVariable("sessionId");
+        final var offsetParam = request.queryParam("offset");
+        if (offsetParam.isEmpty()) {
+            return Mono.error(new ServerWebInputException("Required 'offset' is missing."));
+        }
+        final int index;
+        final long offset;
+        try {
+            index = Integer.parseInt(request.pathVariable("index"));
+            offset = Long.parseLong(offsetParam.get());
+        } catch (NumberFormatException e) {
+            return Mono.error(new ServerWebInputException("Invalid chunk index or offset."));
+        }
+        final var checksum = request.queryParam("checksum").orElse(null);
+        return uploadSessionManager.writeChunk(projectName, sessionId, index, offset, checksum,
+                request.body(BodyExtractors.toDataBuffers()))
+            .flatMap(session -> ServerResponse.ok().bodyValue(session));
+    }
+
+    private Mono<ServerResponse> commitUploadSession(ServerRequest request) {
+        final var projectName = request.pathVariable("name");
+        final var sessionId = request.pathVariable("sessionId");
+        return pageProjectService.commitUploadSession(projectName, sessionId)
+            .flatMap(path -> ServerResponse.ok().bodyValue(path));
+    }
+
+    private Mono<ServerResponse> deleteUploadSession(ServerRequest request) {
+        final var projectName = request.pathVariable("name");
+        final var sessionId = request.pathVariable("sessionId");
+        return uploadSessionManager.remove(projectName, sessionId)
+            .then(ServerResponse.noContent().build());
+    }
+
+    private Mono<ServerResponse> checkDeployment(ServerRequest request) {
+        final var projectName = request.pathVariable("name");
+        return request.bodyToMono(DeployManifest.class)
+            .switchIfEmpty(Mono.error(new ServerWebInputException("Required body is missing.")))
+            .flatMap(manifest -> pageProjectService.findMissingContent(projectName,
+                manifest.files()))
+            .flatMap(missing -> ServerResponse.ok().bodyValue(new DeployCheckResult(missing)));
+    }
+
+    private Mono<ServerResponse> deploy(ServerRequest request) {
+        final var projectName = request.pathVariable("name");
+        return request.body(BodyExtractors.toMultipartData())
+            .map(DeployRequest::new)
+            .flatMap(deployReq -> pageProjectService.deploy(DeployContext.builder()
+                .name(projectName)
+                .files(deployReq.manifest().files())
+                .contents(deployReq.getFile())
+                .build()))
+            .flatMap(path -> ServerResponse.ok().bodyValue(path));
+    }
+
     private Mono<ServerResponse> listVersions(ServerRequest request) {
         final var projectName = request.pathVariable("name");
         return ServerResponse.ok()
             .body(versionService.listVersions(projectName), ProjectVersion.class);
     }
 
+    private Mono<ServerResponse> listLocks(ServerRequest request) {
+        return ServerResponse.ok().bodyValue(lockManager.getLockStatuses());
+    }
+
     private Mono<ServerResponse> activateVersion(ServerRequest request) {
         final var versionName = request.pathVariable("versionName");
         return versionService.activateVersion(versionName)
@@ -273,6 +517,58 @@ public class PageProjectEndpoint implements CustomEndpoint {
     public record WriteContentRequest(@Schema(requiredMode = REQUIRED) String content) {
     }
 
+    public record CreateUploadSessionRequest(
+        @Schema(requiredMode = REQUIRED, minLength = 1) String filename,
+        @Schema(requiredMode = REQUIRED, description = "Size of the file in bytes") long size,
+        boolean unzip,
+        @Schema(requiredMode = NOT_REQUIRED, pattern = "^(?:/[\\w\\-.~!$&'()*+,;=:@%]+)*$")
+        String dir) {
+    }
+
+    public record DeployManifest(
+        @Schema(requiredMode = REQUIRED, description = "The hex encoded SHA-256 hash of each "
+            + "file, keyed by the path relative to the site root")
+        Map<String, String> files) {
+    }
+
+    public record DeployCheckResult(
+        @Schema(requiredMode = REQUIRED, description = "The hashes whose content must be "
+            + "uploaded to deploy")
+        Set<String> missing) {
+    }
+
+    public record DeployRequest(MultiValueMap<String, Part> formData) {
+        @Schema(requiredMode = REQUIRED, description = "The deploy manifest as JSON")
+        public String getManifest() {
+            if (formData.getFirst("manifest") instanceof FormFieldPart form) {
+                return form.value();
+            }
+            throw new ServerWebInputException("Required 'manifest' param is missing.");
+        }
+
+        @Schema(requiredMode = NOT_REQUIRED, description = "The missing content, each file "
+            + "named by its hash")
+        public List<FilePart> getFile() {
+            var parts = formData.get("file");
+            if (parts == null) {
+                return List.of();
+            }
+            return parts.stream()
+                .filter(FilePart.class::isInstance)
+                .map(FilePart.class::cast)
+                .toList();
+        }
+
+        DeployManifest manifest() {
+            var manifest = getManifest();
+            try {
+                return JsonUtils.jsonToObject(manifest, DeployManifest.class);
+            } catch (RuntimeException e) {
+                throw new ServerWebInputException("Invalid 'manifest' param.", null, e);
+            }
+        }
+    }
+
     public record UploadRequest(MultiValueMap<String, Part> formData) {
         @Schema(requiredMode = REQUIRED)
         public FilePart getFile() {
@@ -299,5 +595,23 @@ public class PageProjectEndpoint implements CustomEndpoint {
             }
             return false;
         }
+
+        @Schema(requiredMode = NOT_REQUIRED, allowableValues = {"auto", "zip", "tar", "tar.gz",
+            "tar.zst"}, description = "Format of the archive to extract, detected from the "
+            + "content by default")
+        public String getFormat() {
+            if (formData.getFirst("format") instanceof FormFieldPart form) {
+                return form.value();
+            }
+            return null;
+        }
+
+        ArchiveFormat archiveFormat() {
+            try {
+                return ArchiveFormat.of(getFormat());
+            } catch (IllegalArgumentException e) {
+                throw new ServerWebInputException(e.getMessage());
+            }
+        }
     }
 }
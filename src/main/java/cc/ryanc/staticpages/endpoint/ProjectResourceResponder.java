@@ -0,0 +1,194 @@
+package cc.ryanc.staticpages.endpoint;
+
+import static cc.ryanc.staticpages.utils.CompressionUtils.GZIP_EXTENSION;
+
+import cc.ryanc.staticpages.service.HotFileCache;
+import cc.ryanc.staticpages.service.ProjectFileIndex;
+import cc.ryanc.staticpages.service.ProjectRewriteMatcher;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Writes files of the active version of a project directly to the response when the plugin can
+ * do better than the resource handler: from the {@link HotFileCache}, as a precompressed
+ * variant negotiated with {@code Accept-Encoding}, or with the content hash of the version
+ * manifest as a strong {@code ETag}.
+ * <p>
+ * Responses carry the {@code Cache-Control} of the project for the file, or require
+ * revalidation on every use, as files under a project root change on each deploy.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProjectResourceResponder {
+
+    private static final String GZIP = "gzip";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String DEFAULT_CACHE_CONTROL = CacheControl.noCache().getHeaderValue();
+
+    private final HotFileCache hotFileCache;
+
+    /**
+     * Respond with an existing file of the snapshot.
+     *
+     * @param exchange the current exchange
+     * @param matcher the matcher of the project, providing its cache policies
+     * @param snapshot the snapshot of the active version
+     * @param relativeFile the file to respond with, relative to the snapshot root
+     * @return true if the response was written, false if the request should be passed on to
+     * the resource handler
+     */
+    public Mono<Boolean> respond(ServerWebExchange exchange, ProjectRewriteMatcher matcher,
+        ProjectFileIndex.Snapshot snapshot, String relativeFile) {
+        var request = exchange.getRequest();
+        if (!isGetOrHead(request) || request.getHeaders().containsKey(HttpHeaders.RANGE)) {
+            return Mono.just(false);
+        }
+        var responseHeaders = exchange.getResponse().getHeaders();
+        var cacheControl = StringUtils.defaultIfEmpty(matcher.cacheControlOf(relativeFile),
+            DEFAULT_CACHE_CONTROL);
+        var mediaType = MediaTypeFactory.getMediaType(relativeFile)
+            .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        var servedFile = relativeFile;
+        var gzipFile = relativeFile + GZIP_EXTENSION;
+        if (snapshot.exists(gzipFile)) {
+            // Both variants must tell caches that the body depends on the request encoding
+            responseHeaders.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request)) {
+                responseHeaders.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+                servedFile = gzipFile;
+            }
+        }
+
+        var entry = snapshot.getManifestEntry(servedFile);
+        if (entry != null) {
+            // The manifest already knows the validators, so revalidation never touches the file
+            if (!writeHeaders(exchange, mediaType, cacheControl, entry.size(),
+                entry.lastModified(), entry.etag())) {
+                return exchange.getResponse().setComplete().thenReturn(true);
+            }
+            return writeBody(exchange, snapshot, servedFile).thenReturn(true);
+        }
+        if (servedFile.equals(relativeFile)) {
+            return respondFromCache(exchange, snapshot, relativeFile, mediaType, cacheControl);
+        }
+        var path = snapshot.getRoot().resolve(servedFile);
+        return respondFromCache(exchange, snapshot, servedFile, mediaType, cacheControl)
+            .flatMap(written -> written ? Mono.just(true)
+                : respondFromDisk(exchange, path, mediaType, cacheControl).thenReturn(true));
+    }
+
+    private Mono<Boolean> respondFromCache(ServerWebExchange exchange,
+        ProjectFileIndex.Snapshot snapshot, String relativeFile, MediaType mediaType,
+        String cacheControl) {
+        if (!hotFileCache.isEnabled()) {
+            return Mono.just(false);
+        }
+        return hotFileCache.get(snapshot, relativeFile)
+            .flatMap(file -> {
+                var response = exchange.getResponse();
+                if (!writeHeaders(exchange, mediaType, cacheControl, file.size(),
+                    file.lastModified(), null)) {
+                    return response.setComplete().thenReturn(true);
+                }
+                return response.writeWith(Mono.fromSupplier(
+                        () -> response.bufferFactory().wrap(file.contentView())))
+                    .thenReturn(true);
+            })
+            .defaultIfEmpty(false);
+    }
+
+    private Mono<Void> respondFromDisk(ServerWebExchange exchange, Path file,
+        MediaType mediaType, String cacheControl) {
+        return Mono.fromCallable(() -> Files.readAttributes(file, BasicFileAttributes.class))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(attributes -> {
+                var response = exchange.getResponse();
+                if (!writeHeaders(exchange, mediaType, cacheControl, attributes.size(),
+                    attributes.lastModifiedTime().toInstant(), null)) {
+                    return response.setComplete();
+                }
+                return response.writeWith(
+                    DataBufferUtils.read(file, response.bufferFactory(), BUFFER_SIZE));
+            });
+    }
+
+    /**
+     * Write the body from the cache if the file is cached, otherwise stream it from disk.
+     */
+    private Mono<Void> writeBody(ServerWebExchange exchange, ProjectFileIndex.Snapshot snapshot,
+        String relativeFile) {
+        var response = exchange.getResponse();
+        var bufferFactory = response.bufferFactory();
+        Flux<DataBuffer> fromDisk = Flux.defer(() -> DataBufferUtils.read(
+            snapshot.getRoot().resolve(relativeFile), bufferFactory, BUFFER_SIZE));
+        if (!hotFileCache.isEnabled()) {
+            return response.writeWith(fromDisk);
+        }
+        return response.writeWith(hotFileCache.get(snapshot, relativeFile)
+            .map(file -> bufferFactory.wrap(file.contentView()))
+            .flux()
+            .switchIfEmpty(fromDisk));
+    }
+
+    /**
+     * Write the response headers.
+     *
+     * @param cacheControl the {@code Cache-Control} header value, also sent with
+     * {@code 304 Not Modified}
+     * @param etag the strong entity tag of the content, or {@code null} if unknown
+     * @return true if a body should follow, false for {@code HEAD} requests and
+     * {@code 304 Not Modified} responses
+     */
+    private static boolean writeHeaders(ServerWebExchange exchange, MediaType mediaType,
+        String cacheControl, long contentLength, Instant lastModified, @Nullable String etag) {
+        var headers = exchange.getResponse().getHeaders();
+        headers.set(HttpHeaders.CACHE_CONTROL, cacheControl);
+        if (exchange.checkNotModified(etag, lastModified)) {
+            headers.remove(HttpHeaders.CONTENT_ENCODING);
+            return false;
+        }
+        headers.setContentType(mediaType);
+        headers.setContentLength(contentLength);
+        return !HttpMethod.HEAD.equals(exchange.getRequest().getMethod());
+    }
+
+    private static boolean isGetOrHead(ServerHttpRequest request) {
+        return HttpMethod.GET.equals(request.getMethod())
+            || HttpMethod.HEAD.equals(request.getMethod());
+    }
+
+    static boolean acceptsGzip(ServerHttpRequest request) {
+        for (String value : request.getHeaders().getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : StringUtils.split(value, ',')) {
+                var parameters = StringUtils.split(coding, ';');
+                if (parameters.length == 0 || !GZIP.equalsIgnoreCase(parameters[0].trim())) {
+                    continue;
+                }
+                // Explicitly refused with a zero quality value
+                return parameters.length == 1
+                    || !StringUtils.deleteWhitespace(parameters[1]).matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
@@ -1,19 +1,24 @@
 package cc.ryanc.staticpages.endpoint;
 
+import cc.ryanc.staticpages.service.NotFoundCache;
+import cc.ryanc.staticpages.service.ProjectFileIndex;
+import cc.ryanc.staticpages.service.ProjectRewriteMatcher;
 import cc.ryanc.staticpages.service.ProjectRewriteRules;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.TreeMap;
+import cc.ryanc.staticpages.service.VersionService;
+import java.util.Optional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.resource.NoResourceFoundException;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilterChain;
-import org.springframework.web.util.pattern.PathPattern;
-import org.springframework.web.util.pattern.PathPatternParser;
 import reactor.core.publisher.Mono;
 import run.halo.app.security.AdditionalWebFilter;
 
@@ -22,74 +27,247 @@ import run.halo.app.security.AdditionalWebFilter;
 @RequiredArgsConstructor
 public class RewriteOnNotFoundFilter implements AdditionalWebFilter {
 
+    private static final String INDEX_HTML = "index.html";
+
+    /**
+     * Exchange attribute holding the file a request is currently served from, relative to the
+     * project root, so the cache policy follows rewrites.
+     */
+    static final String SERVED_FILE_ATTRIBUTE =
+        RewriteOnNotFoundFilter.class.getName() + ".servedFile";
+
     private final ProjectRewriteRules rewriteRules;
 
+    private final ProjectFileIndex fileIndex;
+
+    private final NotFoundCache notFoundCache;
+
+    private final ProjectResourceResponder responder;
+
+    private final VersionService versionService;
+
     @Override
     @NonNull
     public Mono<Void> filter(@NonNull ServerWebExchange exchange, @NonNull WebFilterChain chain) {
-        return chain.filter(exchange)
+        var requestPath = exchange.getRequest().getPath().pathWithinApplication();
+        var matcher = rewriteRules.findMatcher(requestPath);
+        if (matcher == null) {
+            return chain.filter(exchange);
+        }
+        applyCachePolicy(exchange, matcher);
+        var projectName = matcher.getProjectName();
+        if (notFoundCache.isKnownMiss(projectName, requestPath.value())) {
+            return notFound(requestPath);
+        }
+        var snapshot = fileIndex.get(projectName);
+        if (snapshot == null) {
+            // Not indexed yet, the root may not hold the site, so probe the active version
+            return versionService.getActiveVersion(projectName)
+                .map(version -> Optional.of(version.getSpec().getDirectory()))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(versionDirectory -> probe(exchange, chain, matcher,
+                    versionDirectory.orElse(null)));
+        }
+        if (!isGetOrHead(exchange.getRequest())) {
+            // Not a read of a file, fall back to probing the resource handler
+            return probe(exchange, chain, matcher, snapshot.getVersionDirectory());
+        }
+
+        var relativePath = matcher.relativePathOf(requestPath);
+        if (!relativePath.isEmpty() && snapshot.exists(relativePath)) {
+            return serve(exchange, chain, matcher, snapshot, requestPath.value(), relativePath);
+        }
+        var generation = notFoundCache.generationOf(projectName);
+        var rewrite = resolveRewrite(matcher, snapshot, requestPath, relativePath);
+        if (rewrite == null) {
+            notFoundCache.recordMiss(projectName, requestPath.value(), generation);
+            return notFound(requestPath);
+        }
+        log.debug("Rewrite request path {} to {}", requestPath, rewrite.path());
+        return serve(exchange, chain, matcher, snapshot, rewrite.path(), rewrite.relativeFile());
+    }
+
+    /**
+     * Decide up front where a request for a missing file should go, using the file index of the
+     * project.
+     *
+     * @return the rewrite, or {@code null} if no rewrite resolves to an existing file
+     */
+    @Nullable
+    Rewrite resolveRewrite(ProjectRewriteMatcher matcher, ProjectFileIndex.Snapshot snapshot,
+        PathContainer requestPath, String relativePath) {
+        var normalizedPath = normalizePath(requestPath);
+        var rewrite = nextRewrite(matcher, normalizedPath, null);
+        while (rewrite != null && !snapshot.exists(rewrite.relativeFile())) {
+            rewrite = nextRewrite(matcher, normalizedPath, rewrite);
+        }
+        return rewrite;
+    }
+
+    /**
+     * Find the rewrite to try after the given one. The implicit {@code {path}/index.html}
+     * rewrite takes its place among the matching rules, ordered by specificity.
+     *
+     * @param path the normalized request path
+     * @param previous the rewrite tried last, or {@code null} for the first one
+     * @return the next rewrite, or {@code null} if none is left
+     */
+    @Nullable
+    private static Rewrite nextRewrite(ProjectRewriteMatcher matcher, PathContainer path,
+        @Nullable Rewrite previous) {
+        var fromIndex = previous == null ? 0 : previous.nextRuleIndex();
+        var indexHtmlTried = previous != null && previous.indexHtmlTried();
+        var ruleIndex = matcher.indexOfMatch(path, fromIndex);
+        if (!indexHtmlTried && (ruleIndex < 0 || !matcher.precedesIndexHtml(ruleIndex, path))) {
+            var relativePath = matcher.relativePathOf(path);
+            var indexHtml = relativePath.isEmpty() ? INDEX_HTML : relativePath + "/" + INDEX_HTML;
+            return new Rewrite(path.value() + "/" + INDEX_HTML, indexHtml, fromIndex, true);
+        }
+        if (ruleIndex < 0) {
+            return null;
+        }
+        return new Rewrite(matcher.targetAt(ruleIndex), matcher.relativeTargetAt(ruleIndex),
+            ruleIndex + 1, indexHtmlTried);
+    }
+
+    /**
+     * Serve an existing file of the active version, directly if the responder can, otherwise
+     * through the resource handler.
+     *
+     * @param path the path of the file under the project root, used by the resource handler
+     */
+    private Mono<Void> serve(ServerWebExchange exchange, WebFilterChain chain,
+        ProjectRewriteMatcher matcher, ProjectFileIndex.Snapshot snapshot, String path,
+        String relativeFile) {
+        var versionDirectory = snapshot.getVersionDirectory();
+        var servedPath = versionDirectory == null ? path
+            : inVersionDirectory(matcher, versionDirectory, path);
+        var currentPath = exchange.getRequest().getPath().pathWithinApplication().value();
+        var servedExchange = servedPath.equals(currentPath) ? exchange
+            : withPath(exchange, servedPath);
+        servedExchange.getAttributes().put(SERVED_FILE_ATTRIBUTE, relativeFile);
+        return responder.respond(servedExchange, matcher, snapshot, relativeFile)
+            .flatMap(written -> written ? Mono.<Void>empty() : chain.filter(servedExchange));
+    }
+
+    /**
+     * Map a path under the project root to the same path in the directory of the active
+     * version, e.g. {@code /foo/docs/} to {@code /foo/versions/version-3/docs/}, so the resource
+     * handler reads the version in place.
+     */
+    static String inVersionDirectory(ProjectRewriteMatcher matcher, String versionDirectory,
+        String path) {
+        var pathWithinRoot = PathContainer.parsePath(path)
+            .subPath(matcher.getRootElementCount())
+            .value();
+        return matcher.getRootPath() + "/" + versionDirectory + pathWithinRoot;
+    }
+
+    /**
+     * Probe the resource handler for the requested path, then for its rewrites one by one.
+     *
+     * @param versionDirectory the directory of the active version relative to the project
+     * root, or {@code null} to probe the project root
+     */
+    private Mono<Void> probe(ServerWebExchange exchange, WebFilterChain chain,
+        ProjectRewriteMatcher matcher, @Nullable String versionDirectory) {
+        var requestPath = exchange.getRequest().getPath().pathWithinApplication();
+        var probedExchange = versionDirectory == null ? exchange : withPath(exchange,
+            inVersionDirectory(matcher, versionDirectory, requestPath.value()));
+        probedExchange.getAttributes()
+            .put(SERVED_FILE_ATTRIBUTE, matcher.relativePathOf(requestPath));
+        return chain.filter(probedExchange)
             .onErrorResume(NoResourceFoundException.class,
-                e -> tryRewritesSequentially(exchange, chain, e)
+                e -> tryRewritesSequentially(exchange, chain, matcher, versionDirectory, e)
             );
     }
 
     private Mono<Void> tryRewritesSequentially(ServerWebExchange exchange, WebFilterChain chain,
-        Throwable e) {
-        if (!hasMatchedRewriteRule(exchange)) {
-            return Mono.error(e);
-        }
+        ProjectRewriteMatcher matcher, @Nullable String versionDirectory, Throwable e) {
+        var originalPath = exchange.getRequest().getPath().pathWithinApplication().value();
+        var projectName = matcher.getProjectName();
+        var generation = notFoundCache.generationOf(projectName);
         var requestPath = normalizePath(exchange.getRequest().getPath().pathWithinApplication());
 
-        // Collect all possible rewrites into a list
-        var rewrites = getRulesWithDefault(exchange).entrySet().stream()
-            .filter(entry -> entry.getKey().matches(requestPath))
-            .map(Map.Entry::getValue)
-            .toList();
-
-        // Attempt to apply each rewrite one by one until one succeeds
-        return tryRewrites(exchange, chain, rewrites.iterator(), e);
+        // Attempt to apply each matched rewrite one by one until one succeeds
+        return tryRewrites(exchange, chain, matcher, versionDirectory, requestPath, null, e)
+            .doOnError(NoResourceFoundException.class,
+                unused -> notFoundCache.recordMiss(projectName, originalPath, generation));
     }
 
     private Mono<Void> tryRewrites(ServerWebExchange exchange, WebFilterChain chain,
-        Iterator<String> rewrites, Throwable e) {
-        if (!rewrites.hasNext()) {
+        ProjectRewriteMatcher matcher, @Nullable String versionDirectory,
+        PathContainer requestPath, @Nullable Rewrite previous, Throwable e) {
+        var rewrite = nextRewrite(matcher, requestPath, previous);
+        if (rewrite == null) {
             return Mono.error(e);
         }
 
-        String rewrittenPath = rewrites.next();
         log.debug("No static resource found for path {} and trying rewrite to {}",
-            exchange.getRequest().getPath(), rewrittenPath);
-        var mutatedRequest = exchange.getRequest().mutate().path(rewrittenPath).build();
-        ServerWebExchange mutatedExchange = exchange.mutate().request(mutatedRequest).build();
+            exchange.getRequest().getPath(), rewrite.path());
+        var rewrittenPath = versionDirectory == null ? rewrite.path()
+            : inVersionDirectory(matcher, versionDirectory, rewrite.path());
+        ServerWebExchange mutatedExchange = withPath(exchange, rewrittenPath);
+        mutatedExchange.getAttributes().put(SERVED_FILE_ATTRIBUTE, rewrite.relativeFile());
 
         // Try the next rewrite rule if this one fails
         return chain.filter(mutatedExchange)
             .onErrorResume(NoResourceFoundException.class,
-                unusedEx -> tryRewrites(mutatedExchange, chain, rewrites, e));
+                unusedEx -> tryRewrites(mutatedExchange, chain, matcher, versionDirectory,
+                    requestPath, rewrite, e));
     }
 
-    private boolean hasMatchedRewriteRule(ServerWebExchange exchange) {
-        var requestPathContainer = exchange.getRequest().getPath().pathWithinApplication();
-        var projectRootPaths = rewriteRules.getProjectRootPaths();
-        for (String projectRootPath : projectRootPaths) {
-            if (requestPathContainer.value().startsWith(ensureLeadingSlash(projectRootPath))) {
-                return true;
+    /**
+     * A rewrite of a request for a missing file.
+     *
+     * @param path the rewritten request path
+     * @param relativeFile the file the rewritten path points to, relative to the project root
+     * @param nextRuleIndex the index of the rule to look for the next rewrite from
+     * @param indexHtmlTried whether the implicit {@code {path}/index.html} rewrite was tried
+     */
+    record Rewrite(String path, String relativeFile, int nextRuleIndex,
+        boolean indexHtmlTried) {
+    }
+
+    /**
+     * Override the {@code Cache-Control} of successful responses with the policy of the project
+     * for the file that was finally served. Responses for which the project defines no policy
+     * keep the header set by the responder or the resource handler.
+     */
+    private static void applyCachePolicy(ServerWebExchange exchange,
+        ProjectRewriteMatcher matcher) {
+        var response = exchange.getResponse();
+        response.beforeCommit(() -> {
+            String servedFile = exchange.getAttribute(SERVED_FILE_ATTRIBUTE);
+            var status = response.getStatusCode();
+            if (servedFile == null || status != null && !status.is2xxSuccessful()
+                && status.value() != HttpStatus.NOT_MODIFIED.value()) {
+                return Mono.empty();
             }
-        }
-        return false;
+            var cacheControl = matcher.cacheControlOf(servedFile);
+            if (cacheControl != null) {
+                response.getHeaders().set(HttpHeaders.CACHE_CONTROL, cacheControl);
+            }
+            return Mono.empty();
+        });
     }
 
-    Map<PathPattern, String> getRulesWithDefault(ServerWebExchange exchange) {
-        var requestPath = exchange.getRequest().getPath().pathWithinApplication();
-        var rules = new TreeMap<>(rewriteRules.getRewriteRules());
-        var parser = PathPatternParser.defaultInstance;
-        rules.put(parser.parse(requestPath.value()), requestPath + "/index.html");
-        rules.put(parser.parse(requestPath.value() + "/"), requestPath + "/index.html");
-        return rules;
+    /**
+     * Answer a request for a missing path without probing the resource handler, with the error
+     * the handler would raise.
+     */
+    private static Mono<Void> notFound(PathContainer requestPath) {
+        return Mono.error(new NoResourceFoundException(requestPath.value()));
     }
 
-    String ensureLeadingSlash(String path) {
-        return path.startsWith("/") ? path : "/" + path;
+    private static boolean isGetOrHead(ServerHttpRequest request) {
+        return HttpMethod.GET.equals(request.getMethod())
+            || HttpMethod.HEAD.equals(request.getMethod());
+    }
+
+    private static ServerWebExchange withPath(ServerWebExchange exchange, String rewrittenPath) {
+        var mutatedRequest = exchange.getRequest().mutate().path(rewrittenPath).build();
+        return exchange.mutate().request(mutatedRequest).build();
     }
 
     private PathContainer normalizePath(PathContainer pathContainer) {
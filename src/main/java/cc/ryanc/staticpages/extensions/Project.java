@@ -51,6 +51,28 @@ public class Project extends AbstractExtension {
                 description = "Maximum number of versions to keep, 0 means unlimited",
                 defaultValue = "5")
         private Integer maxVersions = 5;
+
+        @Schema(requiredMode = NOT_REQUIRED,
+                description = "Maximum age in days of versions to keep, 0 means unlimited",
+                defaultValue = "0")
+        private Integer maxVersionAgeDays = 0;
+
+        @Schema(requiredMode = NOT_REQUIRED,
+                description = "Maximum total size in bytes of the versions to keep, the newest "
+                    + "versions are kept first, 0 means unlimited",
+                defaultValue = "0")
+        private Long maxTotalSize = 0L;
+
+        @Schema(requiredMode = NOT_REQUIRED,
+                description = "Cache-Control policies of files under the project root, "
+                    + "the first policy whose pattern matches wins")
+        private List<CachePolicy> cachePolicies;
+
+        @Schema(requiredMode = NOT_REQUIRED,
+                description = "Whether files with a content hash in their name, e.g. "
+                    + "app.3f9a1c.js, are cached as immutable when no policy matches",
+                defaultValue = "true")
+        private Boolean immutableHashedFiles = true;
     }
 
     @Data
@@ -63,11 +85,28 @@ public class Project extends AbstractExtension {
         private String target;
     }
 
+    @Data
+    @Schema(name = "ProjectCachePolicy")
+    public static class CachePolicy {
+        @Schema(requiredMode = REQUIRED, minLength = 1,
+                description = "Ant-style pattern relative to the project root, e.g. /assets/**")
+        private String pattern;
+
+        @Schema(requiredMode = REQUIRED, minLength = 1,
+                description = "Cache-Control header value, e.g. public, max-age=3600")
+        private String cacheControl;
+    }
+
     @Data
     @Schema(name = "ProjectStatus")
     public static class Status {
         private Phase phase = Phase.READY;
 
+        @Schema(requiredMode = NOT_REQUIRED,
+                description = "Number of the last version allocated to the project, numbers "
+                    + "are never reused")
+        private Integer lastVersion;
+
         @Getter(onMethod_ = @NonNull)
         private ConditionList conditions = new ConditionList();
 
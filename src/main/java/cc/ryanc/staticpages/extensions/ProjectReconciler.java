@@ -4,8 +4,11 @@ import static cc.ryanc.staticpages.extensions.Project.Phase.FAILED;
 import static run.halo.app.extension.ExtensionUtil.addFinalizers;
 import static run.halo.app.extension.ExtensionUtil.removeFinalizers;
 
+import cc.ryanc.staticpages.service.NotFoundCache;
 import cc.ryanc.staticpages.service.PageFileManager;
 import cc.ryanc.staticpages.service.PageProjectService;
+import cc.ryanc.staticpages.service.ProjectFileIndex;
+import cc.ryanc.staticpages.service.ProjectLockManager;
 import cc.ryanc.staticpages.service.ProjectRewriteRules;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -35,6 +38,9 @@ public class ProjectReconciler implements Reconciler<Reconciler.Request> {
     private final ProjectRewriteRules projectRewriteRules;
     private final PageProjectService pageProjectService;
     private final PageFileManager pageFileManager;
+    private final ProjectFileIndex fileIndex;
+    private final NotFoundCache notFoundCache;
+    private final ProjectLockManager lockManager;
 
     @Override
     public Result reconcile(Request request) {
@@ -43,7 +49,10 @@ public class ProjectReconciler implements Reconciler<Reconciler.Request> {
                 if (ExtensionUtil.isDeleted(project)) {
                     if (removeFinalizers(project.getMetadata(), Set.of(FINALIZER))) {
                         projectRewriteRules.removeRules(project);
+                        fileIndex.remove(project.getMetadata().getName());
                         pageProjectService.deleteProject(project).block();
+                        notFoundCache.remove(project.getMetadata().getName());
+                        lockManager.removeLock(project.getMetadata().getName());
                         client.update(project);
                         return;
                     }
@@ -62,7 +71,13 @@ public class ProjectReconciler implements Reconciler<Reconciler.Request> {
                 projectRewriteRules.updateRules(project);
                 
                 // Handle directory changes
-                changed |= handleDirectoryChange(project);
+                var directoryChanged = handleDirectoryChange(project);
+                changed |= directoryChanged;
+
+                // Index files on startup and after the directory moved
+                if (directoryChanged || fileIndex.get(project.getMetadata().getName()) == null) {
+                    pageProjectService.rebuildFileIndex(project).block();
+                }
 
                 // Only update if something changed to avoid unnecessary reconciliation loops
                 if (changed) {
@@ -5,6 +5,7 @@ import static io.swagger.v3.oas.annotations.media.Schema.RequiredMode.REQUIRED;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import java.time.Instant;
+import java.util.List;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -18,6 +19,16 @@ import run.halo.app.extension.GVK;
     plural = "projectversions", singular = "projectversion")
 public class ProjectVersion extends AbstractExtension {
     
+    /**
+     * Name of the index on {@code spec.projectName}, registered with the scheme.
+     */
+    public static final String PROJECT_NAME_INDEX = "spec.projectName";
+    
+    /**
+     * Name of the index on {@code spec.active}, registered with the scheme.
+     */
+    public static final String ACTIVE_INDEX = "spec.active";
+    
     @Schema(requiredMode = REQUIRED)
     private Spec spec;
     
@@ -50,6 +61,13 @@ public class ProjectVersion extends AbstractExtension {
         @Schema(requiredMode = NOT_REQUIRED, description = "Size of the version in bytes")
         private Long size = 0L;
         
+        @Schema(requiredMode = NOT_REQUIRED, description = "Number of files in the version")
+        private Integer fileCount = 0;
+        
+        @Schema(requiredMode = NOT_REQUIRED, description = "Largest files of the version, "
+            + "largest first")
+        private List<FileSize> largestFiles;
+        
         @Schema(requiredMode = NOT_REQUIRED, description = "Creation timestamp")
         private Instant creationTime;
         
@@ -57,6 +75,16 @@ public class ProjectVersion extends AbstractExtension {
         private String description;
     }
     
+    @Data
+    @Schema(name = "ProjectVersionFileSize")
+    public static class FileSize {
+        @Schema(requiredMode = REQUIRED, description = "Path relative to the version directory")
+        private String path;
+        
+        @Schema(requiredMode = REQUIRED, description = "Size of the file in bytes")
+        private Long size;
+    }
+    
     @Data
     @Schema(name = "ProjectVersionStatus")
     public static class Status {
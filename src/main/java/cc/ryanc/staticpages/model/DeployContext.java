@@ -0,0 +1,21 @@
+package cc.ryanc.staticpages.model;
+
+import java.util.List;
+import java.util.Map;
+import lombok.Builder;
+import lombok.Value;
+import org.springframework.http.codec.multipart.FilePart;
+
+@Value
+@Builder
+public class DeployContext {
+    String name;
+    /**
+     * Content hash of each file of the deployment, keyed by the path relative to the site root.
+     */
+    Map<String, String> files;
+    /**
+     * Content not on the server yet, each part named by its hash.
+     */
+    List<FilePart> contents;
+}
@@ -0,0 +1,36 @@
+package cc.ryanc.staticpages.model;
+
+import java.time.Instant;
+import java.util.List;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The holders and waiters of a project lock at one point in time.
+ */
+@Value
+@Builder
+public class ProjectLockStatus {
+    String projectName;
+    List<Entry> holders;
+    /**
+     * Waiters in the order they will be granted the lock.
+     */
+    List<Entry> waiters;
+
+    @Value
+    public static class Entry {
+        /**
+         * Either {@code shared} or {@code exclusive}.
+         */
+        String mode;
+        /**
+         * When the lock was acquired, or when the waiter was queued.
+         */
+        Instant since;
+        /**
+         * How long the lock has been held or waited for.
+         */
+        long durationMillis;
+    }
+}
@@ -1,14 +1,24 @@
 package cc.ryanc.staticpages.model;
 
+import cc.ryanc.staticpages.utils.ArchiveFormat;
 import lombok.Builder;
 import lombok.Value;
-import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
 
 @Value
 @Builder
 public class UploadContext {
     String name;
-    FilePart filePart;
+    String filename;
+    /**
+     * The uploaded file, from a multipart request or the spool file of an upload session.
+     */
+    Flux<DataBuffer> content;
     boolean unzip;
+    /**
+     * The archive format to extract, null to detect it from the content.
+     */
+    ArchiveFormat format;
     String dir;
 }
@@ -0,0 +1,35 @@
+package cc.ryanc.staticpages.model;
+
+import java.util.List;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * State of a resumable upload, as reported to the client.
+ */
+@Data
+@Accessors(chain = true)
+public class UploadSession {
+    private String id;
+
+    private String filename;
+
+    /**
+     * 上传文件的总大小
+     */
+    private long size;
+
+    /**
+     * 已接收的字节数
+     */
+    private long receivedBytes;
+
+    /**
+     * 已接收的分片序号，客户端续传时只需重新上传缺失的分片
+     */
+    private List<Integer> receivedChunks;
+
+    private boolean unzip;
+
+    private String dir;
+}
@@ -0,0 +1,152 @@
+package cc.ryanc.staticpages.service;
+
+import cc.ryanc.staticpages.utils.ArchiveFormat;
+import cc.ryanc.staticpages.utils.FileUtils;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Extracts uploaded archives into a version directory.
+ * <p>
+ * By default an archive is decoded while it streams in. With {@link Mode#PARALLEL} the upload is
+ * spooled to a file next to the target first, so the entries of a zip archive can be listed from
+ * the central directory and inflated on several threads at once, which is much faster for sites
+ * with thousands of small files on hosts with many cores. Tar archives have no index and are
+ * always decoded in stream order.
+ */
+@Slf4j
+@Component
+public class ArchiveExtractor {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    @Getter
+    private final Mode mode;
+
+    private final int parallelism;
+
+    public ArchiveExtractor(
+        @Value("${static-pages.upload.extraction:stream}") String mode,
+        @Value("${static-pages.upload.extraction-parallelism:0}") int parallelism) {
+        this.mode = parseMode(mode);
+        this.parallelism = parallelism > 0 ? parallelism
+            : Runtime.getRuntime().availableProcessors();
+        log.info("ArchiveExtractor initialized with mode {} and parallelism {}", this.mode,
+            this.parallelism);
+    }
+
+    private static Mode parseMode(String mode) {
+        try {
+            return Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown extraction mode '{}' in static-pages.upload.extraction, falling "
+                + "back to {}", mode, Mode.STREAM);
+            return Mode.STREAM;
+        }
+    }
+
+    /**
+     * Extract an archive into the store path.
+     *
+     * @param content the archive content
+     * @param storePath the directory to extract to
+     * @param format the archive format or null to detect it from the content
+     * @return empty mono when the archive is extracted
+     * @see FileUtils#extractTo(Publisher, Path, ArchiveFormat)
+     */
+    public Mono<Void> extract(Publisher<DataBuffer> content, Path storePath,
+        @Nullable ArchiveFormat format) {
+        return extract(content, storePath, format, null);
+    }
+
+    /**
+     * Extract an archive into the store path, hashing each file while it is written so the
+     * content store does not read the files again.
+     *
+     * @param content the archive content
+     * @param storePath the directory to extract to
+     * @param format the archive format or null to detect it from the content
+     * @param hashConsumer called with the path under the store path and the hex encoded
+     * SHA-256 hash of each extracted file, or null if the files need not be hashed
+     * @return empty mono when the archive is extracted
+     * @see FileUtils#extractTo(Publisher, Path, ArchiveFormat, BiConsumer)
+     */
+    public Mono<Void> extract(Publisher<DataBuffer> content, Path storePath,
+        @Nullable ArchiveFormat format, @Nullable BiConsumer<Path, String> hashConsumer) {
+        if (mode == Mode.STREAM) {
+            return FileUtils.extractTo(content, storePath, format, hashConsumer);
+        }
+        return Mono.usingWhen(spool(content, storePath),
+            spoolFile -> detect(spoolFile, format)
+                .flatMap(detected -> FileUtils.extractTo(storePath, stagingDir -> {
+                    var stagedHashConsumer =
+                        FileUtils.inStagingDir(hashConsumer, stagingDir, storePath);
+                    if (detected == ArchiveFormat.ZIP) {
+                        return FileUtils.unzip(spoolFile, stagingDir, parallelism,
+                            stagedHashConsumer);
+                    }
+                    return FileUtils.extract(DataBufferUtils.read(spoolFile,
+                            DefaultDataBufferFactory.sharedInstance, READ_BUFFER_SIZE),
+                        stagingDir, detected, stagedHashConsumer);
+                })),
+            FileUtils::deleteFileSilently);
+    }
+
+    private static Mono<ArchiveFormat> detect(Path spoolFile, @Nullable ArchiveFormat format) {
+        if (format != null) {
+            return Mono.just(format);
+        }
+        return Mono.fromCallable(() -> {
+                var detected = ArchiveFormat.detect(spoolFile);
+                if (detected == null) {
+                    throw new ServerWebInputException("Unsupported archive format, expected "
+                        + "zip, tar, tar.gz or tar.zst");
+                }
+                return detected;
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Write the upload to a file next to the store path, on the same file system.
+     */
+    private static Mono<Path> spool(Publisher<DataBuffer> content, Path storePath) {
+        return Mono.fromCallable(() -> {
+                var parent = storePath.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                return parent.resolve("." + storePath.getFileName() + ".spool-"
+                    + UUID.randomUUID());
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(spoolFile -> DataBufferUtils.write(content, spoolFile)
+                .thenReturn(spoolFile)
+                .onErrorResume(e -> FileUtils.deleteFileSilently(spoolFile)
+                    .then(Mono.error(e))));
+    }
+
+    public enum Mode {
+        /**
+         * Decode the archive while it streams in.
+         */
+        STREAM,
+        /**
+         * Spool the archive and inflate the entries of a zip archive in parallel.
+         */
+        PARALLEL
+    }
+}
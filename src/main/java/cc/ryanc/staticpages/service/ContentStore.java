@@ -0,0 +1,401 @@
+package cc.ryanc.staticpages.service;
+
+import cc.ryanc.staticpages.utils.FileUtils;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.StampedLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Content-addressed store that deduplicates files across the versions of a project.
+ * <p>
+ * Each project keeps its objects under {@code versions/.objects}, named by the SHA-256 hash of
+ * their content. After an upload every file of the new version is replaced by a hard link to
+ * the object with the same content, so unchanged files of consecutive versions share their
+ * bytes on disk. The link count of an object is its reference count: an object only linked by
+ * the store itself is no longer used by any version and is removed by
+ * {@link #collectGarbage(Path)}.
+ * <p>
+ * Files of a version must therefore never be written in place. They are replaced by writing a
+ * new file and renaming it over the old one, which breaks the link.
+ * <p>
+ * An object stored for a deployment is not linked until the version is assembled, so the
+ * deployment {@link #retainObjects(Path) retains} the objects of the project in between.
+ */
+@Slf4j
+@Component
+public class ContentStore {
+
+    static final String OBJECTS_DIR = ".objects";
+
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Locks between retaining and collecting objects, striped by the versions directory so
+     * their number does not grow with the projects.
+     */
+    private final StampedLock[] objectLocks = new StampedLock[LOCK_STRIPES];
+
+    public ContentStore() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            objectLocks[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * Hash the files of a version and link each one to the object of its content.
+     *
+     * @param versionPath the version directory, e.g. {@code versions/version-3}
+     * @return the number of files that now share an object with another version
+     * @throws IOException if the version cannot be walked or the manifest cannot be saved
+     * @see #intern(Path, Map)
+     */
+    public int intern(Path versionPath) throws IOException {
+        return intern(versionPath, Map.of());
+    }
+
+    /**
+     * Link each file of a version to the object of its content.
+     * <p>
+     * Files hashed while they were written, e.g. during extraction, are not read again; the
+     * others are hashed unless the manifest already holds an up-to-date entry. The manifest of
+     * the version is saved with the hashes, so the file index does not hash the version again
+     * on activation. This method blocks on file system access and must not be called on a
+     * non-blocking thread.
+     *
+     * @param versionPath the version directory, e.g. {@code versions/version-3}
+     * @param knownHashes the hex encoded SHA-256 hashes of files known from writing them,
+     * keyed by the path of the file under the version directory
+     * @return the number of files that now share an object with another version
+     * @throws IOException if the version cannot be walked or the manifest cannot be saved
+     */
+    public int intern(Path versionPath, Map<Path, String> knownHashes) throws IOException {
+        var objectsPath = objectsPathOf(versionPath.getParent());
+        var manifest = VersionManifest.load(versionPath);
+        // Collect first, as linking creates temporary files next to the visited ones
+        var files = new LinkedHashMap<String, Path>();
+        Files.walkFileTree(versionPath, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                throws IOException {
+                if (attrs.isRegularFile()) {
+                    var relativePath = ProjectFileIndex.toRelativePath(versionPath, file);
+                    var knownHash = knownHashes.get(file);
+                    if (knownHash != null) {
+                        var lastModified =
+                            Instant.ofEpochMilli(attrs.lastModifiedTime().toMillis());
+                        manifest.put(relativePath,
+                            new VersionManifest.Entry(knownHash, attrs.size(), lastModified));
+                    } else {
+                        manifest.refresh(relativePath, file, attrs);
+                    }
+                    files.put(relativePath, file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        manifest.removeIf(path -> !files.containsKey(path));
+
+        var shared = 0;
+        for (var entry : files.entrySet()) {
+            var relativePath = entry.getKey();
+            var file = entry.getValue();
+            var hash = manifest.get(relativePath).hash();
+            try {
+                if (linkToObject(objectPathOf(objectsPath, hash), file)) {
+                    shared++;
+                }
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                log.warn("Failed to link {} into the content store, files of {} are not "
+                    + "deduplicated", file, versionPath, e);
+                break;
+            }
+            // A linked file takes over the attributes of the object
+            var attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            manifest.put(relativePath, new VersionManifest.Entry(hash, attrs.size(),
+                Instant.ofEpochMilli(attrs.lastModifiedTime().toMillis())));
+        }
+        manifest.save();
+        log.debug("Interned {} files of {}, {} of them shared", files.size(), versionPath,
+            shared);
+        return shared;
+    }
+
+    /**
+     * Check whether the store holds an object with the given content.
+     *
+     * @param versionsPath the versions directory of a project
+     * @param hash the hex encoded SHA-256 hash of the content
+     * @return true if the object exists
+     */
+    public boolean contains(Path versionsPath, String hash) {
+        return Files.isRegularFile(objectPathOf(objectsPathOf(versionsPath), hash));
+    }
+
+    /**
+     * Move a file into the store as the object of its content.
+     * <p>
+     * The file is consumed: it becomes the object, or is deleted if the object already exists.
+     * This method blocks on file system access and must not be called on a
+     * non-blocking thread.
+     *
+     * @param versionsPath the versions directory of a project
+     * @param file a file on the same file system as the versions directory
+     * @return the hex encoded SHA-256 hash of the content
+     * @throws IOException io exception
+     */
+    public String add(Path versionsPath, Path file) throws IOException {
+        var hash = VersionManifest.hash(file);
+        var object = objectPathOf(objectsPathOf(versionsPath), hash);
+        try {
+            if (!Files.exists(object)) {
+                Files.createDirectories(object.getParent());
+                // Unlike a rename, never replaces an object linked by other versions
+                Files.createLink(object, file);
+            }
+        } catch (FileAlreadyExistsException e) {
+            // Stored by a concurrent upload of the same content
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.move(file, object);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        return hash;
+    }
+
+    /**
+     * Build a version from content hashes, linking each file to the object of its content.
+     * <p>
+     * Content missing from the store is copied from the file with the same hash in the
+     * fallback version, e.g. the previously active one, if its files could not be interned.
+     * The manifest of the version is saved with the given hashes, so the files are not hashed
+     * again. This method blocks on file system access and must not be called on a
+     * non-blocking thread.
+     *
+     * @param versionPath the empty directory of the new version
+     * @param files the hash of each file, keyed by the path relative to the version directory
+     * @param fallbackVersionPath the directory of a version to copy missing content from
+     * @return the hashes that were found neither in the store nor in the fallback version
+     * @throws IOException io exception
+     */
+    public Set<String> assemble(Path versionPath, Map<String, String> files,
+        @Nullable Path fallbackVersionPath) throws IOException {
+        var objectsPath = objectsPathOf(versionPath.getParent());
+        var fallbackFiles = new HashMap<String, Path>();
+        if (fallbackVersionPath != null) {
+            VersionManifest.load(fallbackVersionPath).forEach((relativePath, entry) ->
+                fallbackFiles.putIfAbsent(entry.hash(),
+                    fallbackVersionPath.resolve(relativePath)));
+        }
+        var manifest = VersionManifest.load(versionPath);
+        var missing = new LinkedHashSet<String>();
+        for (var entry : files.entrySet()) {
+            var relativePath = entry.getKey();
+            var hash = entry.getValue();
+            var target = versionPath.resolve(relativePath);
+            FileUtils.checkDirectoryTraversal(versionPath, target);
+            Files.createDirectories(target.getParent());
+            if (!checkout(objectPathOf(objectsPath, hash), target)) {
+                var source = fallbackFiles.get(hash);
+                if (source == null || !Files.isRegularFile(source)) {
+                    missing.add(hash);
+                    continue;
+                }
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            var attrs = Files.readAttributes(target, BasicFileAttributes.class);
+            manifest.put(relativePath, new VersionManifest.Entry(hash, attrs.size(),
+                Instant.ofEpochMilli(attrs.lastModifiedTime().toMillis())));
+        }
+        manifest.save();
+        log.debug("Assembled {} files into {}, {} missing", files.size(), versionPath,
+            missing.size());
+        return missing;
+    }
+
+    /**
+     * Keep the objects of a project from being collected until the returned retention is
+     * closed, e.g. while content is stored and not yet linked into a version.
+     * <p>
+     * Waits for a collection in progress to finish, so it must not be called on a non-blocking
+     * thread. The retention may be closed on any thread.
+     *
+     * @param versionsPath the versions directory of a project
+     * @return the retention to close once the stored objects are linked
+     */
+    public Retention retainObjects(Path versionsPath) {
+        var lock = objectLockOf(versionsPath);
+        return new Retention(lock, lock.readLock());
+    }
+
+    /**
+     * Remove objects no version links to any more.
+     * <p>
+     * Nothing is removed while the objects of the project are retained, the next collection
+     * removes them. This method blocks on file system access and must not be called on a
+     * non-blocking thread.
+     *
+     * @param versionsPath the versions directory of a project
+     * @return the number of removed objects
+     */
+    public int collectGarbage(Path versionsPath) {
+        var objectsPath = objectsPathOf(versionsPath);
+        if (!Files.isDirectory(objectsPath)) {
+            return 0;
+        }
+        var lock = objectLockOf(versionsPath);
+        var stamp = lock.tryWriteLock();
+        if (stamp == 0) {
+            log.debug("Objects under {} are retained, skipped collecting them", objectsPath);
+            return 0;
+        }
+        var removed = new int[] {0};
+        try {
+            Files.walkFileTree(objectsPath, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                    throws IOException {
+                    if ((Integer) Files.getAttribute(file, "unix:nlink") <= 1) {
+                        Files.deleteIfExists(file);
+                        removed[0]++;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException e)
+                    throws IOException {
+                    if (!dir.equals(objectsPath)) {
+                        try (var children = Files.list(dir)) {
+                            if (children.findAny().isEmpty()) {
+                                Files.deleteIfExists(dir);
+                            }
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            log.debug("Link counts are not available under {}, objects are kept", objectsPath);
+        } catch (IOException e) {
+            log.warn("Failed to collect unused objects under {}", objectsPath, e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        if (removed[0] > 0) {
+            log.info("Removed {} unused objects under {}", removed[0], objectsPath);
+        }
+        return removed[0];
+    }
+
+    /**
+     * Make the file a hard link of the object, creating the object from the file if it does
+     * not exist yet.
+     *
+     * @return true if the file now shares an existing object; false if it became the object
+     */
+    private static boolean linkToObject(Path object, Path file) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            if (!Files.exists(object)) {
+                Files.createDirectories(object.getParent());
+                try {
+                    Files.createLink(object, file);
+                    return false;
+                } catch (FileAlreadyExistsException e) {
+                    // Created by a concurrent upload of the same content
+                }
+            }
+            if (Files.isSameFile(object, file)) {
+                return true;
+            }
+            var tempFile = file.resolveSibling("." + file.getFileName() + ".link");
+            try {
+                Files.deleteIfExists(tempFile);
+                Files.createLink(tempFile, object);
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+                return true;
+            } catch (NoSuchFileException e) {
+                // Collected in the meantime, create it again from the file
+                if (attempt > 0) {
+                    throw e;
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Link the target to the object, replacing an existing file.
+     *
+     * @return false if the object does not exist
+     */
+    private static boolean checkout(Path object, Path target) throws IOException {
+        if (!Files.isRegularFile(object)) {
+            return false;
+        }
+        Files.deleteIfExists(target);
+        try {
+            FileUtils.linkOrCopy(object, target);
+            return true;
+        } catch (NoSuchFileException e) {
+            // Collected in the meantime
+            return false;
+        }
+    }
+
+    private StampedLock objectLockOf(Path versionsPath) {
+        var hash = versionsPath.toAbsolutePath().normalize().hashCode();
+        return objectLocks[Math.floorMod(hash, LOCK_STRIPES)];
+    }
+
+    static Path objectsPathOf(Path versionsPath) {
+        return versionsPath.resolve(OBJECTS_DIR);
+    }
+
+    static Path objectPathOf(Path objectsPath, String hash) {
+        return objectsPath.resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+    }
+
+    /**
+     * Objects of a project retained by {@link #retainObjects(Path)}.
+     */
+    public static final class Retention implements AutoCloseable {
+
+        private final StampedLock lock;
+
+        private final long stamp;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Retention(StampedLock lock, long stamp) {
+            this.lock = lock;
+            this.stamp = stamp;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package cc.ryanc.staticpages.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.concurrent.ExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Size-bounded in-memory cache of small, frequently requested files of the active versions.
+ * <p>
+ * File contents are held in read-only direct {@link ByteBuffer}s so they stay off the heap and
+ * can be handed to the response without copying. Entries are keyed by the version they were
+ * read from and all entries of a project are dropped when another version is activated, so a
+ * response never mixes files of two versions.
+ */
+@Slf4j
+@Component
+public class HotFileCache {
+
+    /**
+     * Approximate per-entry overhead, also the weight of entries for files too large to cache.
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final Cache<Key, CachedFile> files;
+
+    private final long maxFileSize;
+
+    public HotFileCache(
+        @Value("${static-pages.hot-file-cache.max-bytes:67108864}") long maxBytes,
+        @Value("${static-pages.hot-file-cache.max-file-size:524288}") long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+        this.files = CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((Key key, CachedFile file) -> (int) Math.min(Integer.MAX_VALUE,
+                ENTRY_OVERHEAD + (file.content() == null ? 0 : file.size())))
+            .build();
+        log.info("HotFileCache initialized with {} bytes capacity and {} bytes max file size",
+            maxBytes, maxFileSize);
+    }
+
+    public boolean isEnabled() {
+        return maxFileSize > 0;
+    }
+
+    /**
+     * Get a file of the snapshot from the cache, reading it on a miss.
+     *
+     * @param snapshot the snapshot of the active version
+     * @param relativePath the path of the file relative to the snapshot root
+     * @return the cached file, or empty if the file is too large to be cached or cannot be read
+     */
+    public Mono<CachedFile> get(ProjectFileIndex.Snapshot snapshot, String relativePath) {
+        var key = new Key(snapshot.getProjectName(), snapshot.getVersionName(), relativePath);
+        var cached = files.getIfPresent(key);
+        if (cached != null) {
+            return cached.content() == null ? Mono.empty() : Mono.just(cached);
+        }
+        return Mono.fromCallable(() -> {
+                try {
+                    return files.get(key, () -> load(snapshot.getRoot(), relativePath));
+                } catch (ExecutionException | UncheckedExecutionException e) {
+                    log.debug("Failed to cache file {} of project {}", relativePath,
+                        snapshot.getProjectName(), e.getCause());
+                    return CachedFile.UNCACHEABLE;
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .filter(file -> file.content() != null);
+    }
+
+    /**
+     * Drop a single file of the project, e.g. after it was changed by the editor.
+     *
+     * @param projectName the project name
+     * @param relativePath the path relative to the project's active version, or a directory
+     * whose files should all be dropped
+     */
+    public void evict(String projectName, String relativePath) {
+        var directoryPrefix = relativePath + "/";
+        files.asMap().keySet().removeIf(key -> key.projectName().equals(projectName)
+            && (key.path().equals(relativePath) || key.path().startsWith(directoryPrefix)));
+    }
+
+    /**
+     * Drop all files of the project.
+     *
+     * @param projectName the project name
+     */
+    public void invalidate(String projectName) {
+        files.asMap().keySet().removeIf(key -> key.projectName().equals(projectName));
+    }
+
+    public long size() {
+        return files.size();
+    }
+
+    private CachedFile load(Path root, String relativePath) throws IOException {
+        var path = root.resolve(relativePath);
+        var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        if (!attributes.isRegularFile() || attributes.size() > maxFileSize) {
+            return CachedFile.UNCACHEABLE;
+        }
+        var content = ByteBuffer.allocateDirect((int) attributes.size());
+        try (var channel = FileChannel.open(path)) {
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // Read until the buffer is full or the file ends
+            }
+        }
+        content.flip();
+        return new CachedFile(content.asReadOnlyBuffer(),
+            attributes.lastModifiedTime().toInstant());
+    }
+
+    /**
+     * A cached file.
+     *
+     * @param content read-only file content, {@code null} for files that are not cached
+     * @param lastModified the last modified time of the file
+     */
+    public record CachedFile(ByteBuffer content, Instant lastModified) {
+        static final CachedFile UNCACHEABLE = new CachedFile(null, Instant.EPOCH);
+
+        public int size() {
+            return content.remaining();
+        }
+
+        /**
+         * Get an independent view of the content, safe to be consumed by one response.
+         */
+        public ByteBuffer contentView() {
+            return content.duplicate();
+        }
+    }
+
+    private record Key(String projectName, String versionName, String path) {
+    }
+}
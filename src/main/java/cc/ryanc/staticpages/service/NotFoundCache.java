@@ -0,0 +1,133 @@
+package cc.ryanc.staticpages.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of request paths under project roots for which no file and no rewrite resolves.
+ * <p>
+ * Scanners hammer the same nonexistent URLs over and over, so known misses are short-circuited
+ * instead of walking every rewrite candidate again. Entries are stamped with a per-project
+ * generation which is bumped whenever the rules or the files of the project change, so a stale
+ * entry is never trusted after a new version is activated.
+ * <p>
+ * Lookups are counted by the {@code staticpages.notfound.lookups} counter, tagged with whether
+ * they hit a known miss, and the number of entries is published as
+ * {@code staticpages.notfound.size}.
+ */
+@Slf4j
+@Component
+public class NotFoundCache implements DisposableBean {
+
+    private final Cache<Key, Long> misses;
+
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Source of generations, shared by all projects so a generation is never reused, not even
+     * by a project recreated under the name of a deleted one.
+     */
+    private final AtomicLong lastGeneration = new AtomicLong();
+
+    private final Counter hitCounter;
+
+    private final Counter missCounter;
+
+    private final List<Meter> meters;
+
+    public NotFoundCache(@Value("${static-pages.not-found-cache.max-size:10000}") long maxSize) {
+        this.misses = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+        // Spring Boot adds the application registry to the global one
+        var meterRegistry = Metrics.globalRegistry;
+        this.hitCounter = lookupCounter("hit").register(meterRegistry);
+        this.missCounter = lookupCounter("miss").register(meterRegistry);
+        var sizeGauge = Gauge.builder("staticpages.notfound.size", misses, Cache::size)
+            .description("Number of request paths known to resolve to no file")
+            .register(meterRegistry);
+        this.meters = List.of(hitCounter, missCounter, sizeGauge);
+        log.info("NotFoundCache initialized with max size {}", maxSize);
+    }
+
+    /**
+     * Check whether the given path is a known miss of the project.
+     *
+     * @param projectName the project name
+     * @param path the request path
+     * @return true if no rewrite resolved the path since the project last changed
+     */
+    public boolean isKnownMiss(String projectName, String path) {
+        var generation = misses.getIfPresent(new Key(projectName, path));
+        if (generation != null && generation == generationOf(projectName)) {
+            hitCounter.increment();
+            return true;
+        }
+        missCounter.increment();
+        return false;
+    }
+
+    /**
+     * Remember that no rewrite resolves the given path.
+     *
+     * @param projectName the project name
+     * @param path the request path
+     * @param generation the generation obtained by {@link #generationOf(String)} before the
+     * path was resolved, so a change that raced with the resolution is not masked
+     */
+    public void recordMiss(String projectName, String path, long generation) {
+        misses.put(new Key(projectName, path), generation);
+    }
+
+    /**
+     * Forget all misses of the given project.
+     * Should be called whenever the rules or the files of the project change.
+     *
+     * @param projectName the project name
+     */
+    public void invalidate(String projectName) {
+        generations.put(projectName, lastGeneration.incrementAndGet());
+    }
+
+    public long generationOf(String projectName) {
+        return generations.getOrDefault(projectName, 0L);
+    }
+
+    /**
+     * Forget a deleted project and all of its misses.
+     *
+     * @param projectName the project name
+     */
+    public void remove(String projectName) {
+        generations.remove(projectName);
+        misses.asMap().keySet().removeIf(key -> key.projectName().equals(projectName));
+    }
+
+    @Override
+    public void destroy() {
+        meters.forEach(Metrics.globalRegistry::remove);
+    }
+
+    private static Counter.Builder lookupCounter(String result) {
+        return Counter.builder("staticpages.notfound.lookups")
+            .description("Number of lookups of request paths in the not found cache")
+            .tag("result", result);
+    }
+
+    private record Key(String projectName, String path) {
+    }
+}
@@ -1,9 +1,13 @@
 package cc.ryanc.staticpages.service;
 
 import cc.ryanc.staticpages.extensions.Project;
+import cc.ryanc.staticpages.model.DeployContext;
 import cc.ryanc.staticpages.model.ProjectFile;
 import cc.ryanc.staticpages.model.UploadContext;
+import cc.ryanc.staticpages.model.UploadSession;
 import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -11,6 +15,48 @@ public interface PageProjectService {
 
     Mono<Path> upload(UploadContext uploadContext);
 
+    /**
+     * Start a resumable upload whose chunks are spooled under the project directory.
+     *
+     * @param projectName the project name
+     * @param filename the name of the uploaded file
+     * @param size the size of the uploaded file in bytes
+     * @param unzip whether the file is an archive to extract
+     * @param dir the directory to upload to, relative to the new version
+     * @return the new upload session
+     */
+    Mono<UploadSession> createUploadSession(String projectName, String filename, long size,
+        boolean unzip, String dir);
+
+    /**
+     * Feed the assembled file of a complete upload session into {@link #upload(UploadContext)}
+     * and remove the session once the new version is active.
+     *
+     * @param projectName the project name
+     * @param sessionId the upload session id
+     * @return the path the file was uploaded to
+     */
+    Mono<Path> commitUploadSession(String projectName, String sessionId);
+
+    /**
+     * Find the content of a deployment that is not on the server yet, neither in the active
+     * version nor in the content store of the project.
+     *
+     * @param projectName the project name
+     * @param files the SHA-256 hash of each file, keyed by the path relative to the site root
+     * @return the hashes whose content must be uploaded with {@link #deploy(DeployContext)}
+     */
+    Mono<Set<String>> findMissingContent(String projectName, Map<String, String> files);
+
+    /**
+     * Create and activate a new version from the manifest of a deployment, reusing the content
+     * already on the server and storing the uploaded content.
+     *
+     * @param deployContext the deployment
+     * @return the path of the new version
+     */
+    Mono<Path> deploy(DeployContext deployContext);
+
     Flux<ProjectFile> listFiles(String projectName, String directoryPath);
 
     Mono<Boolean> deleteFile(String projectName, String path);
@@ -23,5 +69,14 @@ public interface PageProjectService {
 
     Mono<Void> deleteProject(Project project);
 
+    /**
+     * Rebuild the file index of the given project from its active version, or from the project
+     * root if it has no active version.
+     *
+     * @param project the project
+     * @return empty mono when the index is rebuilt
+     */
+    Mono<Void> rebuildFileIndex(Project project);
+
     Path determinePath(String directory);
 }
@@ -0,0 +1,298 @@
+package cc.ryanc.staticpages.service;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * In-memory index of the files that exist in the active version of each project.
+ * <p>
+ * The index lets the rewrite filter decide the final target of a request before it reaches the
+ * resource handler, instead of waiting for a {@code NoResourceFoundException} per candidate.
+ * A snapshot is rebuilt as a whole when a version is activated and patched in place by editor
+ * operations. Projects without a snapshot are served with the exception-driven fallback.
+ * <p>
+ * Snapshots of a version also carry its {@link VersionManifest}, which is brought up to date
+ * while the version is walked, so the content hash of each file is known before it is served.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProjectFileIndex {
+    /**
+     * Directory holding all versions of a project, skipped when a project root is indexed.
+     */
+    private static final String VERSIONS_DIR = "versions";
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final NotFoundCache notFoundCache;
+
+    private final HotFileCache hotFileCache;
+
+    /**
+     * Get the current snapshot of the given project.
+     *
+     * @param projectName the project name
+     * @return the snapshot, or {@code null} if the project has not been indexed yet
+     */
+    @Nullable
+    public Snapshot get(String projectName) {
+        return snapshots.get(projectName);
+    }
+
+    /**
+     * Walk the directory of the given version and atomically replace the snapshot of the
+     * project.
+     * <p>
+     * Swapping the snapshot is what activates a version: the serving path reads files of the
+     * version in place, so requests see either the previous version or the new one as a whole.
+     * This method blocks on file system access and must not be called on a non-blocking thread.
+     *
+     * @param projectName the project name
+     * @param projectPath the project root directory
+     * @param versionName the name of the indexed version, or {@code null} if the project root
+     * itself is indexed
+     * @param versionDirectory the directory of the version relative to the project root, or
+     * {@code null} if the project root itself is indexed
+     * @return the new snapshot, or {@code null} if the directory could not be walked, in which
+     * case the current snapshot of the project is kept
+     */
+    @Nullable
+    public Snapshot rebuild(String projectName, Path projectPath, @Nullable String versionName,
+        @Nullable String versionDirectory) {
+        Assert.isTrue((versionName == null) == (versionDirectory == null),
+            "The version name and directory must be given together");
+        var root = versionDirectory == null ? projectPath : projectPath.resolve(versionDirectory);
+        var files = ConcurrentHashMap.<String>newKeySet();
+        var manifest = versionName == null ? null : VersionManifest.load(root);
+        var manifestChanged = new boolean[] {false};
+        if (Files.isDirectory(root)) {
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir,
+                        BasicFileAttributes attrs) {
+                        if (manifest == null && root.equals(dir.getParent())
+                            && VERSIONS_DIR.equals(dir.getFileName().toString())) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile()) {
+                            var relativePath = toRelativePath(root, file);
+                            files.add(relativePath);
+                            if (manifest != null) {
+                                manifestChanged[0] |= refreshManifest(projectName, manifest,
+                                    relativePath, file, attrs);
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                log.warn("Failed to index files of project {} under {}, keeping its current "
+                    + "snapshot", projectName, root, e);
+                return null;
+            }
+        }
+        if (manifest != null) {
+            manifestChanged[0] |= manifest.removeIf(path -> !files.contains(path));
+            if (manifestChanged[0]) {
+                saveManifest(projectName, manifest);
+            }
+        }
+        var snapshot = new Snapshot(projectName, versionName, versionDirectory, root, files,
+            manifest);
+        snapshots.put(projectName, snapshot);
+        notFoundCache.invalidate(projectName);
+        hotFileCache.invalidate(projectName);
+        log.debug("Indexed {} files of project {} under {}", files.size(), projectName, root);
+        return snapshot;
+    }
+
+    /**
+     * Record that a regular file exists at the given path, or that its content changed.
+     *
+     * @param projectName the project name
+     * @param file the absolute path of the file
+     */
+    public void addFile(String projectName, Path file) {
+        var snapshot = snapshots.get(projectName);
+        if (snapshot == null || !file.startsWith(snapshot.getRoot())
+            || !Files.isRegularFile(file)) {
+            return;
+        }
+        var relativePath = toRelativePath(snapshot.getRoot(), file);
+        if (snapshot.files.add(relativePath)) {
+            notFoundCache.invalidate(projectName);
+        }
+        hotFileCache.evict(projectName, relativePath);
+        if (snapshot.manifest == null) {
+            return;
+        }
+        try {
+            var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (refreshManifest(projectName, snapshot.manifest, relativePath, file, attributes)) {
+                saveManifest(projectName, snapshot.manifest);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read attributes of file {} of project {}", file, projectName, e);
+        }
+    }
+
+    /**
+     * Record that the file or directory at the given path no longer exists.
+     *
+     * @param projectName the project name
+     * @param path the absolute path of the deleted file or directory
+     */
+    public void removeFile(String projectName, Path path) {
+        var snapshot = snapshots.get(projectName);
+        if (snapshot == null || !path.startsWith(snapshot.getRoot())) {
+            return;
+        }
+        Predicate<String> removed;
+        if (path.equals(snapshot.getRoot())) {
+            removed = file -> true;
+            hotFileCache.invalidate(projectName);
+        } else {
+            var relativePath = toRelativePath(snapshot.getRoot(), path);
+            var directoryPrefix = relativePath + "/";
+            removed = file -> file.equals(relativePath) || file.startsWith(directoryPrefix);
+            hotFileCache.evict(projectName, relativePath);
+        }
+        snapshot.files.removeIf(removed);
+        notFoundCache.invalidate(projectName);
+        if (snapshot.manifest != null && snapshot.manifest.removeIf(removed)) {
+            saveManifest(projectName, snapshot.manifest);
+        }
+    }
+
+    public void remove(String projectName) {
+        snapshots.remove(projectName);
+        notFoundCache.invalidate(projectName);
+        hotFileCache.invalidate(projectName);
+    }
+
+    private static boolean refreshManifest(String projectName, VersionManifest manifest,
+        String relativePath, Path file, BasicFileAttributes attributes) {
+        try {
+            return manifest.refresh(relativePath, file, attributes);
+        } catch (IOException e) {
+            // Served without an entity tag until the file is hashed successfully
+            log.warn("Failed to hash file {} of project {}", file, projectName, e);
+            return manifest.removeIf(relativePath::equals);
+        }
+    }
+
+    private static void saveManifest(String projectName, VersionManifest manifest) {
+        try {
+            manifest.save();
+        } catch (IOException e) {
+            // Stale entries are detected by size and last modified time on the next rebuild
+            log.warn("Failed to save the manifest of project {}", projectName, e);
+        }
+    }
+
+    static String toRelativePath(Path root, Path file) {
+        var relativePath = root.relativize(file).toString();
+        var separator = file.getFileSystem().getSeparator();
+        return "/".equals(separator) ? relativePath : relativePath.replace(separator, "/");
+    }
+
+    /**
+     * Files of one project at one point in time.
+     */
+    public static final class Snapshot {
+        @Getter
+        private final String projectName;
+
+        @Getter
+        @Nullable
+        private final String versionName;
+
+        /**
+         * The directory of the version relative to the project root, e.g.
+         * {@code versions/version-1}, or {@code null} if the project root itself is indexed.
+         */
+        @Getter
+        @Nullable
+        private final String versionDirectory;
+
+        /**
+         * The directory files are served from.
+         */
+        @Getter
+        private final Path root;
+
+        private final Set<String> files;
+
+        @Nullable
+        private final VersionManifest manifest;
+
+        Snapshot(String projectName, @Nullable String versionName,
+            @Nullable String versionDirectory, Path root, Set<String> files,
+            @Nullable VersionManifest manifest) {
+            this.projectName = projectName;
+            this.versionName = versionName;
+            this.versionDirectory = versionDirectory;
+            this.root = root;
+            this.files = files;
+            this.manifest = manifest;
+        }
+
+        /**
+         * Check whether a regular file exists at the given path.
+         *
+         * @param relativePath the path relative to the root, separated by slashes and without a
+         * leading slash
+         * @return true if the file exists; false otherwise
+         */
+        public boolean exists(String relativePath) {
+            return files.contains(relativePath);
+        }
+
+        /**
+         * Get the manifest entry of a file.
+         *
+         * @param relativePath the path relative to the root
+         * @return the entry, or {@code null} if the file is not hashed, e.g. when the project
+         * root itself is indexed
+         */
+        @Nullable
+        public VersionManifest.Entry getManifestEntry(String relativePath) {
+            return manifest == null ? null : manifest.get(relativePath);
+        }
+
+        /**
+         * Summarize the files of the version from its manifest.
+         *
+         * @return the statistics, or {@code null} if the project root itself is indexed
+         */
+        @Nullable
+        public VersionManifest.Statistics getStatistics() {
+            return manifest == null ? null : manifest.statistics();
+        }
+
+        public int size() {
+            return files.size();
+        }
+    }
+}
@@ -1,15 +1,37 @@
 package cc.ryanc.staticpages.service;
 
+import cc.ryanc.staticpages.model.ProjectLockStatus;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
 
 /**
  * Manages locks for project operations to prevent race conditions during
@@ -24,6 +46,17 @@ import reactor.core.publisher.Mono;
  * - Thread-safe with minimal overhead
  * - Battle-tested in production by Google, Netflix, etc.
  * 
+ * Each lock is a non-blocking read/write lock: exclusive access for activations and
+ * writes, shared access for reads and listings, which run concurrently with each other.
+ * A subscriber that cannot be granted access is queued and resumed, in FIFO order, by the
+ * release of the previous holder, so a waiting writer is not starved by a stream of
+ * readers. No thread ever waits for a lock, so it is safe to subscribe on event loop
+ * threads, and the lock may be released on any thread.
+ * 
+ * Wait time, hold time, queue depth and timeouts of each project lock are published as
+ * Micrometer meters tagged with the project name, registered with the lock and removed when
+ * it is evicted, and {@link #getLockStatuses()} lists the current holders and waiters.
+ * 
  * @author HowieHz
  */
 @Slf4j
@@ -33,7 +66,19 @@ public class ProjectLockManager {
     @Value("${static-pages.lock.retention-time:3600000}") // Default: 1 hour
     private long lockRetentionMillis;
     
-    private final LoadingCache<String, Lock> projectLocks;
+    /**
+     * How long to wait for a lock before failing, zero to wait indefinitely.
+     */
+    @Value("${static-pages.lock.acquire-timeout:0}")
+    private long acquireTimeoutMillis;
+    
+    private final LoadingCache<String, AsyncLock> projectLocks;
+    
+    /**
+     * Spring Boot adds the application registry to the global one, so the meters are
+     * published without depending on a shared bean.
+     */
+    private final MeterRegistry meterRegistry = Metrics.globalRegistry;
     
     /**
      * Constructor that initializes the LoadingCache with automatic eviction.
@@ -44,11 +89,13 @@ public class ProjectLockManager {
         
         this.projectLocks = CacheBuilder.newBuilder()
                 .expireAfterAccess(lockRetentionMillis, TimeUnit.MILLISECONDS)
-                .build(new CacheLoader<String, Lock>() {
+                .removalListener((RemovalListener<String, AsyncLock>) notification ->
+                    notification.getValue().meters.all().forEach(meterRegistry::remove))
+                .build(new CacheLoader<String, AsyncLock>() {
                     @Override
-                    public Lock load(String key) {
+                    public AsyncLock load(String key) {
                         log.debug("Creating new lock for project: {}", key);
-                        return new ReentrantLock();
+                        return createLock(key);
                     }
                 });
         
@@ -62,18 +109,38 @@ public class ProjectLockManager {
      * @param projectName the project name
      * @return the lock for the project
      */
-    private Lock getLock(String projectName) {
+    private AsyncLock getLock(String projectName) {
         try {
             return projectLocks.get(projectName);
         } catch (Exception e) {
             log.error("Failed to get lock for project: {}", projectName, e);
             // Fallback to creating a new lock directly
-            return new ReentrantLock();
+            return new AsyncLock();
         }
     }
     
+    private AsyncLock createLock(String projectName) {
+        var lock = new AsyncLock();
+        var queueGauge = Gauge.builder("staticpages.lock.queue", lock, AsyncLock::queueLength)
+                .description("Number of operations waiting for the project lock")
+                .tag("project", projectName)
+                .register(meterRegistry);
+        lock.meters = new LockMeters(queueGauge,
+                timer("staticpages.lock.wait", projectName, true),
+                timer("staticpages.lock.wait", projectName, false),
+                timer("staticpages.lock.hold", projectName, true),
+                timer("staticpages.lock.hold", projectName, false),
+                timeoutCounter(projectName, true),
+                timeoutCounter(projectName, false));
+        return lock;
+    }
+    
     /**
-     * Execute a Mono operation with project lock protection.
+     * Execute a Mono operation with exclusive project lock protection.
+     * 
+     * The operation is subscribed once the lock is acquired, and the lock is released when
+     * the operation terminates or is cancelled. Waiting for the lock does not block the
+     * subscribing thread.
      * 
      * @param projectName the project name to lock
      * @param operation the operation to execute
@@ -81,23 +148,112 @@ public class ProjectLockManager {
      * @return Mono that executes the operation with lock protection
      */
     public <T> Mono<T> withLock(String projectName, Mono<T> operation) {
-        return Mono.defer(() -> {
-            Lock lock = getLock(projectName);
-            log.debug("Acquiring lock for project: {}", projectName);
-            lock.lock();
-            log.debug("Lock acquired for project: {}", projectName);
-            
-            return operation
-                .doFinally(signalType -> {
-                    log.debug("Releasing lock for project: {} (signal: {})", projectName, signalType);
-                    lock.unlock();
-                    log.debug("Lock released for project: {}", projectName);
-                });
+        return withLock(projectName, Duration.ofMillis(acquireTimeoutMillis), operation);
+    }
+    
+    /**
+     * Execute a Mono operation with exclusive project lock protection, failing with
+     * {@link HttpStatus#CONFLICT} if the lock is not acquired within the timeout.
+     * 
+     * @param projectName the project name to lock
+     * @param timeout how long to wait for the lock, zero to wait indefinitely
+     * @param operation the operation to execute
+     * @param <T> the type of result
+     * @return Mono that executes the operation with lock protection
+     */
+    public <T> Mono<T> withLock(String projectName, Duration timeout, Mono<T> operation) {
+        return Mono.defer(() -> Mono.usingWhen(acquire(projectName, false, timeout),
+            permit -> operation, this::release));
+    }
+    
+    /**
+     * Execute a Mono operation with shared project lock protection: it runs concurrently
+     * with other shared operations but never with an exclusive one.
+     * 
+     * @param projectName the project name to lock
+     * @param operation the operation to execute
+     * @param <T> the type of result
+     * @return Mono that executes the operation with lock protection
+     */
+    public <T> Mono<T> withSharedLock(String projectName, Mono<T> operation) {
+        return Mono.defer(() -> Mono.usingWhen(
+            acquire(projectName, true, Duration.ofMillis(acquireTimeoutMillis)),
+            permit -> operation, this::release));
+    }
+    
+    /**
+     * Execute a Flux operation with shared project lock protection, held until the Flux
+     * terminates or is cancelled.
+     * 
+     * @param projectName the project name to lock
+     * @param operation the operation to execute
+     * @param <T> the type of elements
+     * @return Flux that executes the operation with lock protection
+     */
+    public <T> Flux<T> withSharedLock(String projectName, Flux<T> operation) {
+        return Flux.defer(() -> Flux.usingWhen(
+            acquire(projectName, true, Duration.ofMillis(acquireTimeoutMillis)),
+            permit -> operation, this::release));
+    }
+    
+    private Mono<Permit> acquire(String projectName, boolean shared, Duration timeout) {
+        var lock = getLock(projectName);
+        log.debug("Acquiring {} lock for project: {}", mode(shared), projectName);
+        var start = System.nanoTime();
+        var permit = lock.acquire(projectName, shared)
+            .doOnNext(p -> {
+                log.debug("Lock acquired for project: {}", projectName);
+                if (lock.meters != null) {
+                    lock.meters.waitTimer(shared)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        if (timeout.isPositive()) {
+            permit = permit.timeout(timeout, Mono.error(() -> {
+                if (lock.meters != null) {
+                    lock.meters.timeoutCounter(shared).increment();
+                }
+                return new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Timed out waiting for the lock of project " + projectName);
+            }));
+        }
+        return permit;
+    }
+    
+    private Mono<Void> release(Permit permit) {
+        return Mono.fromRunnable(() -> {
+            if (permit.release()) {
+                log.debug("Lock released for project: {}", permit.projectName);
+                var meters = permit.lock.meters;
+                if (meters != null) {
+                    meters.holdTimer(permit.shared)
+                        .record(System.nanoTime() - permit.grantedNanos, TimeUnit.NANOSECONDS);
+                }
+            }
         });
     }
     
+    private Timer timer(String name, String projectName, boolean shared) {
+        return Timer.builder(name)
+            .tag("project", projectName)
+            .tag("mode", mode(shared))
+            .register(meterRegistry);
+    }
+    
+    private Counter timeoutCounter(String projectName, boolean shared) {
+        return Counter.builder("staticpages.lock.timeouts")
+            .description("Number of operations that timed out waiting for the lock")
+            .tag("project", projectName)
+            .tag("mode", mode(shared))
+            .register(meterRegistry);
+    }
+    
+    private static String mode(boolean shared) {
+        return shared ? "shared" : "exclusive";
+    }
+    
     /**
-     * Remove lock for a project (cleanup).
+     * Remove lock for a project (cleanup), along with its meters.
      * Should only be called when project is deleted.
      * 
      * @param projectName the project name
@@ -116,4 +272,240 @@ public class ProjectLockManager {
     public int getActiveLockCount() {
         return (int) projectLocks.size();
     }
+    
+    /**
+     * List the holders and waiters of every project lock that is in use.
+     * 
+     * @return the status of each held project lock, by project name
+     */
+    public List<ProjectLockStatus> getLockStatuses() {
+        var now = Instant.now();
+        var statuses = new ArrayList<ProjectLockStatus>();
+        projectLocks.asMap().forEach((projectName, lock) -> {
+            var status = lock.status(projectName, now);
+            if (!status.getHolders().isEmpty() || !status.getWaiters().isEmpty()) {
+                statuses.add(status);
+            }
+        });
+        statuses.sort(Comparator.comparing(ProjectLockStatus::getProjectName));
+        return statuses;
+    }
+    
+    /**
+     * A non-blocking read/write lock handing out permits to queued subscribers in FIFO order.
+     */
+    static final class AsyncLock {
+        
+        private final Queue<Waiter> waiters = new ArrayDeque<>();
+        
+        private int readers;
+        
+        private boolean writer;
+        
+        private final Set<Permit> holders = new LinkedHashSet<>();
+        
+        /**
+         * Meters of the lock, {@code null} if the lock could not be cached.
+         */
+        private LockMeters meters;
+        
+        /**
+         * Granted waiters whose subscribers are still to be resumed. Resuming them in a
+         * drain loop keeps the stack flat when operations complete synchronously.
+         */
+        private final Queue<Waiter> grants = new ConcurrentLinkedQueue<>();
+        
+        private final AtomicInteger wip = new AtomicInteger();
+        
+        /**
+         * Acquire the lock.
+         * 
+         * @param shared whether to acquire shared rather than exclusive access
+         * @return Mono emitting the permit once the lock is acquired; cancelling it gives up
+         * the place in the queue, or passes the lock on if it was granted meanwhile
+         */
+        Mono<Permit> acquire(String projectName, boolean shared) {
+            return Mono.create(sink -> {
+                var waiter = new Waiter(sink, projectName, shared);
+                sink.onCancel(() -> cancel(waiter));
+                synchronized (this) {
+                    if (waiter.cancelled) {
+                        return;
+                    }
+                    waiters.add(waiter);
+                }
+                grantWaiters();
+            });
+        }
+        
+        private void release(Permit permit) {
+            synchronized (this) {
+                holders.remove(permit);
+                if (permit.shared) {
+                    readers--;
+                } else {
+                    writer = false;
+                }
+            }
+            grantWaiters();
+        }
+        
+        synchronized int queueLength() {
+            return waiters.size();
+        }
+        
+        synchronized ProjectLockStatus status(String projectName, Instant now) {
+            return ProjectLockStatus.builder()
+                .projectName(projectName)
+                .holders(holders.stream()
+                    .map(permit -> entry(permit.shared, permit.grantedTime, now))
+                    .toList())
+                .waiters(waiters.stream()
+                    .map(waiter -> entry(waiter.shared, waiter.queuedTime, now))
+                    .toList())
+                .build();
+        }
+        
+        private static ProjectLockStatus.Entry entry(boolean shared, Instant since,
+            Instant now) {
+            return new ProjectLockStatus.Entry(mode(shared), since,
+                Duration.between(since, now).toMillis());
+        }
+        
+        private void cancel(Waiter waiter) {
+            boolean granted;
+            synchronized (this) {
+                granted = waiter.granted;
+                if (!granted) {
+                    waiter.cancelled = true;
+                    waiters.remove(waiter);
+                }
+            }
+            if (granted) {
+                // Granted but not delivered, as a sink is either cancelled or succeeds
+                waiter.permit.release();
+            } else {
+                // Shared waiters may have been queued behind this one
+                grantWaiters();
+            }
+        }
+        
+        /**
+         * Grant the lock to the waiters at the head of the queue that are compatible with
+         * the current holders.
+         */
+        private void grantWaiters() {
+            var granted = new ArrayList<Waiter>();
+            synchronized (this) {
+                Waiter next;
+                while (!writer && (next = waiters.peek()) != null) {
+                    if (next.shared) {
+                        readers++;
+                    } else if (readers == 0) {
+                        writer = true;
+                    } else {
+                        break;
+                    }
+                    waiters.poll();
+                    next.granted = true;
+                    next.permit.grantedNanos = System.nanoTime();
+                    next.permit.grantedTime = Instant.now();
+                    holders.add(next.permit);
+                    granted.add(next);
+                }
+            }
+            if (granted.isEmpty()) {
+                return;
+            }
+            grants.addAll(granted);
+            if (wip.getAndAdd(granted.size()) != 0) {
+                return;
+            }
+            var missed = granted.size();
+            do {
+                for (int i = 0; i < missed; i++) {
+                    var waiter = grants.poll();
+                    waiter.sink.success(waiter.permit);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+        
+        private final class Waiter {
+            private final MonoSink<Permit> sink;
+            private final boolean shared;
+            private final Permit permit;
+            private final Instant queuedTime = Instant.now();
+            private boolean granted;
+            private boolean cancelled;
+            
+            private Waiter(MonoSink<Permit> sink, String projectName, boolean shared) {
+                this.sink = sink;
+                this.shared = shared;
+                this.permit = new Permit(AsyncLock.this, projectName, shared);
+            }
+        }
+    }
+    
+    /**
+     * Meters of a project lock, by mode.
+     */
+    private record LockMeters(Gauge queueGauge, Timer sharedWaitTimer, Timer exclusiveWaitTimer,
+        Timer sharedHoldTimer, Timer exclusiveHoldTimer, Counter sharedTimeoutCounter,
+        Counter exclusiveTimeoutCounter) {
+        
+        Timer waitTimer(boolean shared) {
+            return shared ? sharedWaitTimer : exclusiveWaitTimer;
+        }
+        
+        Timer holdTimer(boolean shared) {
+            return shared ? sharedHoldTimer : exclusiveHoldTimer;
+        }
+        
+        Counter timeoutCounter(boolean shared) {
+            return shared ? sharedTimeoutCounter : exclusiveTimeoutCounter;
+        }
+        
+        List<Meter> all() {
+            return List.of(queueGauge, sharedWaitTimer, exclusiveWaitTimer, sharedHoldTimer,
+                exclusiveHoldTimer, sharedTimeoutCounter, exclusiveTimeoutCounter);
+        }
+    }
+    
+    /**
+     * The right to hold an {@link AsyncLock} until released; releasing twice has no effect.
+     */
+    static final class Permit {
+        
+        private final AsyncLock lock;
+        
+        private final String projectName;
+        
+        private final boolean shared;
+        
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        private volatile long grantedNanos;
+        
+        private volatile Instant grantedTime;
+        
+        private Permit(AsyncLock lock, String projectName, boolean shared) {
+            this.lock = lock;
+            this.projectName = projectName;
+            this.shared = shared;
+        }
+        
+        /**
+         * Release the lock.
+         * 
+         * @return true if this call released it; false if it was already released
+         */
+        boolean release() {
+            if (released.compareAndSet(false, true)) {
+                lock.release(this);
+                return true;
+            }
+            return false;
+        }
+    }
 }
@@ -0,0 +1,225 @@
+package cc.ryanc.staticpages.service;
+
+import java.util.List;
+import lombok.Getter;
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.util.pattern.PathPattern;
+
+/**
+ * Immutable, precompiled rewrite rules and cache policies of a single project.
+ * <p>
+ * Instances are built by {@link ProjectRewriteRules} only when the rules of a project change, so
+ * they can be shared by all request threads without copying.
+ */
+@Getter
+public final class ProjectRewriteMatcher {
+    /**
+     * Cache-Control of fingerprinted files, which never change under the same URL.
+     */
+    static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final int MIN_HEX_HASH_LENGTH = 6;
+
+    private static final int MIN_HASH_LENGTH = 8;
+
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final String projectName;
+
+    /**
+     * Root path of the project with a leading slash and without a trailing slash, e.g.
+     * {@code /foo}.
+     */
+    private final String rootPath;
+
+    /**
+     * Number of path elements of {@link #rootPath}, used to strip the root from request paths.
+     */
+    private final int rootElementCount;
+
+    /**
+     * Rewrite rules of the project, ordered from the most specific source pattern to the least.
+     */
+    private final List<Rule> rules;
+
+    /**
+     * Cache policies of the project, in the order they were declared.
+     */
+    private final List<CachePolicy> cachePolicies;
+
+    /**
+     * Whether files with a content hash in their name are cached as immutable.
+     */
+    private final boolean immutableHashedFiles;
+
+    ProjectRewriteMatcher(String projectName, String rootPath, List<Rule> rules,
+        List<CachePolicy> cachePolicies, boolean immutableHashedFiles) {
+        this.projectName = projectName;
+        this.rootPath = rootPath;
+        this.rootElementCount = PathContainer.parsePath(rootPath).elements().size();
+        this.rules = rules.stream()
+            .sorted((a, b) -> PathPattern.SPECIFICITY_COMPARATOR.compare(a.source(), b.source()))
+            .toList();
+        this.cachePolicies = List.copyOf(cachePolicies);
+        this.immutableHashedFiles = immutableHashedFiles;
+    }
+
+    /**
+     * Find the target of the first rule at or after {@code fromIndex} whose source matches the
+     * given path.
+     *
+     * @param path the normalized request path
+     * @param fromIndex the rule index to start from
+     * @return the index of the matched rule, or {@code -1} if no further rule matches
+     */
+    public int indexOfMatch(PathContainer path, int fromIndex) {
+        for (int i = fromIndex; i < rules.size(); i++) {
+            if (rules.get(i).source().matches(path)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check whether a rule is tried before the implicit {@code {path}/index.html} rewrite of a
+     * path it matches.
+     * <p>
+     * The source of the implicit rewrite is the path itself, a literal pattern, so by
+     * {@link PathPattern#SPECIFICITY_COMPARATOR} only literal sources with a longer pattern rank
+     * before it, e.g. {@code /foo/docs/} for {@code /foo/docs}. It is not parsed, as request
+     * paths may contain pattern syntax.
+     *
+     * @param index the index of a rule matching the path
+     * @param path the normalized request path
+     * @return true if the rule ranks before the implicit rewrite
+     */
+    public boolean precedesIndexHtml(int index, PathContainer path) {
+        var source = rules.get(index).source();
+        return !source.hasPatternSyntax()
+            && source.getPatternString().length() > path.value().length();
+    }
+
+    @Nullable
+    public String targetAt(int index) {
+        return index < 0 ? null : rules.get(index).target();
+    }
+
+    @Nullable
+    public String relativeTargetAt(int index) {
+        return index < 0 ? null : rules.get(index).relativeTarget();
+    }
+
+    /**
+     * Get the {@code Cache-Control} header value for a served file.
+     * <p>
+     * The first declared policy whose pattern matches wins. Otherwise files with a content hash
+     * in their name are immutable if enabled, as their URL changes whenever their content does.
+     *
+     * @param relativeFile the served file relative to the project root, without a leading slash
+     * @return the header value, or {@code null} to keep the default of the response
+     */
+    @Nullable
+    public String cacheControlOf(String relativeFile) {
+        if (!cachePolicies.isEmpty()) {
+            var path = "/" + relativeFile;
+            for (CachePolicy policy : cachePolicies) {
+                if (PATH_MATCHER.match(policy.pattern(), path)) {
+                    return policy.cacheControl();
+                }
+            }
+        }
+        if (immutableHashedFiles && isHashedFileName(relativeFile)) {
+            return IMMUTABLE;
+        }
+        return null;
+    }
+
+    /**
+     * Check whether the file name carries a content hash as its last dot or dash separated part
+     * before the extension, e.g. {@code app.3f9a1c.js} or {@code index-4f2c81ab.css}.
+     * <p>
+     * A hash must mix digits with at least two letters, so names like {@code my-component.js},
+     * {@code report-2024.pdf} or {@code banner-1920x1080.jpg} are not mistaken for
+     * fingerprinted files.
+     *
+     * @param relativeFile the file path, only its last segment is checked
+     * @return true if the file name is fingerprinted; false otherwise
+     */
+    static boolean isHashedFileName(String relativeFile) {
+        var fileName = relativeFile.substring(relativeFile.lastIndexOf('/') + 1);
+        var extensionIndex = fileName.lastIndexOf('.');
+        if (extensionIndex <= 0) {
+            return false;
+        }
+        var baseName = fileName.substring(0, extensionIndex);
+        var separatorIndex = Math.max(baseName.lastIndexOf('.'), baseName.lastIndexOf('-'));
+        if (separatorIndex <= 0) {
+            return false;
+        }
+        var token = baseName.substring(separatorIndex + 1);
+        var hex = true;
+        var hasDigit = false;
+        var letters = 0;
+        for (int i = 0; i < token.length(); i++) {
+            var c = token.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (c >= 'a' && c <= 'f') {
+                letters++;
+            } else if (c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c == '_') {
+                letters++;
+                hex = false;
+            } else {
+                return false;
+            }
+        }
+        var minLength = hex ? MIN_HEX_HASH_LENGTH : MIN_HASH_LENGTH;
+        return token.length() >= minLength && hasDigit && letters >= 2;
+    }
+
+    /**
+     * Get the decoded path of a request relative to the project root, without leading or
+     * trailing slashes, e.g. {@code docs/guide} for {@code /foo/docs/guide/}.
+     *
+     * @param path the request path within the application
+     * @return the relative path, or an empty string for the project root itself
+     */
+    public String relativePathOf(PathContainer path) {
+        var elements = path.elements();
+        var relativePath = new StringBuilder();
+        for (int i = rootElementCount; i < elements.size(); i++) {
+            if (!(elements.get(i) instanceof PathContainer.PathSegment segment)
+                || segment.valueToMatch().isEmpty()) {
+                continue;
+            }
+            if (!relativePath.isEmpty()) {
+                relativePath.append('/');
+            }
+            relativePath.append(segment.valueToMatch());
+        }
+        return relativePath.toString();
+    }
+
+    /**
+     * A compiled rewrite rule.
+     *
+     * @param source the source pattern, including the project root
+     * @param target the target path, including the project root
+     * @param relativeTarget the target path relative to the project root, without a leading
+     * slash
+     */
+    public record Rule(PathPattern source, String target, String relativeTarget) {
+    }
+
+    /**
+     * A cache policy.
+     *
+     * @param pattern the Ant-style pattern relative to the project root, with a leading slash
+     * @param cacheControl the {@code Cache-Control} header value
+     */
+    public record CachePolicy(String pattern, String cacheControl) {
+    }
+}
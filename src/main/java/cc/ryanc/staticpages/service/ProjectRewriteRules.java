@@ -2,26 +2,45 @@ package cc.ryanc.staticpages.service;
 
 import cc.ryanc.staticpages.extensions.Project;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-import lombok.Builder;
-import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
-import org.springframework.web.util.pattern.PathPattern;
 import org.springframework.web.util.pattern.PathPatternParser;
 import run.halo.app.infra.utils.PathUtils;
 
+/**
+ * Holds the precompiled rewrite rules and cache policies of all projects.
+ * <p>
+ * Rules are compiled into an immutable {@link ProjectRewriteMatcher} per project whenever
+ * {@link #updateRules(Project)} or {@link #removeRules(Project)} runs, and published with
+ * copy-on-write, so the request path only does a lookup and never rebuilds anything. Project
+ * roots are indexed by a {@link ProjectRootTrie} so the owning project of a request is resolved
+ * in O(path depth) without allocation.
+ */
 @Component
+@RequiredArgsConstructor
 public class ProjectRewriteRules {
-    private final Map<SimpleProject, List<PathPattern>> projectPatterns = new ConcurrentHashMap<>();
-    @Getter
-    private final Map<PathPattern, String> rewriteRules = new ConcurrentHashMap<>();
     private final PathPatternParser patternParser = PathPatternParser.defaultInstance;
 
+    private final NotFoundCache notFoundCache;
+
+    /**
+     * Project name to root path, used to find the matcher to drop when a project changes.
+     */
+    private final Map<String, String> projectRootPaths = new HashMap<>();
+
+    /**
+     * Root path to matcher, replaced as a whole on every change.
+     */
+    private volatile Map<String, ProjectRewriteMatcher> matchers = Map.of();
+
+    private volatile ProjectRootTrie rootTrie = ProjectRootTrie.EMPTY;
+
     private static List<Project.Rewrite> getRulesWithDefault(Project project) {
         var rules = new ArrayList<Project.Rewrite>();
         if (project.getSpec().getRewrites() != null) {
@@ -39,79 +58,94 @@ public class ProjectRewriteRules {
         return rules;
     }
 
-    public void updateRules(Project project) {
-        var rules = getRulesWithDefault(project);
+    private static List<ProjectRewriteMatcher.CachePolicy> getCachePolicies(Project project) {
+        var cachePolicies = project.getSpec().getCachePolicies();
+        if (cachePolicies == null) {
+            return List.of();
+        }
+        var policies = new ArrayList<ProjectRewriteMatcher.CachePolicy>(cachePolicies.size());
+        for (Project.CachePolicy policy : cachePolicies) {
+            if (StringUtils.isAnyBlank(policy.getPattern(), policy.getCacheControl())) {
+                continue;
+            }
+            var pattern = StringUtils.prependIfMissing(policy.getPattern().trim(), "/");
+            policies.add(new ProjectRewriteMatcher.CachePolicy(pattern,
+                policy.getCacheControl().trim()));
+        }
+        return policies;
+    }
 
-        var simpleProject = SimpleProject.builder()
-            .name(project.getMetadata().getName())
-            .rootPath(project.getSpec().getDirectory())
-            .build();
-        removeRule(simpleProject);
-        for (Project.Rewrite rule : rules) {
-            var source = sourceInProject(project, rule.getSource());
+    public synchronized void updateRules(Project project) {
+        var rootPath = rootPathOf(project);
+        var rules = new ArrayList<ProjectRewriteMatcher.Rule>();
+        for (Project.Rewrite rule : getRulesWithDefault(project)) {
+            var source = patternParser.parse(sourceInProject(project, rule.getSource()));
             var targetPath = sourceInProject(project, rule.getTarget());
-            addRule(simpleProject, source, targetPath);
+            var relativeTarget = StringUtils.removeStart(
+                StringUtils.removeStart(targetPath, rootPath), "/");
+            rules.add(new ProjectRewriteMatcher.Rule(source, targetPath, relativeTarget));
         }
+
+        var projectName = project.getMetadata().getName();
+        var newMatchers = new HashMap<>(matchers);
+        var oldRootPath = projectRootPaths.put(projectName, rootPath);
+        if (oldRootPath != null) {
+            newMatchers.remove(oldRootPath);
+        }
+        var immutableHashedFiles =
+            !Boolean.FALSE.equals(project.getSpec().getImmutableHashedFiles());
+        newMatchers.put(rootPath, new ProjectRewriteMatcher(projectName, rootPath, rules,
+            getCachePolicies(project), immutableHashedFiles));
+        publish(newMatchers);
+        notFoundCache.invalidate(projectName);
     }
 
-    public void removeRules(Project project) {
-        var simpleProject = SimpleProject.builder()
-            .name(project.getMetadata().getName())
-            .rootPath(project.getSpec().getDirectory())
-            .build();
-        removeRule(simpleProject);
+    public synchronized void removeRules(Project project) {
+        var projectName = project.getMetadata().getName();
+        var oldRootPath = projectRootPaths.remove(projectName);
+        if (oldRootPath == null) {
+            return;
+        }
+        var newMatchers = new HashMap<>(matchers);
+        newMatchers.remove(oldRootPath);
+        publish(newMatchers);
+        notFoundCache.invalidate(projectName);
     }
 
-    public Set<String> getProjectRootPaths() {
-        return projectPatterns.keySet()
-            .stream()
-            .map(SimpleProject::rootPath)
-            .collect(Collectors.toSet());
+    private void publish(Map<String, ProjectRewriteMatcher> newMatchers) {
+        var snapshot = Map.copyOf(newMatchers);
+        rootTrie = ProjectRootTrie.of(snapshot);
+        matchers = snapshot;
     }
 
-    void addRule(SimpleProject project, String key, String value) {
-        PathPattern pattern = patternParser.parse(key);
-        projectPatterns.compute(project, (k, v) -> {
-            if (v == null) {
-                v = new ArrayList<>();
-            }
-            v.add(pattern);
-            return v;
-        });
-        rewriteRules.put(pattern, value);
+    /**
+     * Get the matcher of the project mounted at the given root path.
+     *
+     * @param rootPath the project root path, e.g. {@code /foo}
+     * @return the matcher, or {@code null} if no project is mounted there
+     */
+    @Nullable
+    public ProjectRewriteMatcher getMatcher(String rootPath) {
+        return matchers.get(rootPath);
     }
 
-    void removeRule(SimpleProject project) {
-        var patterns = projectPatterns.remove(project);
-        if (patterns == null) {
-            return;
-        }
-        for (PathPattern pattern : patterns) {
-            rewriteRules.remove(pattern);
-        }
+    /**
+     * Find the matcher of the project that owns the given request path.
+     *
+     * @param requestPath the request path within the application
+     * @return the matcher of the project with the longest matching root, or {@code null} if the
+     * path is not under any project root
+     */
+    @Nullable
+    public ProjectRewriteMatcher findMatcher(PathContainer requestPath) {
+        return rootTrie.find(requestPath);
     }
 
     String sourceInProject(Project project, String source) {
         return PathUtils.combinePath(project.getSpec().getDirectory(), source);
     }
 
-    @Builder
-    record SimpleProject(String name, String rootPath) {
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
-            }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
-            }
-            SimpleProject that = (SimpleProject) o;
-            return Objects.equals(name, that.name);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(name);
-        }
+    String rootPathOf(Project project) {
+        return PathUtils.combinePath(project.getSpec().getDirectory());
     }
 }
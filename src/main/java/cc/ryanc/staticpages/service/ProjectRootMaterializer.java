@@ -0,0 +1,167 @@
+package cc.ryanc.staticpages.service;
+
+import cc.ryanc.staticpages.utils.FileUtils;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Keeps the project root in sync with the active version for consumers that read the static
+ * directory directly, e.g. a reverse proxy serving it from disk.
+ * <p>
+ * The plugin itself always serves the version directory in place, so by default the project
+ * root holds nothing but the {@code versions} directory. With {@link Mode#LINK} the root mirrors
+ * the active version with hard links, which costs no extra disk space and no data copies; files
+ * on another file system are copied instead. {@link Mode#COPY} always copies.
+ */
+@Slf4j
+@Component
+public class ProjectRootMaterializer {
+
+    private static final String VERSIONS_DIR = "versions";
+
+    @Getter
+    private final Mode mode;
+
+    public ProjectRootMaterializer(
+        @Value("${static-pages.activation.materialize:none}") String mode) {
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        log.info("ProjectRootMaterializer initialized with mode {}", this.mode);
+    }
+
+    /**
+     * Bring the project root in line with the activated version.
+     * <p>
+     * Each file is replaced by an atomic rename, so readers of the root see either the old or
+     * the new content of a file. This method blocks on file system access and must not be
+     * called on a non-blocking thread.
+     *
+     * @param projectPath the project root directory
+     * @param versionPath the directory of the activated version
+     * @throws IOException io exception
+     */
+    public void materialize(Path projectPath, Path versionPath) throws IOException {
+        if (mode == Mode.NONE) {
+            clear(projectPath, Set.of());
+            return;
+        }
+        var files = new HashSet<Path>();
+        var linked = new int[] {0};
+        Files.walkFileTree(versionPath, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                throws IOException {
+                if (dir.equals(versionPath.resolve(VERSIONS_DIR))) {
+                    // Would be mixed up with the versions of the project
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(projectPath.resolve(versionPath.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                throws IOException {
+                if (!attrs.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                var relativePath = versionPath.relativize(file);
+                var target = projectPath.resolve(relativePath);
+                var tempFile = target.resolveSibling("." + target.getFileName() + ".tmp");
+                try {
+                    Files.deleteIfExists(tempFile);
+                    if (mode == Mode.COPY) {
+                        Files.copy(file, tempFile, StandardCopyOption.COPY_ATTRIBUTES);
+                    } else if (FileUtils.linkOrCopy(file, tempFile)) {
+                        linked[0]++;
+                    }
+                    Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tempFile);
+                }
+                files.add(relativePath);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        clear(projectPath, files);
+        log.info("Materialized {} files of {} into {}, {} of them linked", files.size(),
+            versionPath, projectPath, linked[0]);
+    }
+
+    /**
+     * Delete files under the project root that are not in the given set, except the versions
+     * directory.
+     */
+    private static void clear(Path projectPath, Set<Path> keep) throws IOException {
+        if (!Files.isDirectory(projectPath)) {
+            return;
+        }
+        var versionsPath = projectPath.resolve(VERSIONS_DIR);
+        Files.walkFileTree(projectPath, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return dir.equals(versionsPath) ? FileVisitResult.SKIP_SUBTREE
+                    : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (!keep.contains(projectPath.relativize(file))) {
+                    deleteSilently(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                if (dir.equals(projectPath)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                try {
+                    if (FileUtils.isEmpty(dir)) {
+                        Files.delete(dir);
+                    }
+                } catch (IOException ex) {
+                    log.warn("Failed to delete {}: {}", dir, ex.getMessage());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void deleteSilently(Path path) {
+        try {
+            FileSystemUtils.deleteRecursively(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    public enum Mode {
+        /**
+         * Keep nothing but the versions directory in the project root.
+         */
+        NONE,
+        /**
+         * Mirror the active version with hard links, falling back to copies.
+         */
+        LINK,
+        /**
+         * Mirror the active version with copies.
+         */
+        COPY
+    }
+}
@@ -0,0 +1,77 @@
+package cc.ryanc.staticpages.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.server.PathContainer;
+import org.springframework.lang.Nullable;
+
+/**
+ * Immutable segment-based trie of project root paths.
+ * <p>
+ * A lookup walks the path segments of a request once and returns the project mounted at the
+ * longest matching root, so {@code /foo} never claims {@code /foobar} and the cost depends on the
+ * path depth instead of the number of projects.
+ */
+final class ProjectRootTrie {
+    static final ProjectRootTrie EMPTY = new ProjectRootTrie(new Node(Map.of(), null));
+
+    private final Node root;
+
+    private ProjectRootTrie(Node root) {
+        this.root = root;
+    }
+
+    static ProjectRootTrie of(Map<String, ProjectRewriteMatcher> matchers) {
+        var builder = new MutableNode();
+        matchers.forEach((rootPath, matcher) -> {
+            var node = builder;
+            for (String segment : StringUtils.split(rootPath, '/')) {
+                node = node.children.computeIfAbsent(segment, k -> new MutableNode());
+            }
+            node.matcher = matcher;
+        });
+        return new ProjectRootTrie(builder.freeze());
+    }
+
+    /**
+     * Find the matcher of the project whose root is the longest prefix of the given path.
+     *
+     * @param path the request path within the application
+     * @return the matcher, or {@code null} if the path is not under any project root
+     */
+    @Nullable
+    ProjectRewriteMatcher find(PathContainer path) {
+        var node = root;
+        var found = node.matcher;
+        List<PathContainer.Element> elements = path.elements();
+        for (int i = 0; i < elements.size(); i++) {
+            if (!(elements.get(i) instanceof PathContainer.PathSegment segment)) {
+                continue;
+            }
+            node = node.children.get(segment.valueToMatch());
+            if (node == null) {
+                break;
+            }
+            if (node.matcher != null) {
+                found = node.matcher;
+            }
+        }
+        return found;
+    }
+
+    private record Node(Map<String, Node> children, @Nullable ProjectRewriteMatcher matcher) {
+    }
+
+    private static class MutableNode {
+        private final Map<String, MutableNode> children = new HashMap<>();
+        private ProjectRewriteMatcher matcher;
+
+        Node freeze() {
+            var frozen = new HashMap<String, Node>(children.size());
+            children.forEach((segment, child) -> frozen.put(segment, child.freeze()));
+            return new Node(Map.copyOf(frozen), matcher);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package cc.ryanc.staticpages.service;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import cc.ryanc.staticpages.model.UploadContext;
+import cc.ryanc.staticpages.model.UploadSession;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Resumable uploads of large files in bounded chunks.
+ * <p>
+ * Each session spools its chunks into one file at their offsets, so chunks may arrive in any
+ * order and in parallel, and a failed chunk is sent again on its own. Every chunk is checked
+ * against its SHA-256 hash once it is on disk. Sessions expire after
+ * {@code static-pages.upload.session-expiry} milliseconds of inactivity, which deletes their
+ * spool file.
+ * <p>
+ * Sessions are only kept in memory and do not survive a restart of Halo or the plugin: the
+ * client has to start the upload again, and the spool files left behind are deleted by the
+ * {@link VersionGarbageCollector}. Spool files live in {@link #spoolDirOf(Path, String)},
+ * outside the static directory, so a partial upload is never served.
+ */
+@Slf4j
+@Component
+public class UploadSessionManager {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Directory of the spool files under the Halo work directory, next to the static
+     * directory.
+     */
+    private static final String SPOOL_ROOT = "static-pages/uploads";
+
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private final Cache<String, Session> sessions;
+
+    private final long maxChunkSize;
+
+    public UploadSessionManager(
+        @Value("${static-pages.upload.session-expiry:86400000}") long sessionExpiryMillis,
+        @Value("${static-pages.upload.max-chunk-size:16777216}") long maxChunkSize) {
+        this.maxChunkSize = maxChunkSize;
+        this.sessions = CacheBuilder.newBuilder()
+            .expireAfterAccess(sessionExpiryMillis, TimeUnit.MILLISECONDS)
+            .removalListener((RemovalNotification<String, Session> notification) ->
+                deleteSpoolFile(notification.getValue()))
+            .build();
+        log.info("UploadSessionManager initialized with {}ms session expiry and {} bytes max "
+            + "chunk size", sessionExpiryMillis, maxChunkSize);
+    }
+
+    /**
+     * Get the directory holding the spool files of the sessions of a project.
+     *
+     * @param workDir the Halo work directory
+     * @param projectName the project name
+     * @return the spool directory, e.g. {@code static-pages/uploads/my-project} under the work
+     * directory
+     */
+    public static Path spoolDirOf(Path workDir, String projectName) {
+        return workDir.resolve(SPOOL_ROOT).resolve(projectName);
+    }
+
+    /**
+     * Start a session with an empty spool file.
+     *
+     * @param projectName the project to upload to
+     * @param spoolDir the directory to create the spool file in
+     * @param filename the name of the uploaded file
+     * @param size the size of the uploaded file in bytes
+     * @param unzip whether the file is an archive to extract
+     * @param dir the directory to upload to, relative to the version directory
+     * @return the new session
+     */
+    public Mono<UploadSession> create(String projectName, Path spoolDir, String filename,
+        long size, boolean unzip, @Nullable String dir) {
+        if (StringUtils.isBlank(filename)) {
+            return Mono.error(new ServerWebInputException("Required 'filename' is missing."));
+        }
+        if (size <= 0) {
+            return Mono.error(new ServerWebInputException("The size must be positive."));
+        }
+        return Mono.fromCallable(() -> {
+                Files.createDirectories(spoolDir);
+                var id = UUID.randomUUID().toString();
+                var spoolFile = Files.createFile(spoolDir.resolve(id));
+                var session = new Session(id, projectName, spoolFile, filename, size, unzip,
+                    dir);
+                sessions.put(id, session);
+                log.debug("Created upload session {} of {} bytes for project {}", id, size,
+                    projectName);
+                return session.toUploadSession();
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Get the state of a session, e.g. to find the chunks to send again after a failure.
+     *
+     * @param projectName the project name
+     * @param sessionId the session id
+     * @return the session
+     */
+    public Mono<UploadSession> get(String projectName, String sessionId) {
+        return Mono.fromCallable(() -> getSession(projectName, sessionId).toUploadSession());
+    }
+
+    /**
+     * Write a chunk into the spool file at its offset.
+     * <p>
+     * A chunk sent again replaces the previous one with the same index.
+     *
+     * @param projectName the project name
+     * @param sessionId the session id
+     * @param index the chunk index
+     * @param offset the offset of the chunk in the uploaded file
+     * @param checksum the hex encoded SHA-256 hash of the chunk
+     * @param content the chunk content
+     * @return the session after the chunk was received
+     */
+    public Mono<UploadSession> writeChunk(String projectName, String sessionId, int index,
+        long offset, String checksum, Flux<DataBuffer> content) {
+        return Mono.defer(() -> {
+            var session = getSession(projectName, sessionId);
+            var expectedHash = StringUtils.defaultString(checksum).toLowerCase(Locale.ROOT);
+            if (!SHA256_PATTERN.matcher(expectedHash).matches()) {
+                return Mono.error(new ServerWebInputException("Invalid SHA-256 checksum."));
+            }
+            if (index < 0 || offset < 0 || offset >= session.size) {
+                return Mono.error(new ServerWebInputException(
+                    "The chunk index or offset is out of range."));
+            }
+            // Registered before the first byte, so a commit never reads a chunk being written
+            synchronized (session) {
+                if (session.committing) {
+                    return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT,
+                        "The upload session is being committed."));
+                }
+                session.writes++;
+            }
+            var limit = Math.min(maxChunkSize, session.size - offset);
+            var length = new AtomicLong();
+            var body = content.<DataBuffer>handle((buffer, sink) -> {
+                if (length.addAndGet(buffer.readableByteCount()) > limit) {
+                    DataBufferUtils.release(buffer);
+                    sink.error(new ServerWebInputException("The chunk exceeds " + limit
+                        + " bytes."));
+                    return;
+                }
+                sink.next(buffer);
+            });
+            return Mono.usingWhen(
+                    Mono.fromCallable(() -> AsynchronousFileChannel.open(session.spoolFile, WRITE))
+                        .subscribeOn(Schedulers.boundedElastic()),
+                    channel -> DataBufferUtils.write(body, channel, offset)
+                        .map(DataBufferUtils::release)
+                        .then(),
+                    channel -> Mono.fromCallable(() -> {
+                            channel.close();
+                            return channel;
+                        })
+                        .subscribeOn(Schedulers.boundedElastic())
+                )
+                .then(Mono.fromCallable(() -> {
+                        if (length.get() == 0) {
+                            throw new ServerWebInputException("The chunk must not be empty.");
+                        }
+                        var actualHash = hash(session.spoolFile, offset, length.get());
+                        if (!actualHash.equals(expectedHash)) {
+                            throw new ServerWebInputException(
+                                "The checksum of chunk " + index + " does not match.");
+                        }
+                        session.chunks.put(index, new Chunk(offset, length.get()));
+                        return session.toUploadSession();
+                    })
+                    .subscribeOn(Schedulers.boundedElastic()))
+                .doFinally(signal -> {
+                    synchronized (session) {
+                        session.writes--;
+                    }
+                });
+        });
+    }
+
+    /**
+     * Check that the received chunks make up the whole file and start committing the session.
+     * <p>
+     * A session is not committed while chunks are still being written to it, and no chunks
+     * are accepted while it is being committed. The caller must either
+     * {@link #remove(String) remove} the session once the upload is processed, or
+     * {@link #reopen(String) reopen} it so the client can fix it and commit again.
+     *
+     * @param projectName the project name
+     * @param sessionId the session id
+     * @return the upload reading the spool file
+     */
+    public Mono<UploadContext> commit(String projectName, String sessionId) {
+        return Mono.fromCallable(() -> {
+            var session = getSession(projectName, sessionId);
+            synchronized (session) {
+                if (session.committing) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "The upload session is being committed.");
+                }
+                if (session.writes > 0) {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Chunks of the upload session are still being written.");
+                }
+                var end = 0L;
+                for (var chunk : session.sortedChunks()) {
+                    if (chunk.offset() != end) {
+                        break;
+                    }
+                    end += chunk.length();
+                }
+                if (end != session.size) {
+                    throw new ServerWebInputException("The upload is incomplete, " + end
+                        + " of " + session.size + " bytes are received in order.");
+                }
+                session.committing = true;
+            }
+            return UploadContext.builder()
+                .name(projectName)
+                .filename(session.filename)
+                .content(DataBufferUtils.read(session.spoolFile,
+                    DefaultDataBufferFactory.sharedInstance, BUFFER_SIZE))
+                .unzip(session.unzip)
+                .dir(session.dir)
+                .build();
+        });
+    }
+
+    /**
+     * Accept chunks of a session again after its commit failed.
+     *
+     * @param sessionId the session id
+     */
+    public void reopen(String sessionId) {
+        var session = sessions.getIfPresent(sessionId);
+        if (session != null) {
+            session.committing = false;
+        }
+    }
+
+    /**
+     * Remove a session and delete its spool file.
+     *
+     * @param sessionId the session id
+     */
+    public void remove(String sessionId) {
+        sessions.invalidate(sessionId);
+    }
+
+    /**
+     * Check whether a session is open, without counting as an access to it.
+     *
+     * @param sessionId the session id, i.e. the name of its spool file
+     * @return true if the session has not expired or been removed
+     */
+    public boolean contains(String sessionId) {
+        return sessions.asMap().containsKey(sessionId);
+    }
+
+    /**
+     * Remove a session of the project and delete its spool file.
+     *
+     * @param projectName the project name
+     * @param sessionId the session id
+     * @return empty mono when the session is removed
+     */
+    public Mono<Void> remove(String projectName, String sessionId) {
+        return Mono.fromRunnable(() -> remove(getSession(projectName, sessionId).id))
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+
+    private Session getSession(String projectName, String sessionId) {
+        var session = sessionId == null ? null : sessions.getIfPresent(sessionId);
+        if (session == null || !session.projectName.equals(projectName)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                "The upload session does not exist or has expired.");
+        }
+        return session;
+    }
+
+    private static void deleteSpoolFile(@Nullable Session session) {
+        if (session == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(session.spoolFile);
+        } catch (IOException e) {
+            log.warn("Failed to delete spool file {}: {}", session.spoolFile, e.getMessage());
+        }
+    }
+
+    private static String hash(Path file, long offset, long length) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (var channel = FileChannel.open(file, READ)) {
+            var position = offset;
+            var end = offset + length;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - position));
+                var read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                digest.update(buffer.flip());
+                position += read;
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    record Chunk(long offset, long length) {
+    }
+
+    private static final class Session {
+        private final String id;
+        private final String projectName;
+        private final Path spoolFile;
+        private final String filename;
+        private final long size;
+        private final boolean unzip;
+        @Nullable
+        private final String dir;
+        private final Map<Integer, Chunk> chunks = new ConcurrentSkipListMap<>();
+        private volatile boolean committing;
+        // Chunks being written, guarded by the session
+        private int writes;
+
+        private Session(String id, String projectName, Path spoolFile, String filename,
+            long size, boolean unzip, @Nullable String dir) {
+            this.id = id;
+            this.projectName = projectName;
+            this.spoolFile = spoolFile;
+            this.filename = filename;
+            this.size = size;
+            this.unzip = unzip;
+            this.dir = dir;
+        }
+
+        private List<Chunk> sortedChunks() {
+            var sorted = new ArrayList<>(chunks.values());
+            sorted.sort(Comparator.comparingLong(Chunk::offset));
+            return sorted;
+        }
+
+        private UploadSession toUploadSession() {
+            return new UploadSession()
+                .setId(id)
+                .setFilename(filename)
+                .setSize(size)
+                .setReceivedBytes(chunks.values().stream().mapToLong(Chunk::length).sum())
+                .setReceivedChunks(new ArrayList<>(chunks.keySet()))
+                .setUnzip(unzip)
+                .setDir(dir);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package cc.ryanc.staticpages.service;
+
+import cc.ryanc.staticpages.extensions.Project;
+import cc.ryanc.staticpages.extensions.ProjectVersion;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import run.halo.app.extension.ExtensionUtil;
+import run.halo.app.extension.ListOptions;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.infra.BackupRootGetter;
+
+/**
+ * Enforces the version retention policies of projects and removes what failed uploads left
+ * behind, in the background.
+ * <p>
+ * Every {@code static-pages.gc.interval} milliseconds, and after each upload or deployment of a
+ * project, old versions are deleted by {@link VersionService#cleanupOldVersions(String)} and the
+ * versions and upload spool directories of the project are swept of:
+ * <ul>
+ *   <li>{@code version-N} directories without a {@link ProjectVersion}</li>
+ *   <li>staging directories and spool files of interrupted extractions and deployments</li>
+ *   <li>spool files of upload sessions that no longer exist, e.g. after a restart</li>
+ * </ul>
+ * Only entries not modified for {@code static-pages.gc.grace-period} milliseconds are swept, so
+ * uploads in progress are left alone. Projects are collected one at a time on a single thread,
+ * which bounds the disk I/O spent on deletion.
+ */
+@Slf4j
+@Component
+public class VersionGarbageCollector implements InitializingBean, DisposableBean {
+
+    private static final String VERSIONS_DIR = "versions";
+
+    private static final Duration INITIAL_DELAY = Duration.ofMinutes(1);
+
+    private static final Pattern VERSION_DIR_PATTERN = Pattern.compile("version-\\d+");
+
+    /**
+     * Names of the temporary files and directories created next to a version while it is
+     * written.
+     */
+    private static final Pattern TEMP_FILE_PATTERN = Pattern.compile(
+        "\\..+\\.(staging|spool)-[0-9a-f-]{36}|\\.archive-\\d+\\.tar\\.zst|\\.upload-\\d+\\.tmp");
+
+    private final ReactiveExtensionClient client;
+
+    private final VersionService versionService;
+
+    private final ContentStore contentStore;
+
+    private final ProjectFileIndex fileIndex;
+
+    private final UploadSessionManager uploadSessionManager;
+
+    private final BackupRootGetter backupRootGetter;
+
+    private final Duration interval;
+
+    private final Duration gracePeriod;
+
+    private final Scheduler scheduler =
+        Schedulers.newBoundedElastic(1, Integer.MAX_VALUE, "static-pages-gc");
+
+    private final Sinks.Many<String> requests = Sinks.many().unicast().onBackpressureBuffer();
+
+    private Disposable subscription;
+
+    public VersionGarbageCollector(ReactiveExtensionClient client, VersionService versionService,
+        ContentStore contentStore, ProjectFileIndex fileIndex,
+        UploadSessionManager uploadSessionManager, BackupRootGetter backupRootGetter,
+        @Value("${static-pages.gc.interval:3600000}") long intervalMillis,
+        @Value("${static-pages.gc.grace-period:86400000}") long gracePeriodMillis) {
+        this.client = client;
+        this.versionService = versionService;
+        this.contentStore = contentStore;
+        this.fileIndex = fileIndex;
+        this.uploadSessionManager = uploadSessionManager;
+        this.backupRootGetter = backupRootGetter;
+        this.interval = Duration.ofMillis(intervalMillis);
+        this.gracePeriod = Duration.ofMillis(gracePeriodMillis);
+        log.info("VersionGarbageCollector initialized with {}ms interval and {}ms grace period",
+            intervalMillis, gracePeriodMillis);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        var scheduled = Flux.interval(INITIAL_DELAY, interval, scheduler)
+            .onBackpressureDrop()
+            .concatMap(tick -> client.listAll(Project.class, new ListOptions(), Sort.unsorted())
+                .map(project -> project.getMetadata().getName())
+                .onErrorResume(e -> {
+                    log.warn("Failed to list projects to collect garbage of", e);
+                    return Flux.empty();
+                }), 1);
+        subscription = Flux.merge(scheduled, requests.asFlux())
+            .concatMap(this::collect, 1)
+            .subscribe();
+    }
+
+    @Override
+    public void destroy() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        scheduler.dispose();
+    }
+
+    /**
+     * Collect the garbage of a project soon, e.g. after a new version was created.
+     *
+     * @param projectName the project name
+     */
+    public void request(String projectName) {
+        // The sink only accepts one emitting thread at a time
+        synchronized (requests) {
+            requests.tryEmitNext(projectName);
+        }
+    }
+
+    /**
+     * Delete the expired versions of a project and sweep its versions directory.
+     *
+     * @param projectName the project name
+     * @return empty mono when done, errors are logged
+     */
+    Mono<Void> collect(String projectName) {
+        return client.fetch(Project.class, projectName)
+            .filter(project -> !ExtensionUtil.isDeleted(project))
+            .flatMap(project -> versionService.cleanupOldVersions(projectName)
+                .then(Mono.defer(() -> sweep(project))))
+            .onErrorResume(e -> {
+                log.warn("Failed to collect garbage of project {}", projectName, e);
+                return Mono.empty();
+            });
+    }
+
+    private Mono<Void> sweep(Project project) {
+        var projectName = project.getMetadata().getName();
+        var versionsPath = getStaticRootPath()
+            .resolve(project.getSpec().getDirectory())
+            .resolve(VERSIONS_DIR);
+        var spoolDir = UploadSessionManager.spoolDirOf(backupRootGetter.get().getParent(),
+            projectName);
+        // List the directory before the versions: a version is created before its directory,
+        // so the version of every directory found here is listed below
+        return Mono.fromCallable(() -> listCandidates(versionsPath, spoolDir))
+            .subscribeOn(scheduler)
+            .filter(candidates -> !candidates.isEmpty())
+            .flatMap(candidates -> versionService.listVersions(projectName)
+                .map(version -> version.getSpec().getDirectory())
+                .collect(Collectors.toSet())
+                .publishOn(scheduler)
+                .doOnNext(directories -> delete(projectName, versionsPath, candidates,
+                    directories)))
+            .then();
+    }
+
+    /**
+     * List the entries of the versions directory and the upload spool directory that may be
+     * swept and were not modified within the grace period.
+     */
+    private List<Path> listCandidates(Path versionsPath, Path spoolDir) throws IOException {
+        var candidates = new ArrayList<Path>();
+        var modifiedBefore = Instant.now().minus(gracePeriod);
+        if (Files.isDirectory(versionsPath)) {
+            try (var entries = Files.list(versionsPath)) {
+                for (var path : (Iterable<Path>) entries::iterator) {
+                    var name = path.getFileName().toString();
+                    if ((VERSION_DIR_PATTERN.matcher(name).matches() && Files.isDirectory(path)
+                        || TEMP_FILE_PATTERN.matcher(name).matches())
+                        && isModifiedBefore(path, modifiedBefore)) {
+                        candidates.add(path);
+                    }
+                }
+            }
+        }
+        // The first upload of a project may fail before its versions directory is created
+        if (Files.isDirectory(spoolDir)) {
+            try (var entries = Files.list(spoolDir)) {
+                for (var path : (Iterable<Path>) entries::iterator) {
+                    if (!uploadSessionManager.contains(path.getFileName().toString())
+                        && isModifiedBefore(path, modifiedBefore)) {
+                        candidates.add(path);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private void delete(String projectName, Path versionsPath, List<Path> candidates,
+        Set<String> directories) {
+        var snapshot = fileIndex.get(projectName);
+        var servedDirectory = snapshot == null ? null : snapshot.getVersionDirectory();
+        var versionsDeleted = false;
+        for (var path : candidates) {
+            var name = path.getFileName().toString();
+            var isVersion = versionsPath.equals(path.getParent())
+                && VERSION_DIR_PATTERN.matcher(name).matches();
+            var directory = VERSIONS_DIR + "/" + name;
+            if (isVersion && (directories.contains(directory)
+                || directory.equals(servedDirectory))) {
+                continue;
+            }
+            try {
+                FileSystemUtils.deleteRecursively(path);
+                if (isVersion) {
+                    Files.deleteIfExists(VersionManifest.manifestFileOf(path));
+                    versionsDeleted = true;
+                }
+                log.info("Deleted {} left behind in project {}", path, projectName);
+            } catch (IOException e) {
+                log.warn("Failed to delete {} of project {}", path, projectName, e);
+            }
+        }
+        if (versionsDeleted) {
+            // Free the objects only the deleted directories linked to
+            contentStore.collectGarbage(versionsPath);
+        }
+    }
+
+    private static boolean isModifiedBefore(Path path, Instant instant) {
+        try {
+            return Files.getLastModifiedTime(path).toInstant().isBefore(instant);
+        } catch (IOException e) {
+            // Deleted meanwhile
+            return false;
+        }
+    }
+
+    private Path getStaticRootPath() {
+        return backupRootGetter.get().getParent().resolve("static");
+    }
+}
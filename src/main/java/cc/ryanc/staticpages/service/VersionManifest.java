@@ -0,0 +1,263 @@
+package cc.ryanc.staticpages.service;
+
+import static cc.ryanc.staticpages.utils.CompressionUtils.GZIP_EXTENSION;
+
+import cc.ryanc.staticpages.utils.FileUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+
+/**
+ * Content hashes of the files of one version, persisted next to the version directory so each
+ * file is hashed once rather than on every request or restart.
+ * <p>
+ * Each line of the manifest file holds the SHA-256 hash, size, last modified time in
+ * milliseconds and path of one file, separated by tabs. An entry is trusted as long as the size
+ * and last modified time of the file still match, and is recomputed otherwise.
+ */
+@Slf4j
+public final class VersionManifest {
+
+    public static final String MANIFEST_EXTENSION = ".manifest";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Number of files listed by {@link Statistics#largestFiles()}.
+     */
+    private static final int LARGEST_FILES = 10;
+
+    private final Path manifestFile;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private VersionManifest(Path manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * Get the manifest file of a version directory, e.g. {@code versions/version-1.manifest}.
+     *
+     * @param versionDir the version directory
+     * @return the manifest file
+     */
+    public static Path manifestFileOf(Path versionDir) {
+        return versionDir.resolveSibling(versionDir.getFileName() + MANIFEST_EXTENSION);
+    }
+
+    /**
+     * Load the manifest of a version directory.
+     * <p>
+     * This method blocks on file system access and must not be called on a non-blocking thread.
+     *
+     * @param versionDir the version directory
+     * @return the manifest, empty if it does not exist yet or cannot be read
+     */
+    public static VersionManifest load(Path versionDir) {
+        var manifest = new VersionManifest(manifestFileOf(versionDir));
+        try (var lines = Files.lines(manifest.manifestFile, StandardCharsets.UTF_8)) {
+            lines.forEach(line -> {
+                var fields = line.split("\t", 4);
+                if (fields.length < 4) {
+                    return;
+                }
+                try {
+                    var lastModified = Instant.ofEpochMilli(Long.parseLong(fields[2]));
+                    manifest.entries.put(fields[3],
+                        new Entry(fields[0], Long.parseLong(fields[1]), lastModified));
+                } catch (NumberFormatException e) {
+                    // Skip the malformed line, the file will be hashed again
+                }
+            });
+        } catch (NoSuchFileException e) {
+            // Not hashed yet
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read manifest {}, files will be hashed again",
+                manifest.manifestFile, e);
+            manifest.entries.clear();
+        }
+        return manifest;
+    }
+
+    /**
+     * Get the entry of a file.
+     *
+     * @param relativePath the path relative to the version directory
+     * @return the entry, or {@code null} if the file has not been hashed
+     */
+    @Nullable
+    public Entry get(String relativePath) {
+        return entries.get(relativePath);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Perform the given action for each entry.
+     *
+     * @param action the action, called with the relative path and the entry of each file
+     */
+    public void forEach(BiConsumer<String, Entry> action) {
+        entries.forEach(action);
+    }
+
+    /**
+     * Summarize the files of the version from their entries, without reading the directory.
+     * <p>
+     * Precompressed variants generated by the plugin, e.g. {@code app.js.gz} next to
+     * {@code app.js}, are not part of the uploaded site and are left out.
+     *
+     * @return the total size, the number of files and the largest files
+     */
+    public Statistics statistics() {
+        Comparator<Map.Entry<String, Long>> bySize = Map.Entry.<String, Long>comparingByValue()
+            .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+        // Holds the largest files seen so far, the smallest of them at the head
+        var largest = new PriorityQueue<>(bySize);
+        var size = 0L;
+        var fileCount = 0;
+        for (var entry : entries.entrySet()) {
+            if (isPrecompressedVariant(entry.getKey())) {
+                continue;
+            }
+            var fileSize = entry.getValue().size();
+            size += fileSize;
+            fileCount++;
+            largest.add(Map.entry(entry.getKey(), fileSize));
+            if (largest.size() > LARGEST_FILES) {
+                largest.poll();
+            }
+        }
+        var largestFiles = new ArrayList<>(largest);
+        largestFiles.sort(bySize.reversed());
+        return new Statistics(size, fileCount, List.copyOf(largestFiles));
+    }
+
+    private boolean isPrecompressedVariant(String relativePath) {
+        return relativePath.endsWith(GZIP_EXTENSION) && entries.containsKey(
+            relativePath.substring(0, relativePath.length() - GZIP_EXTENSION.length()));
+    }
+
+    /**
+     * Hash the file again unless its entry still matches its size and last modified time.
+     *
+     * @param relativePath the path relative to the version directory
+     * @param file the absolute path of the file
+     * @param attributes the current attributes of the file
+     * @return true if the entry was added or changed; false if it was up to date
+     * @throws IOException if the file cannot be read
+     */
+    boolean refresh(String relativePath, Path file, BasicFileAttributes attributes)
+        throws IOException {
+        var lastModified = Instant.ofEpochMilli(attributes.lastModifiedTime().toMillis());
+        var entry = entries.get(relativePath);
+        if (entry != null && entry.size() == attributes.size()
+            && entry.lastModified().equals(lastModified)) {
+            return false;
+        }
+        entries.put(relativePath, new Entry(hash(file), attributes.size(), lastModified));
+        return true;
+    }
+
+    /**
+     * Record the entry of a file whose hash is already known.
+     */
+    void put(String relativePath, Entry entry) {
+        entries.put(relativePath, entry);
+    }
+
+    /**
+     * Remove the entries whose path matches the given predicate.
+     *
+     * @return true if any entry was removed
+     */
+    boolean removeIf(Predicate<String> predicate) {
+        return entries.keySet().removeIf(predicate);
+    }
+
+    /**
+     * Write the manifest file, replacing the previous one atomically.
+     *
+     * @throws IOException io exception
+     */
+    synchronized void save() throws IOException {
+        var content = new StringBuilder(entries.size() * 128);
+        entries.forEach((path, entry) -> {
+            if (path.indexOf('\n') >= 0 || path.indexOf('\r') >= 0) {
+                // Cannot be stored in a line, hashed again on the next rebuild instead
+                return;
+            }
+            content.append(entry.hash()).append('\t')
+                .append(entry.size()).append('\t')
+                .append(entry.lastModified().toEpochMilli()).append('\t')
+                .append(path).append('\n');
+        });
+        var tempFile = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        try {
+            Files.writeString(tempFile, content, StandardCharsets.UTF_8);
+            Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    static String hash(Path file) throws IOException {
+        var digest = FileUtils.newSha256Digest();
+        var buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Summary of the files of a version.
+     *
+     * @param size the total size of the files in bytes
+     * @param fileCount the number of files
+     * @param largestFiles the paths and sizes of the largest files, largest first
+     */
+    public record Statistics(long size, int fileCount,
+        List<Map.Entry<String, Long>> largestFiles) {
+    }
+
+    /**
+     * A hashed file.
+     *
+     * @param hash the hex encoded SHA-256 hash of the content
+     * @param size the size in bytes
+     * @param lastModified the last modified time, truncated to milliseconds
+     */
+    public record Entry(String hash, long size, Instant lastModified) {
+
+        /**
+         * Get the strong entity tag of the content.
+         */
+        public String etag() {
+            return "\"" + hash + "\"";
+        }
+    }
+}
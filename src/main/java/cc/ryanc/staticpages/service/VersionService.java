@@ -43,16 +43,29 @@ public interface VersionService {
     Mono<ProjectVersion> getActiveVersion(String projectName);
     
     /**
-     * Cleanup old versions based on maxVersions setting
+     * Delete the versions the retention policies of the project no longer keep, i.e.
+     * maxVersions, maxVersionAgeDays and maxTotalSize
      * @param projectName the project name
      * @return void
      */
     Mono<Void> cleanupOldVersions(String projectName);
     
     /**
-     * Get next version number for a project
+     * Record the size, file count and largest files of a version
+     * @param versionName the version name
+     * @param statistics the statistics of the files of the version
+     * @return the updated version
+     */
+    Mono<ProjectVersion> updateStatistics(String versionName,
+        VersionManifest.Statistics statistics);
+    
+    /**
+     * Allocate the next version number of a project.
+     * <p>
+     * Numbers are taken from a counter on the project status, so a number, and the directory
+     * named after it, is never handed out twice, even after the newest version is deleted.
      * @param projectName the project name
-     * @return the next version number
+     * @return the allocated version number
      */
-    Mono<Integer> getNextVersionNumber(String projectName);
+    Mono<Integer> allocateVersionNumber(String projectName);
 }
@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.util.FileSystemUtils;
@@ -23,6 +24,22 @@ public class DefaultPageFileManager implements PageFileManager {
         }
     }
 
+    /**
+     * Rename within the same file system, which keeps hard links into the content store.
+     *
+     * @return true if renamed; false if the source has to be copied instead
+     */
+    private static boolean tryRename(Path source, Path target) {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            log.debug("Failed to rename {} to {}, copying instead: {}", source, target,
+                e.getMessage());
+            return false;
+        }
+    }
+
     @Override
     public Mono<String> readString(Path path) {
         return Mono.fromCallable(() -> {
@@ -47,10 +64,16 @@ public class DefaultPageFileManager implements PageFileManager {
                 if (!Files.isWritable(path)) {
                     throw new ServerWebInputException("文件不可写");
                 }
+                // Replace rather than overwrite the file, which may be a hard link shared with
+                // other versions through the content store
+                var tempFile = path.resolveSibling("." + path.getFileName() + ".tmp");
                 try {
-                    Files.writeString(path, content, StandardCharsets.UTF_8);
+                    Files.writeString(tempFile, content, StandardCharsets.UTF_8);
+                    Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
                 } catch (IOException e) {
                     log.error("Failed to write file", e);
+                    FileUtils.deleteRecursivelyAndSilently(tempFile);
                     throw new ServerWebInputException("写入文件失败, 请稍后重试", null, e);
                 }
             })
@@ -94,6 +117,9 @@ public class DefaultPageFileManager implements PageFileManager {
                     if (!Files.exists(target.getParent())) {
                         Files.createDirectories(target.getParent());
                     }
+                    if (tryRename(source, target)) {
+                        return;
+                    }
                     if (Files.isDirectory(source) && !Files.exists(target)) {
                         Files.createDirectories(target);
                     }
@@ -1,25 +1,45 @@
 package cc.ryanc.staticpages.service.impl;
 
+import static run.halo.app.extension.index.query.QueryFactory.and;
+import static run.halo.app.extension.index.query.QueryFactory.equal;
+
 import cc.ryanc.staticpages.extensions.Project;
 import cc.ryanc.staticpages.extensions.ProjectVersion;
+import cc.ryanc.staticpages.service.ContentStore;
+import cc.ryanc.staticpages.service.ProjectFileIndex;
 import cc.ryanc.staticpages.service.ProjectLockManager;
+import cc.ryanc.staticpages.service.ProjectRootMaterializer;
+import cc.ryanc.staticpages.service.VersionManifest;
 import cc.ryanc.staticpages.service.VersionService;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.util.FileSystemUtils;
-import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.Metadata;
 import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.extension.index.query.Query;
+import run.halo.app.extension.router.selector.FieldSelector;
 import run.halo.app.infra.BackupRootGetter;
 
 @Slf4j
@@ -28,44 +48,73 @@ import run.halo.app.infra.BackupRootGetter;
 public class DefaultVersionService implements VersionService {
     private static final String VERSIONS_DIR = "versions";
     private static final String VERSION_DIR_PREFIX = "version-";
+    private static final Comparator<ProjectVersion> NEWEST_FIRST =
+        Comparator.comparing((ProjectVersion v) -> v.getSpec().getVersion()).reversed();
     
     private final ReactiveExtensionClient client;
     private final BackupRootGetter backupRootGetter;
     private final ProjectLockManager lockManager;
+    private final ProjectFileIndex fileIndex;
+    private final ProjectRootMaterializer rootMaterializer;
+    private final ContentStore contentStore;
+    
+    /**
+     * How long a version that is not active may still be uploading or deploying.
+     */
+    @Value("${static-pages.gc.grace-period:86400000}")
+    private long gracePeriodMillis;
     
     @Override
     public Mono<ProjectVersion> createVersion(String projectName, String description) {
-        // Wrap version creation in lock to prevent concurrent version number conflicts
-        return lockManager.withLock(projectName, 
-            getNextVersionNumber(projectName)
-                .flatMap(versionNumber -> {
-                    var version = new ProjectVersion();
-                    version.setMetadata(new Metadata());
-                    version.getMetadata().setGenerateName(projectName + "-version-");
-                    
-                    var spec = new ProjectVersion.Spec();
-                    spec.setProjectName(projectName);
-                    spec.setVersion(versionNumber);
-                    spec.setDisplayName("v" + versionNumber);
-                    spec.setDirectory(VERSIONS_DIR + "/" + VERSION_DIR_PREFIX + versionNumber);
-                    spec.setActive(false);
-                    spec.setCreationTime(Instant.now());
-                    spec.setDescription(description);
-                    spec.setSize(0L);
-                    
-                    version.setSpec(spec);
-                    
-                    return client.create(version);
-                })
-                .flatMap(version -> cleanupOldVersions(projectName).thenReturn(version))
-        );
+        // Numbers are allocated atomically and old versions are removed in the background by
+        // the VersionGarbageCollector, so creation does not need the project lock
+        return allocateVersionNumber(projectName)
+            .flatMap(versionNumber -> {
+                var version = new ProjectVersion();
+                version.setMetadata(new Metadata());
+                version.getMetadata().setGenerateName(projectName + "-version-");
+                
+                var spec = new ProjectVersion.Spec();
+                spec.setProjectName(projectName);
+                spec.setVersion(versionNumber);
+                spec.setDisplayName("v" + versionNumber);
+                spec.setDirectory(VERSIONS_DIR + "/" + VERSION_DIR_PREFIX + versionNumber);
+                spec.setActive(false);
+                spec.setCreationTime(Instant.now());
+                spec.setDescription(description);
+                spec.setSize(0L);
+                
+                version.setSpec(spec);
+                
+                return client.create(version);
+            });
     }
     
     @Override
     public Flux<ProjectVersion> listVersions(String projectName) {
-        return client.list(ProjectVersion.class, 
-            version -> projectName.equals(version.getSpec().getProjectName()), 
-            Comparator.comparing((ProjectVersion v) -> v.getSpec().getVersion()).reversed());
+        return listVersions(equal(ProjectVersion.PROJECT_NAME_INDEX, projectName));
+    }
+    
+    /**
+     * List the active versions of a project, normally at most one.
+     */
+    private Flux<ProjectVersion> listActiveVersions(String projectName) {
+        return listVersions(and(equal(ProjectVersion.PROJECT_NAME_INDEX, projectName),
+            equal(ProjectVersion.ACTIVE_INDEX, Boolean.TRUE.toString())));
+    }
+    
+    /**
+     * List the versions matching an index query, newest first.
+     * <p>
+     * The query is answered from the indexes registered with the scheme, so only the versions
+     * of the project are read. They are few, so they are ordered here rather than by an index
+     * on the version number, which would compare the numbers as strings.
+     */
+    private Flux<ProjectVersion> listVersions(Query query) {
+        var listOptions = new ListOptions();
+        listOptions.setFieldSelector(FieldSelector.of(query));
+        return client.listAll(ProjectVersion.class, listOptions, Sort.unsorted())
+            .sort(NEWEST_FIRST);
     }
     
     @Override
@@ -74,25 +123,40 @@ public class DefaultVersionService implements VersionService {
             .flatMap(version -> {
                 var projectName = version.getSpec().getProjectName();
                 // Wrap activation in lock to prevent concurrent file operations
-                return lockManager.withLock(projectName,
-                    // Deactivate all other versions
-                    listVersions(projectName)
-                        .filter(v -> !versionName.equals(v.getMetadata().getName()))
-                        .filter(v -> Boolean.TRUE.equals(v.getSpec().getActive()))
-                        .flatMap(v -> {
-                            v.getSpec().setActive(false);
-                            return client.update(v);
-                        })
-                        .then(Mono.defer(() -> {
-                            // Activate this version
-                            version.getSpec().setActive(true);
-                            return client.update(version)
-                                .flatMap(v -> copyVersionToRoot(projectName, v).thenReturn(v));
-                        }))
-                );
+                return lockManager.withLock(projectName, client.get(Project.class, projectName)
+                    .flatMap(project -> {
+                        Path projectPath = getStaticRootPath()
+                            .resolve(project.getSpec().getDirectory());
+                        var previous = fileIndex.get(projectName);
+                        // Index the version before it is marked active, so a version that
+                        // cannot be served never becomes the active one
+                        return switchToVersion(projectName, projectPath, version)
+                            .flatMap(snapshot -> markActive(projectName, version)
+                                .onErrorResume(e -> restoreSnapshot(projectName, projectPath,
+                                    previous).then(Mono.error(e)))
+                                .flatMap(v -> materialize(projectName, projectPath, snapshot, v)
+                                    .thenReturn(v)));
+                    }));
             });
     }
     
+    /**
+     * Deactivate all other versions of the project and activate the given one.
+     */
+    private Mono<ProjectVersion> markActive(String projectName, ProjectVersion version) {
+        var versionName = version.getMetadata().getName();
+        return listActiveVersions(projectName)
+            .filter(v -> !versionName.equals(v.getMetadata().getName()))
+            .flatMap(v -> {
+                v.getSpec().setActive(false);
+                return client.update(v);
+            })
+            .then(Mono.defer(() -> {
+                version.getSpec().setActive(true);
+                return client.update(version);
+            }));
+    }
+    
     @Override
     public Mono<Void> deleteVersion(String versionName) {
         return client.get(ProjectVersion.class, versionName)
@@ -114,7 +178,17 @@ public class DefaultVersionService implements VersionService {
                             .resolve(versionDir);
                         
                         return Mono.fromCallable(() -> {
+                            // Paths of the editor resolve through the snapshot, so never leave
+                            // one pointing at the deleted directory
+                            var snapshot = fileIndex.get(projectName);
+                            if (snapshot != null
+                                && versionName.equals(snapshot.getVersionName())) {
+                                fileIndex.remove(projectName);
+                            }
                             FileSystemUtils.deleteRecursively(versionPath);
+                            Files.deleteIfExists(VersionManifest.manifestFileOf(versionPath));
+                            // Free the objects no remaining version links to
+                            contentStore.collectGarbage(versionPath.getParent());
                             return true;
                         }).subscribeOn(Schedulers.boundedElastic());
                     })
@@ -124,109 +198,210 @@ public class DefaultVersionService implements VersionService {
     
     @Override
     public Mono<ProjectVersion> getActiveVersion(String projectName) {
-        return listVersions(projectName)
-            .filter(v -> Boolean.TRUE.equals(v.getSpec().getActive()))
-            .next();
+        return listActiveVersions(projectName).next();
     }
     
     @Override
     public Mono<Void> cleanupOldVersions(String projectName) {
         return client.get(Project.class, projectName)
-            .flatMap(project -> {
-                Integer maxVersions = project.getSpec().getMaxVersions();
-                if (maxVersions == null || maxVersions <= 0) {
-                    // Unlimited versions
-                    return Mono.empty();
-                }
-                
-                return listVersions(projectName)
-                    .collectList()
-                    .flatMapMany(versions -> {
-                        if (versions.size() <= maxVersions) {
-                            return Flux.empty();
-                        }
-                        
-                        // Sort by version number descending, keep the newest maxVersions
-                        versions.sort(Comparator.comparing(
-                            (ProjectVersion v) -> v.getSpec().getVersion()).reversed());
-                        
-                        // Delete versions beyond maxVersions limit
-                        return Flux.fromIterable(versions.subList(maxVersions, versions.size()))
-                            .filter(v -> !Boolean.TRUE.equals(v.getSpec().getActive()))
-                            .flatMap(v -> deleteVersion(v.getMetadata().getName())
-                                .onErrorResume(e -> {
-                                    log.warn("Failed to delete old version {}: {}", 
-                                        v.getMetadata().getName(), e.getMessage());
-                                    return Mono.empty();
-                                }));
-                    })
-                    .then();
-            });
+            .flatMap(project -> listVersions(projectName)
+                .collectList()
+                .flatMapMany(versions -> Flux.fromIterable(
+                    selectExpiredVersions(versions, project.getSpec(), Instant.now(),
+                        Duration.ofMillis(gracePeriodMillis))))
+                // One at a time, and under the lock so a version is not activated meanwhile
+                .concatMap(v -> lockManager.withLock(projectName,
+                        deleteVersion(v.getMetadata().getName()))
+                    .onErrorResume(e -> {
+                        log.warn("Failed to delete old version {}: {}",
+                            v.getMetadata().getName(), e.getMessage());
+                        return Mono.empty();
+                    }))
+                .then());
+    }
+    
+    /**
+     * Select the versions the retention policies of a project no longer keep.
+     * <p>
+     * A version is expired when it is not among the newest {@code maxVersions}, is older than
+     * {@code maxVersionAgeDays}, or would push the total size of the kept versions, newest
+     * first, beyond {@code maxTotalSize}. The active version, the newest one and the ones
+     * created within the grace period are always kept and count towards the total size: the
+     * upload or deployment of a version is still writing it until it is activated, and
+     * uploads may overlap. Versions do not record past activations, so a version that was
+     * activated and replaced within the grace period is kept as well.
+     *
+     * @param versions the versions of the project, newest first
+     * @param spec the project spec holding the policies
+     * @param now the current time
+     * @param gracePeriod how long a version that is not active may still be written
+     * @return the expired versions, newest first
+     */
+    static List<ProjectVersion> selectExpiredVersions(List<ProjectVersion> versions,
+        Project.Spec spec, Instant now, Duration gracePeriod) {
+        var maxVersions = positiveOrZero(spec.getMaxVersions());
+        var maxAgeDays = positiveOrZero(spec.getMaxVersionAgeDays());
+        var maxTotalSize = spec.getMaxTotalSize() == null ? 0 : spec.getMaxTotalSize();
+        var oldestKept = now.minus(Duration.ofDays(maxAgeDays));
+        var writableSince = now.minus(gracePeriod);
+
+        IntPredicate alwaysKept = i -> i == 0
+            || Boolean.TRUE.equals(versions.get(i).getSpec().getActive())
+            || isCreatedAfter(versions.get(i), writableSince);
+        var totalSize = IntStream.range(0, versions.size())
+            .filter(alwaysKept)
+            .mapToLong(i -> sizeOf(versions.get(i)))
+            .sum();
+        var expired = new ArrayList<ProjectVersion>();
+        for (int i = 0; i < versions.size(); i++) {
+            if (alwaysKept.test(i)) {
+                continue;
+            }
+            var version = versions.get(i);
+            var creationTime = version.getSpec().getCreationTime();
+            var size = sizeOf(version);
+            if (maxVersions > 0 && i >= maxVersions
+                || maxAgeDays > 0 && creationTime != null && creationTime.isBefore(oldestKept)
+                || maxTotalSize > 0 && totalSize + size > maxTotalSize) {
+                expired.add(version);
+            } else {
+                totalSize += size;
+            }
+        }
+        return expired;
+    }
+    
+    private static boolean isCreatedAfter(ProjectVersion version, Instant instant) {
+        var creationTime = version.getSpec().getCreationTime();
+        // Versions without a creation time predate it and are long complete
+        return creationTime != null && creationTime.isAfter(instant);
+    }
+    
+    private static int positiveOrZero(Integer value) {
+        return value == null ? 0 : Math.max(value, 0);
+    }
+    
+    private static long sizeOf(ProjectVersion version) {
+        var size = version.getSpec().getSize();
+        return size == null ? 0 : size;
     }
     
     @Override
-    public Mono<Integer> getNextVersionNumber(String projectName) {
-        return listVersions(projectName)
+    public Mono<ProjectVersion> updateStatistics(String versionName,
+        VersionManifest.Statistics statistics) {
+        var largestFiles = statistics.largestFiles().stream()
+            .map(entry -> {
+                var fileSize = new ProjectVersion.FileSize();
+                fileSize.setPath(entry.getKey());
+                fileSize.setSize(entry.getValue());
+                return fileSize;
+            })
+            .toList();
+        return Mono.defer(() -> client.get(ProjectVersion.class, versionName)
+                .flatMap(version -> {
+                    var spec = version.getSpec();
+                    if (Objects.equals(spec.getSize(), statistics.size())
+                        && Objects.equals(spec.getFileCount(), statistics.fileCount())
+                        && Objects.equals(spec.getLargestFiles(), largestFiles)) {
+                        return Mono.just(version);
+                    }
+                    spec.setSize(statistics.size());
+                    spec.setFileCount(statistics.fileCount());
+                    spec.setLargestFiles(largestFiles);
+                    return client.update(version);
+                }))
+            .retryWhen(Retry.backoff(8, Duration.ofMillis(100))
+                .filter(OptimisticLockingFailureException.class::isInstance));
+    }
+    
+    @Override
+    public Mono<Integer> allocateVersionNumber(String projectName) {
+        // Retried from a fresh read when the project changed in between, e.g. by the reconciler
+        return Mono.defer(() -> client.get(Project.class, projectName)
+                .flatMap(project -> getLastVersionNumber(project)
+                    .flatMap(lastVersion -> {
+                        var versionNumber = lastVersion + 1;
+                        project.getStatus().setLastVersion(versionNumber);
+                        return client.update(project).thenReturn(versionNumber);
+                    })))
+            .retryWhen(Retry.backoff(8, Duration.ofMillis(100))
+                .filter(OptimisticLockingFailureException.class::isInstance));
+    }
+    
+    /**
+     * Get the last version number allocated to a project.
+     * <p>
+     * Projects created before the counter was kept on the status start from the newest
+     * remaining version, which is only listed once.
+     */
+    private Mono<Integer> getLastVersionNumber(Project project) {
+        var lastVersion = project.getStatus().getLastVersion();
+        if (lastVersion != null) {
+            return Mono.just(lastVersion);
+        }
+        return listVersions(project.getMetadata().getName())
             .map(v -> v.getSpec().getVersion())
-            .reduce(0, Math::max)
-            .map(max -> max + 1);
+            .reduce(0, Math::max);
     }
     
     /**
-     * Copy version files to project root directory
+     * Switch the serving path of the project to the version directory.
+     * <p>
+     * Files are served from the version directory in place, so activation only swaps the
+     * snapshot of the file index. If the version directory is missing or cannot be walked, the
+     * previous snapshot keeps being served and an error is emitted.
      */
-    private Mono<Void> copyVersionToRoot(String projectName, ProjectVersion version) {
-        return client.get(Project.class, projectName)
-            .flatMap(project -> Mono.fromCallable(() -> {
-                Path projectPath = getStaticRootPath().resolve(project.getSpec().getDirectory());
-                Path versionPath = projectPath.resolve(version.getSpec().getDirectory());
-                
-                try {
-                    // Create project directory if it doesn't exist
-                    Files.createDirectories(projectPath);
-                    
-                    // Clear project root (except .versions directory)
-                    if (Files.exists(projectPath) && Files.isDirectory(projectPath)) {
-                        try (var files = Files.list(projectPath)) {
-                            files.filter(path -> !path.getFileName().toString().equals(VERSIONS_DIR))
-                                .forEach(path -> {
-                                    try {
-                                        FileSystemUtils.deleteRecursively(path);
-                                    } catch (IOException e) {
-                                        log.warn("Failed to delete {}: {}", path, e.getMessage());
-                                    }
-                                });
-                        }
-                    }
-                    
-                    // Copy files from version directory to project root
-                    if (Files.exists(versionPath) && Files.isDirectory(versionPath)) {
-                        try (var paths = Files.walk(versionPath)) {
-                            paths.forEach(source -> {
-                                try {
-                                    Path destination = projectPath.resolve(
-                                        versionPath.relativize(source));
-                                    if (Files.isDirectory(source)) {
-                                        Files.createDirectories(destination);
-                                    } else {
-                                        Files.copy(source, destination, 
-                                            java.nio.file.StandardCopyOption.REPLACE_EXISTING);
-                                    }
-                                } catch (IOException e) {
-                                    log.warn("Failed to copy {} to {}: {}", 
-                                        source, projectPath, e.getMessage());
-                                }
-                            });
-                        }
-                    }
-                    
-                    log.info("Copied version {} to project root for project {}", 
-                        version.getSpec().getVersion(), projectName);
-                } catch (IOException e) {
-                    throw Exceptions.propagate(e);
-                }
-                return null;
-            }).subscribeOn(Schedulers.boundedElastic()).then());
+    private Mono<ProjectFileIndex.Snapshot> switchToVersion(String projectName, Path projectPath,
+        ProjectVersion version) {
+        return Mono.fromCallable(() -> {
+            var versionDirectory = version.getSpec().getDirectory();
+            ProjectFileIndex.Snapshot snapshot = null;
+            if (Files.isDirectory(projectPath.resolve(versionDirectory))) {
+                snapshot = fileIndex.rebuild(projectName, projectPath,
+                    version.getMetadata().getName(), versionDirectory);
+            }
+            if (snapshot == null) {
+                log.warn("Failed to switch project {} to version {}, the previously active "
+                    + "version is still served", projectName, version.getSpec().getVersion());
+                throw new IllegalStateException(
+                    "Failed to read the files of version " + version.getSpec().getVersion());
+            }
+            log.info("Switched project {} to version {}", projectName,
+                version.getSpec().getVersion());
+            return snapshot;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    /**
+     * Serve the given snapshot again after the activation of another version failed.
+     */
+    private Mono<Void> restoreSnapshot(String projectName, Path projectPath,
+        @Nullable ProjectFileIndex.Snapshot previous) {
+        return Mono.<Void>fromRunnable(() -> {
+            if (previous == null) {
+                fileIndex.remove(projectName);
+                return;
+            }
+            fileIndex.rebuild(projectName, projectPath, previous.getVersionName(),
+                previous.getVersionDirectory());
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+    
+    /**
+     * Bring the project root in line with the activated version through the
+     * {@link ProjectRootMaterializer}, which by default removes files copied there by earlier
+     * releases.
+     */
+    private Mono<Void> materialize(String projectName, Path projectPath,
+        ProjectFileIndex.Snapshot snapshot, ProjectVersion version) {
+        return Mono.<Void>fromRunnable(() -> {
+            try {
+                rootMaterializer.materialize(projectPath, snapshot.getRoot());
+            } catch (IOException e) {
+                log.warn("Failed to materialize version {} into the root of project {}: {}",
+                    version.getSpec().getVersion(), projectName, e.getMessage());
+            }
+        }).subscribeOn(Schedulers.boundedElastic());
     }
     
     private Path getStaticRootPath() {
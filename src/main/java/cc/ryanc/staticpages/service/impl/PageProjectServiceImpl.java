@@ -1,15 +1,26 @@
 package cc.ryanc.staticpages.service.impl;
 
+import static cc.ryanc.staticpages.utils.CompressionUtils.GZIP_EXTENSION;
 import static cc.ryanc.staticpages.utils.FileUtils.checkDirectoryTraversal;
 import static java.nio.file.StandardOpenOption.CREATE;
 
 import cc.ryanc.staticpages.extensions.Project;
 import cc.ryanc.staticpages.extensions.ProjectVersion;
+import cc.ryanc.staticpages.model.DeployContext;
 import cc.ryanc.staticpages.model.ProjectFile;
 import cc.ryanc.staticpages.model.UploadContext;
+import cc.ryanc.staticpages.model.UploadSession;
+import cc.ryanc.staticpages.service.ArchiveExtractor;
+import cc.ryanc.staticpages.service.ContentStore;
 import cc.ryanc.staticpages.service.PageFileManager;
 import cc.ryanc.staticpages.service.PageProjectService;
+import cc.ryanc.staticpages.service.ProjectFileIndex;
+import cc.ryanc.staticpages.service.ProjectLockManager;
+import cc.ryanc.staticpages.service.UploadSessionManager;
+import cc.ryanc.staticpages.service.VersionGarbageCollector;
+import cc.ryanc.staticpages.service.VersionManifest;
 import cc.ryanc.staticpages.service.VersionService;
+import cc.ryanc.staticpages.utils.CompressionUtils;
 import cc.ryanc.staticpages.utils.FileUtils;
 import java.io.File;
 import java.io.IOException;
@@ -19,11 +30,26 @@ import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 import org.springframework.util.FileSystemUtils;
@@ -35,17 +61,26 @@ import reactor.core.scheduler.Schedulers;
 import run.halo.app.extension.ReactiveExtensionClient;
 import run.halo.app.infra.BackupRootGetter;
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class PageProjectServiceImpl implements PageProjectService {
     private static final DateTimeFormatter DATE_FORMATTER = 
         DateTimeFormatter.ofPattern("yyyy/M/d HH:mm:ss")
             .withZone(ZoneId.systemDefault());
+    private static final String VERSIONS_DIR = "versions";
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-f]{64}");
     
     private final ReactiveExtensionClient client;
     private final BackupRootGetter backupRootGetter;
     private final PageFileManager pageFileManager;
     private final VersionService versionService;
+    private final ProjectFileIndex fileIndex;
+    private final ContentStore contentStore;
+    private final UploadSessionManager uploadSessionManager;
+    private final ArchiveExtractor archiveExtractor;
+    private final ProjectLockManager lockManager;
+    private final VersionGarbageCollector garbageCollector;
 
     private static String getType(File file) {
         String name = file.getName();
@@ -77,10 +112,17 @@ public class PageProjectServiceImpl implements PageProjectService {
                     sink.complete();
                     return;
                 }
+                var fileNames = new HashSet<String>(files.length);
+                for (File file : files) {
+                    fileNames.add(file.getName());
+                }
                 for (File file : files) {
                     if (sink.isCancelled()) {
                         break;
                     }
+                    if (isPrecompressedVariant(file, fileNames)) {
+                        continue;
+                    }
                     var projectFile = new ProjectFile()
                         .setPath(file.getAbsolutePath())
                         .setDirectory(file.isDirectory())
@@ -97,6 +139,15 @@ public class PageProjectServiceImpl implements PageProjectService {
             .subscribeOn(Schedulers.boundedElastic());
     }
 
+    /**
+     * Precompressed variants are generated from their source file and kept out of the editor.
+     */
+    private static boolean isPrecompressedVariant(File file, Set<String> fileNames) {
+        var name = file.getName();
+        return name.endsWith(GZIP_EXTENSION) && fileNames.contains(
+            name.substring(0, name.length() - GZIP_EXTENSION.length()));
+    }
+
     static Path concatPath(Path root, String... segments) {
         if (segments.length == 0) {
             return root;
@@ -121,10 +172,9 @@ public class PageProjectServiceImpl implements PageProjectService {
         var formattedTime = DATE_FORMATTER.format(now);
         var description = "上传于 " + formattedTime;
         
-        // Note: createVersion and activateVersion both use locks internally.
-        // However, to ensure atomicity of the entire upload+activate operation,
-        // the operations are chained within their respective locks.
-        // This prevents race conditions where two uploads could interleave.
+        // Note: activateVersion takes the exclusive project lock.
+        // The upload itself writes to the new, not yet visible version directory, so
+        // editor reads of the active version are only held up by the activation.
         return versionService.createVersion(projectName, description)
             .flatMap(version -> {
                 // Upload to the new version directory
@@ -135,15 +185,22 @@ public class PageProjectServiceImpl implements PageProjectService {
                         var uploadDir = uploadContext.getDir();
                         
                         // Build path: static/{projectDir}/{versionDir}/{uploadDir}
-                        Path basePath = getStaticRootPath()
+                        Path versionPath = getStaticRootPath()
                             .resolve(projectDir)
                             .resolve(versionDir);
+                        Path basePath = versionPath;
                         
                         if (StringUtils.isNotBlank(uploadDir)) {
                             basePath = concatPath(basePath, pathSegments(uploadDir));
                         }
                         
-                        return writeToFile(basePath, uploadContext)
+                        // Files are hashed while they are written, so they are not read again
+                        var hashes = new ConcurrentHashMap<Path, String>();
+                        return writeToFile(basePath, uploadContext, hashes::put)
+                            .flatMap(path -> precompress(path, hashes::put).thenReturn(path))
+                            .flatMap(path -> intern(versionPath, hashes).thenReturn(path))
+                            .flatMap(path -> recordStatistics(
+                                version.getMetadata().getName(), versionPath).thenReturn(path))
                             .flatMap(path -> {
                                 // Always activate the new version automatically
                                 // activateVersion uses lock to prevent concurrent activation
@@ -152,40 +209,169 @@ public class PageProjectServiceImpl implements PageProjectService {
                                     .thenReturn(path);
                             });
                     });
+            })
+            // Apply the retention policies in the background now that a version was added
+            .doFinally(signal -> garbageCollector.request(projectName));
+    }
+
+    @Override
+    public Mono<UploadSession> createUploadSession(String projectName, String filename,
+        long size, boolean unzip, String dir) {
+        return client.get(Project.class, projectName)
+            .flatMap(project -> {
+                // Spool outside the static directory, so partial uploads are never served
+                var spoolDir = UploadSessionManager.spoolDirOf(getWorkDir(), projectName);
+                return uploadSessionManager.create(projectName, spoolDir, filename, size, unzip,
+                    dir);
+            });
+    }
+
+    @Override
+    public Mono<Path> commitUploadSession(String projectName, String sessionId) {
+        return uploadSessionManager.commit(projectName, sessionId)
+            .flatMap(uploadContext -> upload(uploadContext)
+                .publishOn(Schedulers.boundedElastic())
+                .doOnSuccess(path -> uploadSessionManager.remove(sessionId))
+                .doOnError(e -> uploadSessionManager.reopen(sessionId)));
+    }
+
+    @Override
+    public Mono<Set<String>> findMissingContent(String projectName, Map<String, String> files) {
+        var manifest = normalizeManifest(files);
+        return client.get(Project.class, projectName)
+            .flatMap(project -> {
+                var projectPath = determineProjectPath(project.getSpec().getDirectory());
+                return versionService.getActiveVersion(projectName)
+                    .map(version -> Optional.of(
+                        projectPath.resolve(version.getSpec().getDirectory())))
+                    .defaultIfEmpty(Optional.empty())
+                    .publishOn(Schedulers.boundedElastic())
+                    .map(activeVersionPath -> {
+                        var available = new HashSet<String>();
+                        activeVersionPath.ifPresent(path -> VersionManifest.load(path)
+                            .forEach((relativePath, entry) -> available.add(entry.hash())));
+                        var versionsPath = projectPath.resolve(VERSIONS_DIR);
+                        var missing = new LinkedHashSet<String>();
+                        for (var hash : manifest.values()) {
+                            if (!available.contains(hash)
+                                && !contentStore.contains(versionsPath, hash)) {
+                                missing.add(hash);
+                            }
+                        }
+                        return missing;
+                    });
             });
     }
 
+    @Override
+    public Mono<Path> deploy(DeployContext deployContext) {
+        var projectName = deployContext.getName();
+        var files = normalizeManifest(deployContext.getFiles());
+        var description = "部署于 " + DATE_FORMATTER.format(Instant.now());
+        return client.get(Project.class, projectName)
+            .flatMap(project -> versionService.getActiveVersion(projectName)
+                .map(version -> Optional.of(version.getSpec().getDirectory()))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(previousVersionDir -> versionService
+                    .createVersion(projectName, description)
+                    .flatMap(version -> {
+                        var versionName = version.getMetadata().getName();
+                        var projectPath = determineProjectPath(project.getSpec().getDirectory());
+                        var versionPath = projectPath.resolve(version.getSpec().getDirectory());
+                        var previousVersionPath = previousVersionDir.map(projectPath::resolve)
+                            .orElse(null);
+                        // Assembled files carry the hashes of the deployment, variants are
+                        // hashed while they are written
+                        var hashes = new ConcurrentHashMap<Path, String>();
+                        // Stored objects are not linked before the version is assembled
+                        var versionsPath = versionPath.getParent();
+                        return Mono.usingWhen(
+                                Mono.fromCallable(() -> contentStore.retainObjects(versionsPath))
+                                    .subscribeOn(Schedulers.boundedElastic()),
+                                retention -> storeContents(versionsPath,
+                                    deployContext.getContents())
+                                    .then(assemble(versionPath, files, previousVersionPath)),
+                                retention -> Mono.fromRunnable(retention::close))
+                            .then(precompress(versionPath, hashes::put))
+                            .then(intern(versionPath, hashes))
+                            .then(recordStatistics(versionName, versionPath))
+                            .then(Mono.defer(() -> versionService.activateVersion(versionName)))
+                            .thenReturn(versionPath)
+                            // Do not leave an incomplete version behind
+                            .onErrorResume(e -> versionService.deleteVersion(versionName)
+                                .onErrorResume(deleteError -> {
+                                    log.warn("Failed to delete incomplete version {}",
+                                        versionName, deleteError);
+                                    return Mono.empty();
+                                })
+                                .then(Mono.error(e)));
+                    })))
+            .doFinally(signal -> garbageCollector.request(projectName));
+    }
+
     @Override
     public Flux<ProjectFile> listFiles(String name, String directoryPath) {
-        return extractProjectFilePathWithVersion(name, directoryPath)
-            .flatMapMany(PageProjectServiceImpl::doListFiles);
+        return lockManager.withSharedLock(name,
+            extractProjectFilePathWithVersion(name, directoryPath)
+                .flatMapMany(PageProjectServiceImpl::doListFiles));
     }
 
     @Override
     public Mono<Boolean> deleteFile(String projectName, String path) {
-        return extractProjectFilePathWithVersion(projectName, path)
-            .flatMap(filePath -> Mono.fromCallable(
-                    () -> FileSystemUtils.deleteRecursively(filePath))
-                .subscribeOn(Schedulers.boundedElastic())
-            );
+        return lockManager.withLock(projectName,
+            extractProjectFilePathWithVersion(projectName, path)
+                .flatMap(filePath -> Mono.fromCallable(() -> {
+                        var regularFile = Files.isRegularFile(filePath);
+                        var deleted = FileSystemUtils.deleteRecursively(filePath);
+                        fileIndex.removeFile(projectName, filePath);
+                        var gzipFile = filePath.resolveSibling(
+                            filePath.getFileName() + GZIP_EXTENSION);
+                        if (regularFile && Files.deleteIfExists(gzipFile)) {
+                            fileIndex.removeFile(projectName, gzipFile);
+                        }
+                        return deleted;
+                    })
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(deleted -> refreshStatistics(projectName).thenReturn(deleted))
+                ));
     }
 
     @Override
     public Mono<String> readFileContent(String projectName, String path) {
-        return extractProjectFilePathWithVersion(projectName, path)
-            .flatMap(pageFileManager::readString);
+        return lockManager.withSharedLock(projectName,
+            extractProjectFilePathWithVersion(projectName, path)
+                .flatMap(pageFileManager::readString));
     }
 
     @Override
     public Mono<Void> writeContent(String projectName, String path, String content) {
-        return extractProjectFilePathWithVersion(projectName, path)
-            .flatMap(filePath -> pageFileManager.writeString(filePath, content));
+        return lockManager.withLock(projectName,
+            extractProjectFilePathWithVersion(projectName, path)
+                .flatMap(filePath -> pageFileManager.writeString(filePath, content)
+                    .then(Mono.fromCallable(() -> {
+                            fileIndex.addFile(projectName, filePath);
+                            // Regenerate or drop the precompressed variant of the old content
+                            var gzipFile = CompressionUtils.precompress(filePath);
+                            if (gzipFile != null) {
+                                fileIndex.addFile(projectName, gzipFile);
+                            } else {
+                                fileIndex.removeFile(projectName, filePath.resolveSibling(
+                                    filePath.getFileName() + GZIP_EXTENSION));
+                            }
+                            return filePath;
+                        })
+                        .subscribeOn(Schedulers.boundedElastic()))
+                    .then(refreshStatistics(projectName))));
     }
 
     @Override
     public Mono<Path> createFile(String projectName, String path, boolean dir) {
-        return extractProjectFilePathWithVersion(projectName, path)
-            .flatMap(filePath -> pageFileManager.createFile(filePath, dir).thenReturn(filePath));
+        return lockManager.withLock(projectName,
+            extractProjectFilePathWithVersion(projectName, path)
+                .flatMap(filePath -> pageFileManager.createFile(filePath, dir)
+                    .then(Mono.fromRunnable(() -> fileIndex.addFile(projectName, filePath)))
+                    .then(refreshStatistics(projectName))
+                    .thenReturn(filePath)));
     }
 
     @Override
@@ -194,11 +380,29 @@ public class PageProjectServiceImpl implements PageProjectService {
         return Mono.fromCallable(() -> {
                 var path = determineProjectPath(project.getSpec().getDirectory());
                 FileSystemUtils.deleteRecursively(path);
+                FileSystemUtils.deleteRecursively(UploadSessionManager.spoolDirOf(getWorkDir(),
+                    project.getMetadata().getName()));
                 return Mono.empty();
             })
             .then();
     }
 
+    @Override
+    public Mono<Void> rebuildFileIndex(Project project) {
+        var projectName = project.getMetadata().getName();
+        var projectPath = determineProjectPath(project.getSpec().getDirectory());
+        return versionService.getActiveVersion(projectName)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .publishOn(Schedulers.boundedElastic())
+            .doOnNext(activeVersion -> activeVersion.ifPresentOrElse(
+                version -> fileIndex.rebuild(projectName, projectPath,
+                    version.getMetadata().getName(), version.getSpec().getDirectory()),
+                () -> fileIndex.rebuild(projectName, projectPath, null, null)
+            ))
+            .then();
+    }
+
     @Override
     public Path determinePath(String directory) {
         return determineProjectPath(directory);
@@ -210,9 +414,28 @@ public class PageProjectServiceImpl implements PageProjectService {
     }
     
     /**
-     * Extract project file path with version support
+     * Extract project file path with version support.
+     * <p>
+     * The snapshot of the file index is swapped when a version is activated and rebuilt after
+     * the project directory moved, so its root is where the active version lives and the path
+     * resolves without reading the project and its versions. Projects not indexed yet fall back
+     * to the extension store.
+     * <p>
+     * The snapshot is read on subscription, so an operation waiting for the project lock
+     * resolves against the version that is active once it holds the lock.
      */
     Mono<Path> extractProjectFilePathWithVersion(String projectName, String extractPath) {
+        return Mono.defer(() -> {
+            var snapshot = fileIndex.get(projectName);
+            if (snapshot != null) {
+                return Mono.fromCallable(
+                    () -> concatPath(snapshot.getRoot(), pathSegments(extractPath)));
+            }
+            return extractProjectFilePathFromStore(projectName, extractPath);
+        });
+    }
+
+    private Mono<Path> extractProjectFilePathFromStore(String projectName, String extractPath) {
         return client.get(Project.class, projectName)
             .flatMap(project -> versionService.getActiveVersion(projectName)
                 .map(version -> {
@@ -234,7 +457,139 @@ public class PageProjectServiceImpl implements PageProjectService {
         return concatPath(getStaticRootPath(), pathSegments(projectDir));
     }
 
-    private Mono<Path> writeToFile(Path storePath, UploadContext uploadContext) {
+    /**
+     * Normalize the paths and hashes of a deployment manifest.
+     *
+     * @throws ServerWebInputException if a path or hash is invalid
+     */
+    static Map<String, String> normalizeManifest(Map<String, String> files) {
+        if (files == null || files.isEmpty()) {
+            throw new ServerWebInputException("The manifest must not be empty.");
+        }
+        var manifest = new LinkedHashMap<String, String>(files.size());
+        files.forEach((path, hash) -> {
+            var relativePath = String.join("/", pathSegments(path));
+            if (relativePath.isEmpty()) {
+                throw new ServerWebInputException("Invalid path in manifest: " + path);
+            }
+            var normalizedHash = StringUtils.defaultString(hash).toLowerCase(Locale.ROOT);
+            if (!SHA256_PATTERN.matcher(normalizedHash).matches()) {
+                throw new ServerWebInputException("Invalid SHA-256 hash of " + path + ": " + hash);
+            }
+            manifest.put(relativePath, normalizedHash);
+        });
+        return manifest;
+    }
+
+    /**
+     * Move the uploaded content into the content store, checking each part against the hash
+     * it is named by.
+     */
+    private Mono<Void> storeContents(Path versionsPath, List<FilePart> contents) {
+        return Flux.fromIterable(contents)
+            .concatMap(part -> Mono.fromCallable(() -> {
+                    Files.createDirectories(versionsPath);
+                    return Files.createTempFile(versionsPath, ".upload-", ".tmp");
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(tempFile -> DataBufferUtils.write(part.content(), tempFile)
+                    .then(Mono.fromCallable(() -> contentStore.add(versionsPath, tempFile))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                    .onErrorResume(e -> FileUtils.deleteFileSilently(tempFile)
+                        .then(Mono.error(e))))
+                .doOnNext(hash -> {
+                    if (!hash.equalsIgnoreCase(part.filename())) {
+                        throw new ServerWebInputException(
+                            "The content of " + part.filename() + " does not match its hash.");
+                    }
+                }))
+            .then();
+    }
+
+    /**
+     * Link the files of the deployment into the new version.
+     */
+    private Mono<Void> assemble(Path versionPath, Map<String, String> files,
+        @Nullable Path previousVersionPath) {
+        return Mono.fromCallable(
+                () -> contentStore.assemble(versionPath, files, previousVersionPath))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(missing -> {
+                if (missing.isEmpty()) {
+                    return Mono.<Void>empty();
+                }
+                return Mono.error(new ServerWebInputException("The content of " + missing.size()
+                    + " files is missing, check the deployment again and upload it."));
+            });
+    }
+
+    private static Mono<Void> precompress(Path path, BiConsumer<Path, String> hashConsumer) {
+        return Mono.fromRunnable(() -> {
+                try {
+                    CompressionUtils.precompressAll(path, hashConsumer);
+                } catch (IOException e) {
+                    throw Exceptions.propagate(e);
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+
+    /**
+     * Deduplicate the files of the uploaded version against the previous versions.
+     *
+     * @param hashes the hashes of the files computed while they were written
+     */
+    private Mono<Void> intern(Path versionPath, Map<Path, String> hashes) {
+        return Mono.fromRunnable(() -> {
+                try {
+                    contentStore.intern(versionPath, hashes);
+                } catch (IOException e) {
+                    throw Exceptions.propagate(e);
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .then();
+    }
+
+    /**
+     * Record the size, file count and largest files of the new version from the manifest
+     * written while interning it, so the version directory is not walked again.
+     */
+    private Mono<Void> recordStatistics(String versionName, Path versionPath) {
+        return Mono.fromCallable(() -> VersionManifest.load(versionPath).statistics())
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(statistics -> versionService.updateStatistics(versionName, statistics))
+            .onErrorResume(e -> {
+                log.warn("Failed to record the statistics of version {}", versionName, e);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    /**
+     * Bring the statistics of the active version up to date after an editor change, from the
+     * manifest the file index keeps current.
+     */
+    private Mono<Void> refreshStatistics(String projectName) {
+        return Mono.defer(() -> {
+            var snapshot = fileIndex.get(projectName);
+            var statistics = snapshot == null ? null : snapshot.getStatistics();
+            if (statistics == null) {
+                return Mono.empty();
+            }
+            return versionService.updateStatistics(snapshot.getVersionName(), statistics)
+                .onErrorResume(e -> {
+                    log.warn("Failed to update the statistics of version {}",
+                        snapshot.getVersionName(), e);
+                    return Mono.empty();
+                })
+                .then();
+        });
+    }
+
+    private Mono<Path> writeToFile(Path storePath, UploadContext uploadContext,
+        BiConsumer<Path, String> hashConsumer) {
         return Mono.fromCallable(() -> {
                 try {
                     Files.createDirectories(storePath);
@@ -246,20 +601,34 @@ public class PageProjectServiceImpl implements PageProjectService {
             .subscribeOn(Schedulers.boundedElastic())
             .flatMap(rootPath -> {
                 if (uploadContext.isUnzip()) {
-                    return FileUtils.unzipTo(uploadContext.getFilePart().content(), rootPath)
+                    return archiveExtractor.extract(uploadContext.getContent(), rootPath,
+                            uploadContext.getFormat(), hashConsumer)
                         .thenReturn(rootPath);
                 }
-                var filePath = rootPath.resolve(uploadContext.getFilePart().filename());
-                return writeToFile(uploadContext.getFilePart().content(), filePath);
+                var filePath = rootPath.resolve(uploadContext.getFilename());
+                checkDirectoryTraversal(rootPath, filePath);
+                return writeToFile(uploadContext.getContent(), filePath, hashConsumer);
             });
     }
 
-    private Mono<Path> writeToFile(Flux<DataBuffer> content, Path targetPath) {
-        return Mono.defer(() -> DataBufferUtils.write(content, targetPath, CREATE))
+    private Mono<Path> writeToFile(Flux<DataBuffer> content, Path targetPath,
+        BiConsumer<Path, String> hashConsumer) {
+        return Mono.defer(() -> {
+                var digest = FileUtils.newSha256Digest();
+                return DataBufferUtils.write(
+                        content.doOnNext(buffer -> FileUtils.update(digest, buffer)),
+                        targetPath, CREATE)
+                    .then(Mono.fromRunnable(() -> hashConsumer.accept(targetPath,
+                        HexFormat.of().formatHex(digest.digest()))));
+            })
             .thenReturn(targetPath);
     }
 
     private Path getStaticRootPath() {
-        return backupRootGetter.get().getParent().resolve("static");
+        return getWorkDir().resolve("static");
+    }
+
+    private Path getWorkDir() {
+        return backupRootGetter.get().getParent();
     }
 }
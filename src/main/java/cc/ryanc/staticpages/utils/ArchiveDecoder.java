@@ -0,0 +1,55 @@
+package cc.ryanc.staticpages.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Push-based decoder of an archive stream, fed with the buffers of a request body as they
+ * arrive and reporting the entries to an {@link EntryHandler}.
+ */
+public interface ArchiveDecoder extends Closeable {
+
+    /**
+     * Decode the next part of the stream. The input is consumed completely.
+     *
+     * @param input the next bytes of the stream
+     * @throws IOException if the stream is invalid or the handler fails
+     */
+    void decode(ByteBuffer input) throws IOException;
+
+    /**
+     * Signal the end of the stream.
+     *
+     * @throws IOException if the stream ends inside an entry
+     */
+    void finish() throws IOException;
+
+    /**
+     * Release the resources of the decoder.
+     */
+    @Override
+    void close();
+
+    /**
+     * Receives the entries of an archive.
+     */
+    interface EntryHandler {
+
+        /**
+         * Start an entry; names of directory entries end with a slash.
+         */
+        void startEntry(String name) throws IOException;
+
+        /**
+         * Write the next uncompressed bytes of the current entry. The buffer is only valid
+         * during the call.
+         */
+        void write(ByteBuffer data) throws IOException;
+
+        /**
+         * End the current entry after its content was verified.
+         */
+        void endEntry() throws IOException;
+    }
+}
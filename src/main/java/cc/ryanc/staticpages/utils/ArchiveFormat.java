@@ -0,0 +1,128 @@
+package cc.ryanc.staticpages.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import org.springframework.lang.Nullable;
+
+/**
+ * Archive formats that can be extracted from an upload.
+ */
+public enum ArchiveFormat {
+    ZIP(Set.of("zip")),
+    TAR(Set.of("tar")),
+    TAR_GZ(Set.of("tar.gz", "tgz")),
+    TAR_ZST(Set.of("tar.zst", "tzst"));
+
+    /**
+     * Number of leading bytes needed to tell the formats apart; the ustar magic of a tar header
+     * ends at this offset.
+     */
+    static final int SNIFF_LENGTH = 262;
+
+    private static final byte[] ZIP_LOCAL_HEADER = {'P', 'K', 3, 4};
+    private static final byte[] ZIP_EMPTY = {'P', 'K', 5, 6};
+    private static final byte[] GZIP = {0x1f, (byte) 0x8b};
+    private static final byte[] ZSTD = {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd};
+    private static final byte[] USTAR = {'u', 's', 't', 'a', 'r'};
+    private static final int USTAR_OFFSET = 257;
+
+    private final Set<String> names;
+
+    ArchiveFormat(Set<String> names) {
+        this.names = names;
+    }
+
+    /**
+     * Get the format by one of its names, like {@code zip} or {@code tar.zst}.
+     *
+     * @param name the format name, blank or {@code auto} to detect the format from the content
+     * @return the format or null to detect it
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    @Nullable
+    public static ArchiveFormat of(@Nullable String name) {
+        if (name == null || name.isBlank() || "auto".equalsIgnoreCase(name.trim())) {
+            return null;
+        }
+        var normalized = name.trim().toLowerCase(Locale.ROOT);
+        for (var format : values()) {
+            if (format.names.contains(normalized)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported archive format: " + name);
+    }
+
+    /**
+     * Detect the format of an archive file from its leading bytes.
+     *
+     * @param file the archive file
+     * @return the format or null if it is not recognized
+     * @throws IOException if the file cannot be read
+     */
+    @Nullable
+    public static ArchiveFormat detect(Path file) throws IOException {
+        var head = ByteBuffer.allocate(SNIFF_LENGTH);
+        try (var channel = FileChannel.open(file)) {
+            while (head.hasRemaining() && channel.read(head) >= 0) {
+                // Read until the buffer is full or the file ends
+            }
+        }
+        return detect(head.flip());
+    }
+
+    /**
+     * Detect the format from the leading bytes of an archive.
+     *
+     * @param head the first bytes, up to {@link #SNIFF_LENGTH}, between position and limit
+     * @return the format or null if it is not recognized
+     */
+    @Nullable
+    static ArchiveFormat detect(ByteBuffer head) {
+        if (startsWith(head, 0, ZIP_LOCAL_HEADER) || startsWith(head, 0, ZIP_EMPTY)) {
+            return ZIP;
+        }
+        if (startsWith(head, 0, GZIP)) {
+            return TAR_GZ;
+        }
+        if (startsWith(head, 0, ZSTD)) {
+            return TAR_ZST;
+        }
+        if (startsWith(head, USTAR_OFFSET, USTAR)) {
+            return TAR;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(ByteBuffer head, int offset, byte[] magic) {
+        var start = head.position() + offset;
+        if (head.limit() < start + magic.length) {
+            return false;
+        }
+        var bytes = new byte[magic.length];
+        head.get(start, bytes);
+        return Arrays.equals(bytes, magic);
+    }
+
+    /**
+     * Create a decoder for this format.
+     *
+     * @param handler receives the entries
+     * @param spoolDir the directory for temporary files of formats that cannot be decoded
+     * while streaming
+     * @return the decoder
+     */
+    ArchiveDecoder createDecoder(ArchiveDecoder.EntryHandler handler, Path spoolDir) {
+        return switch (this) {
+            case ZIP -> new ZipStreamDecoder(handler);
+            case TAR -> new TarStreamDecoder(handler);
+            case TAR_GZ -> new GzipStreamDecoder(new TarStreamDecoder(handler));
+            case TAR_ZST -> new ZstdSpoolingDecoder(new TarStreamDecoder(handler), spoolDir);
+        };
+    }
+}
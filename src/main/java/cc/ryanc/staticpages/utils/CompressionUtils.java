@@ -0,0 +1,157 @@
+package cc.ryanc.staticpages.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import lombok.experimental.UtilityClass;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Generates precompressed siblings of static files, e.g. {@code app.js.gz} next to
+ * {@code app.js}, so they can be served without compressing on every request.
+ * <p>
+ * Only gzip is produced, as the JDK has no Brotli encoder.
+ */
+@Slf4j
+@UtilityClass
+public class CompressionUtils {
+
+    public static final String GZIP_EXTENSION = ".gz";
+
+    /**
+     * Files smaller than this are not worth compressing.
+     */
+    static final long MIN_SIZE = 1024;
+
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of(
+        "html", "htm", "css", "js", "mjs", "cjs", "json", "map", "xml", "svg", "txt", "md",
+        "csv", "webmanifest", "wasm", "ttf", "otf", "eot", "ico"
+    );
+
+    /**
+     * Check whether the file name has an extension worth compressing.
+     *
+     * @param fileName the file name
+     * @return true if the file is compressible; false otherwise
+     */
+    public static boolean isCompressible(@NonNull String fileName) {
+        var extension = StringUtils.substringAfterLast(fileName, ".");
+        return COMPRESSIBLE_EXTENSIONS.contains(extension.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Precompress all compressible files under the given path.
+     *
+     * @param path a directory or a single file
+     * @throws IOException io exception
+     */
+    public static void precompressAll(@NonNull Path path) throws IOException {
+        precompressAll(path, null);
+    }
+
+    /**
+     * Precompress all compressible files under the given path, hashing the written variants.
+     *
+     * @param path a directory or a single file
+     * @param hashConsumer called with the path and the hex encoded SHA-256 hash of each
+     * written variant, or null if the variants need not be hashed
+     * @throws IOException io exception
+     */
+    public static void precompressAll(@NonNull Path path,
+        @Nullable BiConsumer<Path, String> hashConsumer) throws IOException {
+        Assert.notNull(path, "Path must not be null");
+        if (!Files.isDirectory(path)) {
+            precompress(path, hashConsumer);
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(path)) {
+            files = paths.filter(Files::isRegularFile).toList();
+        }
+        for (Path file : files) {
+            precompress(file, hashConsumer);
+        }
+    }
+
+    /**
+     * Write the gzip sibling of the given file, or delete a stale one if the file is no longer
+     * worth compressing.
+     *
+     * @param file the file to compress
+     * @return the gzip sibling, or {@code null} if none was written
+     * @throws IOException io exception
+     */
+    public static Path precompress(@NonNull Path file) throws IOException {
+        return precompress(file, null);
+    }
+
+    /**
+     * Write the gzip sibling of the given file like {@link #precompress(Path)} does, hashing it
+     * while it is written.
+     *
+     * @param file the file to compress
+     * @param hashConsumer called with the gzip sibling and the hex encoded SHA-256 hash of its
+     * content if one was written, or null if it need not be hashed
+     * @return the gzip sibling, or {@code null} if none was written
+     * @throws IOException io exception
+     */
+    public static Path precompress(@NonNull Path file,
+        @Nullable BiConsumer<Path, String> hashConsumer) throws IOException {
+        Assert.notNull(file, "File must not be null");
+        var fileName = file.getFileName().toString();
+        if (fileName.endsWith(GZIP_EXTENSION)) {
+            return null;
+        }
+        var gzipFile = file.resolveSibling(fileName + GZIP_EXTENSION);
+        if (!isCompressible(fileName) || !Files.isRegularFile(file)
+            || Files.size(file) < MIN_SIZE) {
+            Files.deleteIfExists(gzipFile);
+            return null;
+        }
+
+        var tempFile = file.resolveSibling("." + fileName + GZIP_EXTENSION + ".tmp");
+        var digest = FileUtils.newSha256Digest();
+        try {
+            try (var out = new BestCompressionGzipOutputStream(
+                new DigestOutputStream(Files.newOutputStream(tempFile), digest))) {
+                Files.copy(file, out);
+            }
+            // Keep the compressed variant only if it saves at least a tenth of the bytes
+            if (Files.size(tempFile) > Files.size(file) * 9 / 10) {
+                Files.deleteIfExists(gzipFile);
+                return null;
+            }
+            Files.move(tempFile, gzipFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            if (hashConsumer != null) {
+                hashConsumer.accept(gzipFile, HexFormat.of().formatHex(digest.digest()));
+            }
+            log.debug("Precompressed {}", file);
+            return gzipFile;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static class BestCompressionGzipOutputStream extends GZIPOutputStream {
+        BestCompressionGzipOutputStream(OutputStream out) throws IOException {
+            super(out, 8192);
+            def.setLevel(Deflater.BEST_COMPRESSION);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package cc.ryanc.staticpages.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import org.springframework.web.server.ServerWebInputException;
+
+/**
+ * Decoder that buffers the first bytes of a stream to detect its {@link ArchiveFormat} and
+ * then delegates to the decoder of that format.
+ */
+class DetectingArchiveDecoder implements ArchiveDecoder {
+
+    private final EntryHandler handler;
+
+    private final Path spoolDir;
+
+    private final ByteBuffer head = ByteBuffer.allocate(ArchiveFormat.SNIFF_LENGTH);
+
+    private ArchiveDecoder delegate;
+
+    DetectingArchiveDecoder(EntryHandler handler, Path spoolDir) {
+        this.handler = handler;
+        this.spoolDir = spoolDir;
+    }
+
+    @Override
+    public void decode(ByteBuffer input) throws IOException {
+        if (delegate == null) {
+            var length = Math.min(head.remaining(), input.remaining());
+            head.put(head.position(), input, input.position(), length);
+            head.position(head.position() + length);
+            input.position(input.position() + length);
+            if (head.hasRemaining()) {
+                return;
+            }
+            detect();
+        }
+        delegate.decode(input);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (delegate == null) {
+            if (head.position() == 0) {
+                // Nothing was uploaded, like an empty zip stream
+                return;
+            }
+            detect();
+        }
+        delegate.finish();
+    }
+
+    @Override
+    public void close() {
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+
+    private void detect() throws IOException {
+        head.flip();
+        var format = ArchiveFormat.detect(head);
+        if (format == null) {
+            throw new ServerWebInputException("Unsupported archive format, expected zip, tar, "
+                + "tar.gz or tar.zst");
+        }
+        delegate = format.createDecoder(handler, spoolDir);
+        delegate.decode(head);
+    }
+}
@@ -1,26 +1,49 @@
 package cc.ryanc.staticpages.utils;
 
-import static cc.ryanc.staticpages.utils.DataBufferUtils.toInputStream;
 import static org.springframework.util.FileSystemUtils.copyRecursively;
 import static org.springframework.util.FileSystemUtils.deleteRecursively;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import lombok.experimental.UtilityClass;
 import lombok.extern.slf4j.Slf4j;
 import org.reactivestreams.Publisher;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.FileSystemUtils;
 import org.springframework.web.server.ServerWebInputException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
@@ -28,48 +51,281 @@ import reactor.core.scheduler.Schedulers;
 @UtilityClass
 public class FileUtils {
 
+    /**
+     * Extract a zip archive into the store path.
+     * <p>
+     * The archive is extracted into a staging directory next to the store path and published
+     * with a single atomic rename, so each byte is written once, no space in the system temp
+     * directory is needed and the store path never holds a partial extraction. If the store
+     * path already has content, the extracted files are merged into it instead.
+     *
+     * @param content the archive content
+     * @param storePath the directory to extract to
+     * @return empty mono when the archive is extracted
+     */
     public static Mono<Void> unzipTo(Publisher<DataBuffer> content, Path storePath) {
-        return Mono.usingWhen(createTempDir("halo-staticpage"),
-                tempDir -> unzip(content, tempDir)
-                    .then(Mono.defer(() -> {
-                        try {
-                            copyRecursively(tempDir, storePath);
-                        } catch (IOException e) {
-                            deleteRecursivelyAndSilently(tempDir);
-                            return Mono.error(e);
-                        }
-                        return Mono.empty();
+        return extractTo(content, storePath, ArchiveFormat.ZIP);
+    }
+
+    /**
+     * Extract an archive into the store path like {@link #unzipTo(Publisher, Path)} does.
+     *
+     * @param content the archive content
+     * @param storePath the directory to extract to
+     * @param format the archive format or null to detect it from the content
+     * @return empty mono when the archive is extracted
+     */
+    public static Mono<Void> extractTo(Publisher<DataBuffer> content, Path storePath,
+        @Nullable ArchiveFormat format) {
+        return extractTo(content, storePath, format, null);
+    }
+
+    /**
+     * Extract an archive into the store path like {@link #unzipTo(Publisher, Path)} does,
+     * hashing each file while it is written.
+     *
+     * @param content the archive content
+     * @param storePath the directory to extract to
+     * @param format the archive format or null to detect it from the content
+     * @param hashConsumer called with the path under the store path and the hex encoded
+     * SHA-256 hash of each extracted file, or null if the files need not be hashed
+     * @return empty mono when the archive is extracted
+     */
+    public static Mono<Void> extractTo(Publisher<DataBuffer> content, Path storePath,
+        @Nullable ArchiveFormat format, @Nullable BiConsumer<Path, String> hashConsumer) {
+        return extractTo(storePath, stagingDir -> extract(content, stagingDir, format,
+            inStagingDir(hashConsumer, stagingDir, storePath)));
+    }
+
+    /**
+     * Run an extraction into a staging directory next to the store path and publish the result
+     * like {@link #unzipTo(Publisher, Path)} does.
+     *
+     * @param storePath the directory to extract to
+     * @param extraction extracts into the given empty staging directory
+     * @return empty mono when the extracted files are published
+     */
+    public static Mono<Void> extractTo(Path storePath, Function<Path, Mono<Void>> extraction) {
+        return Mono.usingWhen(createStagingDir(storePath),
+                stagingDir -> extraction.apply(stagingDir)
+                    .then(Mono.fromCallable(() -> {
+                        publish(stagingDir, storePath);
+                        return storePath;
                     }))
                     .subscribeOn(Schedulers.boundedElastic()),
-                tempDir -> Mono.fromSupplier(() -> {
-                    try {
-                        return FileSystemUtils.deleteRecursively(tempDir);
-                    } catch (IOException ignored) {
-                        return false;
-                    }
-                }).subscribeOn(Schedulers.boundedElastic())
+                stagingDir -> Mono.fromRunnable(() -> deleteRecursivelyAndSilently(stagingDir))
+                    .subscribeOn(Schedulers.boundedElastic())
             )
             .then();
     }
 
+    /**
+     * Adapt a consumer of the hashes of files under the store path to the staging directory
+     * the files are extracted to before they are published.
+     *
+     * @param hashConsumer the consumer of the hashes of files under the store path
+     * @param stagingDir the staging directory
+     * @param storePath the store path
+     * @return the consumer of the hashes of files under the staging directory
+     */
+    @Nullable
+    public static BiConsumer<Path, String> inStagingDir(
+        @Nullable BiConsumer<Path, String> hashConsumer, Path stagingDir, Path storePath) {
+        if (hashConsumer == null) {
+            return null;
+        }
+        return (file, hash) -> hashConsumer.accept(storePath.resolve(stagingDir.relativize(file)),
+            hash);
+    }
+
+    /**
+     * Create an empty directory next to the given path, on the same file system so it can be
+     * renamed to the path.
+     */
+    static Mono<Path> createStagingDir(Path path) {
+        return Mono.fromCallable(() -> {
+                var parent = path.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                return Files.createDirectory(parent.resolve(
+                    "." + path.getFileName() + ".staging-" + UUID.randomUUID()));
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static void publish(Path stagingDir, Path storePath) throws IOException {
+        if (isEmpty(storePath)) {
+            Files.deleteIfExists(storePath);
+            Files.move(stagingDir, storePath, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+        log.debug("{} is not empty, merging the extracted files into it", storePath);
+        copyRecursively(stagingDir, storePath);
+    }
+
     public static Mono<Path> createTempDir(String prefix) {
         return Mono.fromCallable(() -> Files.createTempDirectory(prefix))
             .subscribeOn(Schedulers.boundedElastic());
     }
 
+    /**
+     * Extract a zip archive as it streams in.
+     *
+     * @param content the archive content
+     * @param targetPath the empty directory to extract to
+     * @return empty mono when the archive is extracted
+     * @see #extract(Publisher, Path, ArchiveFormat)
+     */
     public static Mono<Void> unzip(Publisher<DataBuffer> content, @NonNull Path targetPath) {
-        return Mono.usingWhen(
-            toInputStream(content),
-            is -> {
-                try (var zis = new ZipInputStream(is)) {
-                    FileUtils.unzip(zis, targetPath);
-                    return Mono.empty();
-                } catch (IOException e) {
-                    return Mono.error(e);
-                }
-            },
-            is -> Mono.fromRunnable(() -> FileUtils.closeQuietly(is))
-        );
+        return extract(content, targetPath, ArchiveFormat.ZIP);
+    }
+
+    /**
+     * Extract an archive as it streams in.
+     * <p>
+     * The buffers are decoded by an {@link ArchiveDecoder} on a bounded elastic thread as they
+     * arrive, so no thread waits for the request body and no bytes are copied through a pipe.
+     * Formats that cannot be decoded while streaming spool their content next to the target
+     * path.
+     *
+     * @param content the archive content
+     * @param targetPath the empty directory to extract to
+     * @param format the archive format or null to detect it from the content
+     * @return empty mono when the archive is extracted
+     */
+    public static Mono<Void> extract(Publisher<DataBuffer> content, @NonNull Path targetPath,
+        @Nullable ArchiveFormat format) {
+        return extract(content, targetPath, format, null);
+    }
+
+    /**
+     * Extract an archive as it streams in, hashing each file while it is written.
+     *
+     * @param content the archive content
+     * @param targetPath the empty directory to extract to
+     * @param format the archive format or null to detect it from the content
+     * @param hashConsumer called with the path and the hex encoded SHA-256 hash of each
+     * extracted file, or null if the files need not be hashed
+     * @return empty mono when the archive is extracted
+     * @see #extract(Publisher, Path, ArchiveFormat)
+     */
+    public static Mono<Void> extract(Publisher<DataBuffer> content, @NonNull Path targetPath,
+        @Nullable ArchiveFormat format, @Nullable BiConsumer<Path, String> hashConsumer) {
+        Assert.notNull(targetPath, "Target path must not be null");
+        var spoolDir = targetPath.toAbsolutePath().getParent();
+        return Mono.fromCallable(() -> {
+                createIfAbsent(targetPath);
+                ensureEmpty(targetPath);
+                return targetPath;
+            })
+            .subscribeOn(Schedulers.boundedElastic())
+            .then(Mono.using(() -> new ArchiveEntryWriter(targetPath, hashConsumer),
+                writer -> Mono.using(() -> format == null
+                        ? new DetectingArchiveDecoder(writer, spoolDir)
+                        : format.createDecoder(writer, spoolDir),
+                    decoder -> Flux.from(content)
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(buffer -> decode(decoder, buffer))
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                        .then(Mono.fromRunnable(() -> {
+                            try {
+                                decoder.finish();
+                            } catch (IOException e) {
+                                throw Exceptions.propagate(e);
+                            }
+                        })),
+                    ArchiveDecoder::close),
+                ArchiveEntryWriter::close));
+    }
+
+    private static void decode(ArchiveDecoder decoder, DataBuffer buffer) {
+        try (var iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                decoder.decode(iterator.next());
+            }
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    /**
+     * Extract a zip file with several threads.
+     * <p>
+     * The entries are listed from the central directory, their directories are created once
+     * up front and the files are inflated independently on bounded elastic workers.
+     *
+     * @param zipFile the local zip file
+     * @param targetPath the empty directory to extract to
+     * @param parallelism the number of entries to inflate at once
+     * @param hashConsumer called with the path and the hex encoded SHA-256 hash of each
+     * extracted file, or null if the files need not be hashed
+     * @return empty mono when the archive is extracted
+     */
+    public static Mono<Void> unzip(@NonNull Path zipFile, @NonNull Path targetPath,
+        int parallelism, @Nullable BiConsumer<Path, String> hashConsumer) {
+        Assert.notNull(zipFile, "Zip file must not be null");
+        Assert.notNull(targetPath, "Target path must not be null");
+        return Mono.using(() -> new ZipFile(zipFile.toFile()),
+            zip -> Mono.fromCallable(() -> prepareEntries(zip, targetPath))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(Flux::fromIterable)
+                .parallel(parallelism)
+                .runOn(Schedulers.boundedElastic())
+                .doOnNext(entry -> {
+                    try {
+                        extractEntry(zip, entry, targetPath.resolve(entry.getName()).normalize(),
+                            hashConsumer);
+                    } catch (IOException e) {
+                        throw Exceptions.propagate(e);
+                    }
+                })
+                .sequential()
+                .then(),
+            FileUtils::closeQuietly);
+    }
+
+    /**
+     * Check the entry paths and create all directories, each once.
+     *
+     * @return the file entries
+     */
+    private static List<ZipEntry> prepareEntries(ZipFile zip, Path targetPath)
+        throws IOException {
+        createIfAbsent(targetPath);
+        ensureEmpty(targetPath);
+        var directories = new TreeSet<Path>();
+        var files = new ArrayList<ZipEntry>();
+        var entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            var entry = entries.nextElement();
+            var entryPath = targetPath.resolve(entry.getName());
+            checkDirectoryTraversal(targetPath, entryPath);
+            if (entry.isDirectory()) {
+                directories.add(entryPath);
+            } else {
+                directories.add(entryPath.getParent());
+                files.add(entry);
+            }
+        }
+        for (var directory : directories) {
+            Files.createDirectories(directory);
+        }
+        return files;
+    }
+
+    private static void extractEntry(ZipFile zip, ZipEntry entry, Path entryPath,
+        @Nullable BiConsumer<Path, String> hashConsumer) throws IOException {
+        var digest = newSha256Digest();
+        try (var in = new CheckedInputStream(zip.getInputStream(entry), new CRC32())) {
+            Files.copy(hashConsumer == null ? in : new DigestInputStream(in, digest), entryPath);
+            if (entry.getCrc() != -1 && in.getChecksum().getValue() != entry.getCrc()) {
+                throw new ZipException("Invalid CRC-32 of zip entry " + entry.getName());
+            }
+        }
+        if (hashConsumer != null) {
+            hashConsumer.accept(entryPath, HexFormat.of().formatHex(digest.digest()));
+        }
     }
 
     public static void unzip(@NonNull ZipInputStream zis, @NonNull Path targetPath)
@@ -157,6 +413,60 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Hard link the target to the source, or copy the source if linking is not possible, e.g.
+     * because the paths are on different file systems.
+     *
+     * @param source the existing regular file
+     * @param target the path to create, must not exist
+     * @return true if a hard link was created; false if the file was copied
+     * @throws IOException io exception
+     */
+    public static boolean linkOrCopy(@NonNull Path source, @NonNull Path target)
+        throws IOException {
+        Assert.notNull(source, "Source path must not be null");
+        Assert.notNull(target, "Target path must not be null");
+        try {
+            Files.createLink(target, source);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            log.debug("Failed to link {} to {}, copying instead: {}", target, source,
+                e.getMessage());
+        }
+        Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+        return false;
+    }
+
+    /**
+     * Create a digest computing SHA-256 hashes, the hashes of the content store and of the
+     * entity tags of served files.
+     *
+     * @return a new digest
+     */
+    public static MessageDigest newSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Update the digest with the readable bytes of the buffer, without consuming them.
+     *
+     * @param digest the digest to update
+     * @param buffer the buffer
+     */
+    public static void update(MessageDigest digest, DataBuffer buffer) {
+        try (var iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                digest.update(iterator.next());
+            }
+        }
+    }
+
     public static void deleteRecursivelyAndSilently(Path root) {
         try {
             var deleted = deleteRecursively(root);
@@ -195,6 +505,79 @@ public class FileUtils {
             .subscribeOn(Schedulers.boundedElastic());
     }
 
+    /**
+     * Writes the entries of an archive stream below the target directory, hashing each file
+     * on the way if a hash consumer is given.
+     */
+    private static final class ArchiveEntryWriter
+        implements ArchiveDecoder.EntryHandler, Closeable {
+
+        private final Path targetPath;
+
+        @Nullable
+        private final BiConsumer<Path, String> hashConsumer;
+
+        private final MessageDigest digest = newSha256Digest();
+
+        private FileChannel channel;
+
+        private Path currentFile;
+
+        private ArchiveEntryWriter(Path targetPath,
+            @Nullable BiConsumer<Path, String> hashConsumer) {
+            this.targetPath = targetPath;
+            this.hashConsumer = hashConsumer;
+        }
+
+        @Override
+        public void startEntry(String name) throws IOException {
+            var entryPath = targetPath.resolve(name);
+            checkDirectoryTraversal(targetPath, entryPath);
+            if (name.endsWith("/")) {
+                Files.createDirectories(entryPath);
+                return;
+            }
+            if (Files.notExists(entryPath.getParent())) {
+                Files.createDirectories(entryPath.getParent());
+            }
+            channel = FileChannel.open(entryPath, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+            currentFile = entryPath.normalize();
+            digest.reset();
+        }
+
+        @Override
+        public void write(ByteBuffer data) throws IOException {
+            if (channel == null) {
+                data.position(data.limit());
+                return;
+            }
+            if (hashConsumer != null) {
+                digest.update(data.duplicate());
+            }
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+
+        @Override
+        public void endEntry() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+                if (hashConsumer != null) {
+                    hashConsumer.accept(currentFile,
+                        HexFormat.of().formatHex(digest.digest()));
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closeQuietly(channel);
+        }
+    }
+
     public static void closeQuietly(final Closeable closeable) {
         closeQuietly(closeable, null);
     }
@@ -0,0 +1,244 @@
+package cc.ryanc.staticpages.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Push-based decoder of a gzip stream, which inflates the input buffers as they arrive and
+ * hands the result to the decoder of the wrapped archive.
+ * <p>
+ * Like {@link java.util.zip.GZIPInputStream}, concatenated members are read in turn and every
+ * member is verified against its CRC-32 and size.
+ */
+public class GzipStreamDecoder implements ArchiveDecoder {
+
+    private static final int MAGIC = 0x8b1f;
+    private static final int DEFLATE = 8;
+    private static final int HEADER_SIZE = 10;
+    private static final int TRAILER_SIZE = 8;
+    private static final int FLAG_HEADER_CRC = 2;
+    private static final int FLAG_EXTRA = 4;
+    private static final int FLAG_NAME = 8;
+    private static final int FLAG_COMMENT = 16;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final ArchiveDecoder downstream;
+
+    private final Inflater inflater = new Inflater(true);
+
+    private final CRC32 crc = new CRC32();
+
+    private final ByteBuffer output = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+
+    private final ByteBuffer fields = ByteBuffer.allocate(HEADER_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    private State state;
+
+    /**
+     * Optional header fields of the current member still to be read.
+     */
+    private int flags;
+
+    /**
+     * Bytes of the extra header field still to be skipped.
+     */
+    private int skip;
+
+    private int members;
+
+    public GzipStreamDecoder(ArchiveDecoder downstream) {
+        this.downstream = downstream;
+        expect(State.HEADER, HEADER_SIZE);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Bytes after the last member that do not start another member are ignored.
+     */
+    @Override
+    public void decode(ByteBuffer input) throws IOException {
+        while (state != State.DONE && step(input)) {
+            // Continue with the next state
+        }
+        input.position(input.limit());
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (members == 0 || state != State.DONE && state != State.HEADER) {
+            throw new ZipException("Unexpected end of gzip stream");
+        }
+        downstream.finish();
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+        downstream.close();
+    }
+
+    /**
+     * Advance the state machine.
+     *
+     * @return false if more input is needed
+     */
+    private boolean step(ByteBuffer input) throws IOException {
+        switch (state) {
+            case HEADER -> {
+                if (!fill(input)) {
+                    return false;
+                }
+                if (Short.toUnsignedInt(fields.getShort(0)) != MAGIC) {
+                    if (members > 0) {
+                        // Trailing garbage, as GZIPInputStream accepts it
+                        state = State.DONE;
+                        return true;
+                    }
+                    throw new ZipException("Not in gzip format");
+                }
+                if (Byte.toUnsignedInt(fields.get(2)) != DEFLATE) {
+                    throw new ZipException("Unsupported gzip compression method");
+                }
+                flags = Byte.toUnsignedInt(fields.get(3));
+                nextHeaderField();
+            }
+            case EXTRA_LENGTH -> {
+                if (!fill(input)) {
+                    return false;
+                }
+                skip = Short.toUnsignedInt(fields.getShort(0));
+                state = State.EXTRA;
+            }
+            case EXTRA -> {
+                var length = Math.min(skip, input.remaining());
+                input.position(input.position() + length);
+                skip -= length;
+                if (skip > 0) {
+                    return false;
+                }
+                nextHeaderField();
+            }
+            case ZERO_TERMINATED -> {
+                while (input.hasRemaining()) {
+                    if (input.get() == 0) {
+                        nextHeaderField();
+                        return true;
+                    }
+                }
+                return false;
+            }
+            case HEADER_CRC -> {
+                if (!fill(input)) {
+                    return false;
+                }
+                nextHeaderField();
+            }
+            case DATA -> {
+                return inflate(input);
+            }
+            case TRAILER -> {
+                if (!fill(input)) {
+                    return false;
+                }
+                if (Integer.toUnsignedLong(fields.getInt(0)) != crc.getValue()) {
+                    throw new ZipException("Corrupt gzip trailer, invalid CRC-32");
+                }
+                if (Integer.toUnsignedLong(fields.getInt(4))
+                    != (inflater.getBytesWritten() & 0xffffffffL)) {
+                    throw new ZipException("Corrupt gzip trailer, invalid size");
+                }
+                members++;
+                expect(State.HEADER, HEADER_SIZE);
+            }
+            default -> throw new IllegalStateException("Unexpected state " + state);
+        }
+        return true;
+    }
+
+    /**
+     * Continue with the next optional header field, or the compressed data.
+     */
+    private void nextHeaderField() {
+        if ((flags & FLAG_EXTRA) != 0) {
+            flags &= ~FLAG_EXTRA;
+            expect(State.EXTRA_LENGTH, 2);
+        } else if ((flags & FLAG_NAME) != 0) {
+            flags &= ~FLAG_NAME;
+            state = State.ZERO_TERMINATED;
+        } else if ((flags & FLAG_COMMENT) != 0) {
+            flags &= ~FLAG_COMMENT;
+            state = State.ZERO_TERMINATED;
+        } else if ((flags & FLAG_HEADER_CRC) != 0) {
+            flags &= ~FLAG_HEADER_CRC;
+            expect(State.HEADER_CRC, 2);
+        } else {
+            inflater.reset();
+            crc.reset();
+            state = State.DATA;
+        }
+    }
+
+    private boolean inflate(ByteBuffer input) throws IOException {
+        if (!inflater.finished()) {
+            inflater.setInput(input);
+            try {
+                while (!inflater.finished()) {
+                    output.clear();
+                    var length = inflater.inflate(output);
+                    if (length > 0) {
+                        output.flip();
+                        crc.update(output.duplicate());
+                        downstream.decode(output);
+                    } else if (inflater.needsInput()) {
+                        return false;
+                    } else if (inflater.needsDictionary()) {
+                        throw new ZipException("Invalid gzip data, preset dictionary needed");
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+        // The inflater advanced the input to the end of the member data
+        expect(State.TRAILER, TRAILER_SIZE);
+        return true;
+    }
+
+    private void expect(State next, int length) {
+        fields.clear().limit(length);
+        state = next;
+    }
+
+    /**
+     * Copy input into the field buffer.
+     *
+     * @return true if all expected bytes are collected
+     */
+    private boolean fill(ByteBuffer input) {
+        var length = Math.min(fields.remaining(), input.remaining());
+        if (length > 0) {
+            fields.put(fields.position(), input, input.position(), length);
+            fields.position(fields.position() + length);
+            input.position(input.position() + length);
+        }
+        return !fields.hasRemaining();
+    }
+
+    private enum State {
+        HEADER,
+        EXTRA_LENGTH,
+        EXTRA,
+        ZERO_TERMINATED,
+        HEADER_CRC,
+        DATA,
+        TRAILER,
+        DONE
+    }
+}
@@ -0,0 +1,358 @@
+package cc.ryanc.staticpages.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Push-based decoder of a tar stream, fed with uncompressed buffers as they arrive.
+ * <p>
+ * Reads ustar archives with the GNU long name and pax path extensions, as written by GNU tar,
+ * bsdtar and most archive libraries. Only regular files and directories are extracted; links
+ * and special files are skipped because they could point outside the target directory.
+ */
+public class TarStreamDecoder implements ArchiveDecoder {
+
+    private static final int BLOCK_SIZE = 512;
+
+    /**
+     * Upper bound of a long name or pax header, which is held in memory.
+     */
+    private static final int MAX_METADATA_SIZE = 1024 * 1024;
+
+    private static final int NAME_OFFSET = 0;
+    private static final int NAME_LENGTH = 100;
+    private static final int SIZE_OFFSET = 124;
+    private static final int SIZE_LENGTH = 12;
+    private static final int CHECKSUM_OFFSET = 148;
+    private static final int CHECKSUM_LENGTH = 8;
+    private static final int TYPE_OFFSET = 156;
+    private static final int MAGIC_OFFSET = 257;
+    private static final int PREFIX_OFFSET = 345;
+    private static final int PREFIX_LENGTH = 155;
+
+    private final EntryHandler handler;
+
+    private final ByteBuffer header = ByteBuffer.allocate(BLOCK_SIZE);
+
+    private State state = State.HEADER;
+
+    private Target target;
+
+    /**
+     * Content of a long name or pax header.
+     */
+    private ByteBuffer metadata;
+
+    private byte metadataType;
+
+    /**
+     * Name of the next entry from a long name or pax header.
+     */
+    private String pendingName;
+
+    /**
+     * Bytes of the current entry still to be read.
+     */
+    private long remaining;
+
+    /**
+     * Bytes padding the current entry to a full block.
+     */
+    private int padding;
+
+    public TarStreamDecoder(EntryHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Bytes after the end-of-archive marker are ignored.
+     */
+    @Override
+    public void decode(ByteBuffer input) throws IOException {
+        while (state != State.DONE && step(input)) {
+            // Continue with the next state
+        }
+        input.position(input.limit());
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // Some writers omit the end-of-archive marker
+        if (state == State.DONE
+            || state == State.HEADER && header.position() == 0 && pendingName == null) {
+            return;
+        }
+        throw new IOException("Unexpected end of tar stream");
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+
+    /**
+     * Advance the state machine.
+     *
+     * @return false if more input is needed
+     */
+    private boolean step(ByteBuffer input) throws IOException {
+        switch (state) {
+            case HEADER -> {
+                var length = Math.min(header.remaining(), input.remaining());
+                header.put(header.position(), input, input.position(), length);
+                header.position(header.position() + length);
+                input.position(input.position() + length);
+                if (header.hasRemaining()) {
+                    return false;
+                }
+                if (isZeroBlock()) {
+                    state = State.DONE;
+                    return true;
+                }
+                startEntry();
+            }
+            case DATA -> {
+                if (remaining == 0) {
+                    endEntry();
+                    return true;
+                }
+                if (!input.hasRemaining()) {
+                    return false;
+                }
+                var length = (int) Math.min(remaining, input.remaining());
+                var data = input.slice(input.position(), length);
+                switch (target) {
+                    case ENTRY -> handler.write(data);
+                    case METADATA -> metadata.put(data);
+                    default -> {
+                        // Skip the content
+                    }
+                }
+                input.position(input.position() + length);
+                remaining -= length;
+            }
+            case PADDING -> {
+                var length = Math.min(padding, input.remaining());
+                input.position(input.position() + length);
+                padding -= length;
+                if (padding > 0) {
+                    return false;
+                }
+                header.clear();
+                state = State.HEADER;
+            }
+            default -> throw new IllegalStateException("Unexpected state " + state);
+        }
+        return true;
+    }
+
+    private boolean isZeroBlock() {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            if (header.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void startEntry() throws IOException {
+        verifyChecksum();
+        remaining = parseNumber(SIZE_OFFSET, SIZE_LENGTH);
+        padding = (int) ((BLOCK_SIZE - remaining % BLOCK_SIZE) % BLOCK_SIZE);
+        var type = header.get(TYPE_OFFSET);
+        switch (type) {
+            case '0', 0, '7' -> {
+                var name = entryName();
+                handler.startEntry(name);
+                target = Target.ENTRY;
+                if (name.endsWith("/")) {
+                    // A directory written by a pre-POSIX tar
+                    handler.endEntry();
+                    target = Target.SKIP;
+                }
+            }
+            case '5' -> {
+                var name = entryName();
+                handler.startEntry(name.endsWith("/") ? name : name + "/");
+                handler.endEntry();
+                target = Target.SKIP;
+            }
+            case 'L', 'x' -> {
+                if (remaining > MAX_METADATA_SIZE) {
+                    throw new IOException("Tar extended header too large: " + remaining);
+                }
+                metadata = ByteBuffer.allocate((int) remaining);
+                metadataType = type;
+                target = Target.METADATA;
+            }
+            default -> {
+                // Links, global pax headers and special files
+                pendingName = null;
+                target = Target.SKIP;
+            }
+        }
+        state = State.DATA;
+    }
+
+    private void endEntry() throws IOException {
+        switch (target) {
+            case ENTRY -> handler.endEntry();
+            case METADATA -> {
+                pendingName = metadataType == 'L' ? longName() : paxPath();
+                metadata = null;
+            }
+            default -> {
+                // Nothing to finish
+            }
+        }
+        target = null;
+        if (padding > 0) {
+            state = State.PADDING;
+        } else {
+            header.clear();
+            state = State.HEADER;
+        }
+    }
+
+    private String entryName() {
+        if (pendingName != null) {
+            var name = pendingName;
+            pendingName = null;
+            return name;
+        }
+        var name = readString(NAME_OFFSET, NAME_LENGTH);
+        if (isUstar()) {
+            var prefix = readString(PREFIX_OFFSET, PREFIX_LENGTH);
+            if (!prefix.isEmpty()) {
+                return prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    private boolean isUstar() {
+        return header.get(MAGIC_OFFSET) == 'u' && header.get(MAGIC_OFFSET + 1) == 's'
+            && header.get(MAGIC_OFFSET + 2) == 't' && header.get(MAGIC_OFFSET + 3) == 'a'
+            && header.get(MAGIC_OFFSET + 4) == 'r';
+    }
+
+    private String longName() {
+        var bytes = metadata.array();
+        var length = 0;
+        while (length < metadata.position() && bytes[length] != 0) {
+            length++;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read the path from the records of a pax header, each of the form
+     * {@code "<length> <key>=<value>\n"}.
+     *
+     * @return the path or null if the header has none
+     */
+    private String paxPath() throws IOException {
+        var bytes = metadata.array();
+        var end = metadata.position();
+        String path = null;
+        var offset = 0;
+        while (offset < end) {
+            var space = offset;
+            while (space < end && bytes[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(bytes, offset, space - offset,
+                    StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid tar pax header");
+            }
+            if (space == end || length <= space - offset + 1 || offset + length > end) {
+                throw new IOException("Invalid tar pax header");
+            }
+            // Without the trailing newline
+            var record = new String(bytes, space + 1, offset + length - space - 2,
+                StandardCharsets.UTF_8);
+            if (record.startsWith("path=")) {
+                path = record.substring("path=".length());
+            }
+            offset += length;
+        }
+        return path;
+    }
+
+    private void verifyChecksum() throws IOException {
+        var expected = parseNumber(CHECKSUM_OFFSET, CHECKSUM_LENGTH);
+        long unsigned = 0;
+        long signed = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            var b = i >= CHECKSUM_OFFSET && i < CHECKSUM_OFFSET + CHECKSUM_LENGTH
+                ? (byte) ' ' : header.get(i);
+            unsigned += Byte.toUnsignedInt(b);
+            signed += b;
+        }
+        // Some historic writers summed signed bytes
+        if (expected != unsigned && expected != signed) {
+            throw new IOException("Invalid tar header checksum");
+        }
+    }
+
+    /**
+     * Parse an octal number field, or a base-256 one as GNU tar writes for large sizes.
+     */
+    private long parseNumber(int offset, int length) throws IOException {
+        if ((header.get(offset) & 0x80) != 0) {
+            long value = header.get(offset) & 0x7f;
+            for (int i = 1; i < length; i++) {
+                if (value > (Long.MAX_VALUE >> 8)) {
+                    throw new IOException("Tar header number too large");
+                }
+                value = value << 8 | Byte.toUnsignedInt(header.get(offset + i));
+            }
+            return value;
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            var b = header.get(i);
+            if (b == 0) {
+                break;
+            }
+            if (b == ' ') {
+                if (value == 0) {
+                    continue;
+                }
+                break;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Invalid tar header number");
+            }
+            value = value << 3 | (b - '0');
+        }
+        return value;
+    }
+
+    private String readString(int offset, int length) {
+        var end = offset;
+        while (end < offset + length && header.get(end) != 0) {
+            end++;
+        }
+        return new String(header.array(), offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private enum State {
+        HEADER,
+        DATA,
+        PADDING,
+        DONE
+    }
+
+    private enum Target {
+        ENTRY,
+        METADATA,
+        SKIP
+    }
+}
@@ -0,0 +1,337 @@
+package cc.ryanc.staticpages.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Push-based decoder of a zip stream, fed with the buffers of a request body as they arrive.
+ * <p>
+ * Local file headers are parsed by a state machine, so a header may be split across any number
+ * of buffers, and deflated entries are inflated straight from the input buffers without
+ * copying them. No thread is blocked waiting for input: the caller feeds whatever arrived and
+ * the decoder keeps its position until the next buffer.
+ * <p>
+ * Like {@link java.util.zip.ZipInputStream}, entries are read in stream order up to the
+ * central directory, stored entries must declare their size in the local header and every
+ * entry is verified against its CRC-32.
+ */
+public class ZipStreamDecoder implements ArchiveDecoder {
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int END_HEADER_SIG = 0x06054b50;
+    private static final int DATA_DESCRIPTOR_SIG = 0x08074b50;
+
+    /**
+     * Size of the local file header after its signature.
+     */
+    private static final int LOCAL_HEADER_SIZE = 26;
+    private static final int FLAG_ENCRYPTED = 1;
+    private static final int FLAG_DATA_DESCRIPTOR = 8;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final EntryHandler handler;
+
+    private final Inflater inflater = new Inflater(true);
+
+    private final CRC32 crc = new CRC32();
+
+    private final ByteBuffer output = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+
+    /**
+     * Collects the fixed-size fields of a header, which may be split across input buffers.
+     */
+    private ByteBuffer fields = ByteBuffer.allocate(LOCAL_HEADER_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    private State state;
+
+    private int flags;
+    private int method;
+    private long entryCrc;
+    private long compressedSize;
+    private long size;
+    private boolean zip64;
+    private int nameLength;
+
+    /**
+     * Bytes of a stored entry still to be read.
+     */
+    private long remaining;
+
+    /**
+     * Uncompressed bytes of the current entry handed to the handler.
+     */
+    private long written;
+
+    public ZipStreamDecoder(EntryHandler handler) {
+        this.handler = handler;
+        expect(State.SIGNATURE, 4);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Bytes after the last entry are ignored.
+     */
+    @Override
+    public void decode(ByteBuffer input) throws IOException {
+        while (state != State.DONE && step(input)) {
+            // Continue with the next state
+        }
+        input.position(input.limit());
+    }
+
+    @Override
+    public void finish() throws ZipException {
+        if (state == State.DONE || state == State.SIGNATURE && fields.position() == 0) {
+            return;
+        }
+        throw new ZipException("Unexpected end of zip stream");
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+    }
+
+    /**
+     * Advance the state machine.
+     *
+     * @return false if more input is needed
+     */
+    private boolean step(ByteBuffer input) throws IOException {
+        switch (state) {
+            case SIGNATURE -> {
+                if (!fill(input)) {
+                    return false;
+                }
+                var signature = fields.getInt(0);
+                if (signature == LOCAL_HEADER_SIG) {
+                    expect(State.LOCAL_HEADER, LOCAL_HEADER_SIZE);
+                } else if (signature == CENTRAL_HEADER_SIG || signature == END_HEADER_SIG) {
+                    state = State.DONE;
+                } else {
+                    throw new ZipException("Invalid zip entry signature");
+                }
+            }
+            case LOCAL_HEADER -> {
+                if (!fill(input)) {
+                    return false;
+                }
+                flags = Short.toUnsignedInt(fields.getShort(2));
+                method = Short.toUnsignedInt(fields.getShort(4));
+                entryCrc = Integer.toUnsignedLong(fields.getInt(10));
+                compressedSize = Integer.toUnsignedLong(fields.getInt(14));
+                size = Integer.toUnsignedLong(fields.getInt(18));
+                nameLength = Short.toUnsignedInt(fields.getShort(22));
+                var extraLength = Short.toUnsignedInt(fields.getShort(24));
+                expect(State.NAME_AND_EXTRA, nameLength + extraLength);
+            }
+            case NAME_AND_EXTRA -> {
+                if (!fill(input)) {
+                    return false;
+                }
+                startEntry();
+            }
+            case DATA -> {
+                return method == ZipEntry.STORED ? readStored(input) : inflate(input);
+            }
+            case DATA_DESCRIPTOR_SIGNATURE -> {
+                if (!fill(input)) {
+                    return false;
+                }
+                var sizesLength = zip64 ? 16 : 8;
+                if (fields.getInt(0) == DATA_DESCRIPTOR_SIG) {
+                    expect(State.DATA_DESCRIPTOR, 4 + sizesLength);
+                } else {
+                    // The signature is optional, the field was the CRC-32
+                    entryCrc = Integer.toUnsignedLong(fields.getInt(0));
+                    expect(State.DATA_DESCRIPTOR, sizesLength);
+                }
+            }
+            case DATA_DESCRIPTOR -> {
+                if (!fill(input)) {
+                    return false;
+                }
+                var offset = fields.limit() - (zip64 ? 16 : 8);
+                if (offset > 0) {
+                    entryCrc = Integer.toUnsignedLong(fields.getInt(0));
+                }
+                if (zip64) {
+                    compressedSize = fields.getLong(offset);
+                    size = fields.getLong(offset + 8);
+                } else {
+                    compressedSize = Integer.toUnsignedLong(fields.getInt(offset));
+                    size = Integer.toUnsignedLong(fields.getInt(offset + 4));
+                }
+                endEntry();
+            }
+            default -> throw new IllegalStateException("Unexpected state " + state);
+        }
+        return true;
+    }
+
+    private void startEntry() throws IOException {
+        var name = new String(fields.array(), 0, nameLength, StandardCharsets.UTF_8);
+        if ((flags & FLAG_ENCRYPTED) != 0) {
+            throw new ZipException("Encrypted zip entry is not supported: " + name);
+        }
+        if (method != ZipEntry.STORED && method != ZipEntry.DEFLATED) {
+            throw new ZipException("Unsupported compression method " + method + ": " + name);
+        }
+        zip64 = readZip64Extra(nameLength, fields.limit());
+        var hasDataDescriptor = (flags & FLAG_DATA_DESCRIPTOR) != 0;
+        if (method == ZipEntry.STORED) {
+            if (hasDataDescriptor && compressedSize == 0) {
+                throw new ZipException("Stored zip entry without size: " + name);
+            }
+            remaining = compressedSize;
+        }
+        crc.reset();
+        inflater.reset();
+        written = 0;
+        handler.startEntry(name);
+        state = State.DATA;
+    }
+
+    /**
+     * Read the sizes of the zip64 extended information extra field, if any.
+     *
+     * @return true if the entry has the field
+     */
+    private boolean readZip64Extra(int offset, int end) {
+        while (offset + 4 <= end) {
+            var id = Short.toUnsignedInt(fields.getShort(offset));
+            var length = Short.toUnsignedInt(fields.getShort(offset + 2));
+            offset += 4;
+            if (id == ZIP64_EXTRA_ID) {
+                // Only the sizes with the magic value in the local header are present
+                var position = offset;
+                if (size == ZIP64_MAGIC && position + 8 <= offset + length) {
+                    size = fields.getLong(position);
+                    position += 8;
+                }
+                if (compressedSize == ZIP64_MAGIC && position + 8 <= offset + length) {
+                    compressedSize = fields.getLong(position);
+                }
+                return true;
+            }
+            offset += length;
+        }
+        return false;
+    }
+
+    private boolean readStored(ByteBuffer input) throws IOException {
+        if (remaining == 0) {
+            finishData();
+            return true;
+        }
+        if (!input.hasRemaining()) {
+            return false;
+        }
+        var length = (int) Math.min(remaining, input.remaining());
+        var data = input.slice(input.position(), length);
+        crc.update(data.duplicate());
+        handler.write(data);
+        input.position(input.position() + length);
+        remaining -= length;
+        written += length;
+        return true;
+    }
+
+    private boolean inflate(ByteBuffer input) throws IOException {
+        if (!inflater.finished()) {
+            inflater.setInput(input);
+            try {
+                while (!inflater.finished()) {
+                    output.clear();
+                    var length = inflater.inflate(output);
+                    if (length > 0) {
+                        output.flip();
+                        crc.update(output.duplicate());
+                        handler.write(output);
+                        written += length;
+                    } else if (inflater.needsInput()) {
+                        return false;
+                    } else if (inflater.needsDictionary()) {
+                        throw new ZipException("Invalid zip entry, preset dictionary needed");
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+        // The inflater advanced the input to the end of the entry
+        finishData();
+        return true;
+    }
+
+    private void finishData() throws IOException {
+        if ((flags & FLAG_DATA_DESCRIPTOR) != 0) {
+            zip64 = zip64 || inflater.getBytesRead() > ZIP64_MAGIC || written > ZIP64_MAGIC;
+            expect(State.DATA_DESCRIPTOR_SIGNATURE, 4);
+            return;
+        }
+        endEntry();
+    }
+
+    private void endEntry() throws IOException {
+        var readSize = method == ZipEntry.STORED ? written : inflater.getBytesRead();
+        if (readSize != compressedSize) {
+            throw new ZipException("Invalid zip entry compressed size (expected "
+                + compressedSize + " but got " + readSize + " bytes)");
+        }
+        if (written != size) {
+            throw new ZipException("Invalid zip entry size (expected " + size + " but got "
+                + written + " bytes)");
+        }
+        if (crc.getValue() != entryCrc) {
+            throw new ZipException("Invalid zip entry CRC-32");
+        }
+        handler.endEntry();
+        expect(State.SIGNATURE, 4);
+    }
+
+    private void expect(State next, int length) {
+        if (fields.capacity() < length) {
+            fields = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        fields.clear().limit(length);
+        state = next;
+    }
+
+    /**
+     * Copy input into the field buffer.
+     *
+     * @return true if all expected bytes are collected
+     */
+    private boolean fill(ByteBuffer input) {
+        var length = Math.min(fields.remaining(), input.remaining());
+        if (length > 0) {
+            fields.put(fields.position(), input, input.position(), length);
+            fields.position(fields.position() + length);
+            input.position(input.position() + length);
+        }
+        return !fields.hasRemaining();
+    }
+
+    private enum State {
+        SIGNATURE,
+        LOCAL_HEADER,
+        NAME_AND_EXTRA,
+        DATA,
+        DATA_DESCRIPTOR_SIGNATURE,
+        DATA_DESCRIPTOR,
+        DONE
+    }
+}
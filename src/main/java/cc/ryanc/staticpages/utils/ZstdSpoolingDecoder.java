@@ -0,0 +1,78 @@
+package cc.ryanc.staticpages.utils;
+
+import io.airlift.compress.MalformedInputException;
+import io.airlift.compress.zstd.ZstdInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decoder of a zstd stream, which hands the decompressed bytes to the decoder of the wrapped
+ * archive.
+ * <p>
+ * The pure Java zstd implementation only decompresses from an {@link java.io.InputStream}, so
+ * the compressed stream is spooled to a file while it arrives and decompressed from there once
+ * it is complete; the spooled file is much smaller than the extracted content.
+ */
+class ZstdSpoolingDecoder implements ArchiveDecoder {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ArchiveDecoder downstream;
+
+    private final Path spoolDir;
+
+    private Path spoolFile;
+
+    private FileChannel channel;
+
+    ZstdSpoolingDecoder(ArchiveDecoder downstream, Path spoolDir) {
+        this.downstream = downstream;
+        this.spoolDir = spoolDir;
+    }
+
+    @Override
+    public void decode(ByteBuffer input) throws IOException {
+        if (channel == null) {
+            spoolFile = Files.createTempFile(spoolDir, ".archive-", ".tar.zst");
+            channel = FileChannel.open(spoolFile, StandardOpenOption.WRITE);
+        }
+        while (input.hasRemaining()) {
+            channel.write(input);
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (channel == null) {
+            throw new IOException("Unexpected end of zstd stream");
+        }
+        channel.close();
+        try (var in = new ZstdInputStream(Files.newInputStream(spoolFile))) {
+            var buffer = new byte[BUFFER_SIZE];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                downstream.decode(ByteBuffer.wrap(buffer, 0, length));
+            }
+        } catch (MalformedInputException e) {
+            throw new IOException("Invalid zstd stream: " + e.getMessage(), e);
+        }
+        downstream.finish();
+    }
+
+    @Override
+    public void close() {
+        FileUtils.closeQuietly(channel);
+        if (spoolFile != null) {
+            try {
+                Files.deleteIfExists(spoolFile);
+            } catch (IOException ignored) {
+                // Ignore this error
+            }
+        }
+        downstream.close();
+    }
+}
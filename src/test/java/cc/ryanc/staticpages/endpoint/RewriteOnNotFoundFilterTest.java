@@ -0,0 +1,119 @@
+package cc.ryanc.staticpages.endpoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import cc.ryanc.staticpages.extensions.Project;
+import cc.ryanc.staticpages.extensions.ProjectVersion;
+import cc.ryanc.staticpages.service.HotFileCache;
+import cc.ryanc.staticpages.service.NotFoundCache;
+import cc.ryanc.staticpages.service.ProjectFileIndex;
+import cc.ryanc.staticpages.service.ProjectRewriteRules;
+import cc.ryanc.staticpages.service.VersionService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.resource.NoResourceFoundException;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import run.halo.app.extension.Metadata;
+
+class RewriteOnNotFoundFilterTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private final VersionService versionService = mock(VersionService.class);
+
+    private ProjectFileIndex fileIndex;
+
+    private RewriteOnNotFoundFilter filter;
+
+    private final List<String> forwardedPaths = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        var notFoundCache = new NotFoundCache(100);
+        var rewriteRules = new ProjectRewriteRules(notFoundCache);
+        var project = new Project();
+        project.setMetadata(new Metadata());
+        project.getMetadata().setName("foo");
+        project.setSpec(new Project.Spec());
+        project.getSpec().setDirectory("foo");
+        rewriteRules.updateRules(project);
+
+        fileIndex = new ProjectFileIndex(notFoundCache, new HotFileCache(1024, 128));
+        Files.createDirectories(tempDir.resolve("docs"));
+        Files.writeString(tempDir.resolve("docs/index.html"), "docs");
+        fileIndex.rebuild("foo", tempDir, null, null);
+
+        filter = new RewriteOnNotFoundFilter(rewriteRules, fileIndex, notFoundCache,
+            new ProjectResourceResponder(new HotFileCache(1024, 128)), versionService);
+    }
+
+    @Test
+    void shouldProbeResourceHandlerBeforeRewritingNonGetRequest() {
+        // The resource handler only finds the rewritten path
+        WebFilterChain chain = exchange -> {
+            var path = exchange.getRequest().getPath().pathWithinApplication().value();
+            forwardedPaths.add(path);
+            return path.endsWith("/index.html") ? Mono.empty()
+                : Mono.error(new NoResourceFoundException(path));
+        };
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/foo/docs"));
+
+        StepVerifier.create(filter.filter(exchange, chain))
+            .verifyComplete();
+
+        assertThat(forwardedPaths).containsExactly("/foo/docs", "/foo/docs/index.html");
+    }
+
+    @Test
+    void shouldProbeActiveVersionBeforeIndexIsLoaded() {
+        fileIndex.remove("foo");
+        var version = new ProjectVersion();
+        version.setMetadata(new Metadata());
+        version.setSpec(new ProjectVersion.Spec());
+        version.getSpec().setDirectory("versions/version-3");
+        when(versionService.getActiveVersion("foo")).thenReturn(Mono.just(version));
+        WebFilterChain chain = exchange -> {
+            var path = exchange.getRequest().getPath().pathWithinApplication().value();
+            forwardedPaths.add(path);
+            return path.endsWith("/index.html") ? Mono.empty()
+                : Mono.error(new NoResourceFoundException(path));
+        };
+        var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/foo/docs"));
+
+        StepVerifier.create(filter.filter(exchange, chain))
+            .verifyComplete();
+
+        assertThat(forwardedPaths).containsExactly("/foo/versions/version-3/docs",
+            "/foo/versions/version-3/docs/index.html");
+    }
+
+    @Test
+    void shouldAnswerKnownMissWithoutResourceHandler() {
+        WebFilterChain chain = exchange -> {
+            forwardedPaths.add(exchange.getRequest().getPath().pathWithinApplication().value());
+            return Mono.empty();
+        };
+
+        for (int i = 0; i < 2; i++) {
+            var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/foo/missing"));
+            StepVerifier.create(filter.filter(exchange, chain))
+                .expectError(NoResourceFoundException.class)
+                .verify();
+        }
+
+        assertThat(forwardedPaths).isEmpty();
+    }
+}
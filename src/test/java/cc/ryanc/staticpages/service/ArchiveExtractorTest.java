@@ -0,0 +1,120 @@
+package cc.ryanc.staticpages.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class ArchiveExtractorTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"stream", "parallel"})
+    void shouldExtractIntoVersionDirectory(String mode) throws IOException {
+        var storePath = tempDir.resolve("versions/version-1");
+        Files.createDirectories(storePath);
+
+        StepVerifier.create(new ArchiveExtractor(mode, 4).extract(zip(100), storePath,
+                null))
+            .verifyComplete();
+
+        assertThat(storePath.resolve("index.html")).hasContent("index");
+        for (int i = 0; i < 100; i++) {
+            assertThat(storePath.resolve("pages/" + (i % 10) + "/page-" + i + ".html"))
+                .hasContent("page " + i);
+        }
+        // Neither the staging directory nor the spool file is left behind
+        try (var siblings = Files.list(storePath.getParent())) {
+            assertThat(siblings).containsExactly(storePath);
+        }
+    }
+
+    @Test
+    void shouldFallBackToStreamOnUnknownMode() {
+        assertThat(new ArchiveExtractor("bogus", 4).getMode())
+            .isEqualTo(ArchiveExtractor.Mode.STREAM);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"stream", "parallel"})
+    void shouldExtractDetectedTarGz(String mode) throws IOException {
+        var storePath = tempDir.resolve("versions/version-1");
+        Files.createDirectories(storePath);
+
+        StepVerifier.create(new ArchiveExtractor(mode, 4).extract(tarGz(), storePath, null))
+            .verifyComplete();
+
+        assertThat(storePath.resolve("index.html")).hasContent("index");
+        assertThat(storePath.resolve("assets/app.js")).hasContent("app");
+        try (var siblings = Files.list(storePath.getParent())) {
+            assertThat(siblings).containsExactly(storePath);
+        }
+    }
+
+    private static Flux<DataBuffer> tarGz() throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(tarEntry("index.html", "index"));
+            gzip.write(tarEntry("assets/app.js", "app"));
+            gzip.write(new byte[1024]);
+        }
+        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(out.toByteArray()));
+    }
+
+    /**
+     * A ustar header block followed by the padded content.
+     */
+    private static byte[] tarEntry(String name, String content) {
+        var bytes = content.getBytes(StandardCharsets.UTF_8);
+        var entry = new byte[512 + (bytes.length + 511) / 512 * 512];
+        put(entry, 0, name);
+        put(entry, 124, String.format("%011o", bytes.length));
+        entry[156] = '0';
+        put(entry, 257, "ustar");
+        put(entry, 263, "00");
+        Arrays.fill(entry, 148, 156, (byte) ' ');
+        var checksum = 0;
+        for (int i = 0; i < 512; i++) {
+            checksum += Byte.toUnsignedInt(entry[i]);
+        }
+        put(entry, 148, String.format("%06o", checksum));
+        entry[154] = 0;
+        System.arraycopy(bytes, 0, entry, 512, bytes.length);
+        return entry;
+    }
+
+    private static void put(byte[] entry, int offset, String value) {
+        var bytes = value.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(bytes, 0, entry, offset, bytes.length);
+    }
+
+    private static Flux<DataBuffer> zip(int pages) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var zos = new ZipOutputStream(out)) {
+            zos.putNextEntry(new ZipEntry("index.html"));
+            zos.write("index".getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < pages; i++) {
+                zos.putNextEntry(new ZipEntry("pages/" + (i % 10) + "/page-" + i + ".html"));
+                zos.write(("page " + i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(out.toByteArray()));
+    }
+}
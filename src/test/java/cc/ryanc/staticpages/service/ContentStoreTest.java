@@ -0,0 +1,144 @@
+package cc.ryanc.staticpages.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.FileSystemUtils;
+
+@DisabledOnOs(OS.WINDOWS)
+class ContentStoreTest {
+
+    @TempDir
+    private Path versionsPath;
+
+    private final ContentStore contentStore = new ContentStore();
+
+    @Test
+    void shouldShareIdenticalFilesAcrossVersions() throws IOException {
+        var version1 = versionsPath.resolve("version-1");
+        var version2 = versionsPath.resolve("version-2");
+        writeFile(version1.resolve("index.html"), "v1");
+        writeFile(version1.resolve("assets/app.js"), "app");
+        writeFile(version2.resolve("index.html"), "v2");
+        writeFile(version2.resolve("assets/app.js"), "app");
+
+        assertThat(contentStore.intern(version1)).isZero();
+        assertThat(contentStore.intern(version2)).isEqualTo(1);
+
+        assertThat(Files.isSameFile(version1.resolve("assets/app.js"),
+            version2.resolve("assets/app.js"))).isTrue();
+        assertThat(Files.isSameFile(version1.resolve("index.html"),
+            version2.resolve("index.html"))).isFalse();
+        assertThat(version2.resolve("index.html")).hasContent("v2");
+        var manifest = VersionManifest.load(version2);
+        assertThat(manifest.size()).isEqualTo(2);
+        assertThat(manifest.get("assets/app.js")).isEqualTo(
+            VersionManifest.load(version1).get("assets/app.js"));
+    }
+
+    @Test
+    void shouldCollectObjectsOnlyWhenLastVersionIsGone() throws IOException {
+        var version1 = versionsPath.resolve("version-1");
+        var version2 = versionsPath.resolve("version-2");
+        writeFile(version1.resolve("index.html"), "v1");
+        writeFile(version1.resolve("app.js"), "app");
+        writeFile(version2.resolve("app.js"), "app");
+        contentStore.intern(version1);
+        contentStore.intern(version2);
+
+        FileSystemUtils.deleteRecursively(version1);
+        assertThat(contentStore.collectGarbage(versionsPath)).isEqualTo(1);
+        assertThat(version2.resolve("app.js")).hasContent("app");
+
+        FileSystemUtils.deleteRecursively(version2);
+        assertThat(contentStore.collectGarbage(versionsPath)).isEqualTo(1);
+        try (var objects = Files.list(ContentStore.objectsPathOf(versionsPath))) {
+            assertThat(objects).isEmpty();
+        }
+    }
+
+    @Test
+    void shouldKeepRetainedObjects() throws IOException {
+        var file = versionsPath.resolve("app.js");
+        writeFile(file, "app");
+        var hash = contentStore.add(versionsPath, file);
+
+        try (var ignored = contentStore.retainObjects(versionsPath)) {
+            assertThat(contentStore.collectGarbage(versionsPath)).isZero();
+            assertThat(contentStore.contains(versionsPath, hash)).isTrue();
+        }
+        assertThat(contentStore.collectGarbage(versionsPath)).isEqualTo(1);
+        assertThat(contentStore.contains(versionsPath, hash)).isFalse();
+    }
+
+    @Test
+    void shouldAssembleVersionFromStoredContent() throws IOException {
+        var version1 = versionsPath.resolve("version-1");
+        writeFile(version1.resolve("index.html"), "v1");
+        writeFile(version1.resolve("app.js"), "app");
+        contentStore.intern(version1);
+        var appHash = VersionManifest.load(version1).get("app.js").hash();
+
+        var upload = versionsPath.resolve(".upload.tmp");
+        writeFile(upload, "v2");
+        var indexHash = contentStore.add(versionsPath, upload);
+        assertThat(upload).doesNotExist();
+        assertThat(contentStore.contains(versionsPath, indexHash)).isTrue();
+
+        var version2 = versionsPath.resolve("version-2");
+        var missing = contentStore.assemble(version2,
+            Map.of("index.html", indexHash, "js/app.js", appHash, "gone.css", "0".repeat(64)),
+            version1);
+
+        assertThat(missing).containsExactly("0".repeat(64));
+        assertThat(version2.resolve("index.html")).hasContent("v2");
+        assertThat(Files.isSameFile(version1.resolve("app.js"),
+            version2.resolve("js/app.js"))).isTrue();
+        assertThat(VersionManifest.load(version2).get("js/app.js").hash()).isEqualTo(appHash);
+    }
+
+    @Test
+    void shouldCopyContentMissingFromStoreFromFallbackVersion() throws IOException {
+        var version1 = versionsPath.resolve("version-1");
+        var file = version1.resolve("app.js");
+        writeFile(file, "app");
+        var manifest = VersionManifest.load(version1);
+        manifest.refresh("app.js", file, Files.readAttributes(file, BasicFileAttributes.class));
+        manifest.save();
+        var hash = manifest.get("app.js").hash();
+
+        var version2 = versionsPath.resolve("version-2");
+        assertThat(contentStore.assemble(version2, Map.of("app.js", hash), version1)).isEmpty();
+        assertThat(version2.resolve("app.js")).hasContent("app");
+    }
+
+    @Test
+    void shouldTrustHashesKnownFromWriting() throws IOException {
+        var version1 = versionsPath.resolve("version-1");
+        writeFile(version1.resolve("index.html"), "v1");
+        writeFile(version1.resolve("app.js"), "app");
+        // Not the hash of the content, so it shows the file was not read again
+        var knownHash = "a".repeat(64);
+
+        contentStore.intern(version1, Map.of(version1.resolve("app.js"), knownHash));
+
+        var manifest = VersionManifest.load(version1);
+        assertThat(manifest.get("app.js").hash()).isEqualTo(knownHash);
+        assertThat(manifest.get("index.html").hash())
+            .isEqualTo(VersionManifest.hash(version1.resolve("index.html")));
+        assertThat(contentStore.contains(versionsPath, knownHash)).isTrue();
+    }
+
+    private static void writeFile(Path path, String content) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+    }
+}
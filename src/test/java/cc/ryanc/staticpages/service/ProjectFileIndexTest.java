@@ -0,0 +1,147 @@
+package cc.ryanc.staticpages.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProjectFileIndexTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private ProjectFileIndex fileIndex;
+
+    @BeforeEach
+    void setUp() {
+        fileIndex = new ProjectFileIndex(new NotFoundCache(100),
+            new HotFileCache(1024, 128));
+    }
+
+    @Test
+    void shouldIndexFilesOfVersion() throws IOException {
+        var versionPath = tempDir.resolve("versions/version-1");
+        writeFile(versionPath.resolve("index.html"));
+        writeFile(versionPath.resolve("docs/guide/index.html"));
+
+        var snapshot = fileIndex.rebuild("test-project", tempDir, "test-project-version-1",
+            "versions/version-1");
+
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.exists("index.html")).isTrue();
+        assertThat(snapshot.exists("docs/guide/index.html")).isTrue();
+        assertThat(snapshot.exists("docs/guide")).isFalse();
+        assertThat(snapshot.size()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldSkipVersionsWhenIndexingProjectRoot() throws IOException {
+        writeFile(tempDir.resolve("index.html"));
+        writeFile(tempDir.resolve("versions/version-1/index.html"));
+
+        var snapshot = fileIndex.rebuild("test-project", tempDir, null, null);
+
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.exists("index.html")).isTrue();
+        assertThat(snapshot.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldTrackEditorChanges() throws IOException {
+        var versionPath = tempDir.resolve("versions/version-1");
+        writeFile(versionPath.resolve("docs/a.html"));
+        writeFile(versionPath.resolve("docs/b.html"));
+        var snapshot = fileIndex.rebuild("test-project", tempDir, "test-project-version-1",
+            "versions/version-1");
+        assertThat(snapshot).isNotNull();
+
+        var newFile = versionPath.resolve("new.html");
+        writeFile(newFile);
+        fileIndex.addFile("test-project", newFile);
+        assertThat(snapshot.exists("new.html")).isTrue();
+        assertThat(snapshot.getManifestEntry("new.html")).isNotNull();
+
+        fileIndex.removeFile("test-project", versionPath.resolve("docs"));
+        assertThat(snapshot.getManifestEntry("docs/a.html")).isNull();
+        assertThat(snapshot.exists("docs/a.html")).isFalse();
+        assertThat(snapshot.exists("docs/b.html")).isFalse();
+        assertThat(snapshot.exists("new.html")).isTrue();
+    }
+
+    @Test
+    void shouldPersistContentHashesOfVersion() throws IOException {
+        var versionPath = tempDir.resolve("versions/version-1");
+        var file = versionPath.resolve("index.html");
+        writeFile(file);
+
+        var snapshot = fileIndex.rebuild("test-project", tempDir, "test-project-version-1",
+            "versions/version-1");
+        assertThat(snapshot).isNotNull();
+        var entry = snapshot.getManifestEntry("index.html");
+        assertThat(entry).isNotNull();
+        assertThat(entry.hash()).isEqualTo(
+            "ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73");
+        assertThat(entry.etag()).isEqualTo("\"" + entry.hash() + "\"");
+        assertThat(VersionManifest.manifestFileOf(versionPath)).exists();
+
+        var reloaded = VersionManifest.load(versionPath);
+        assertThat(reloaded.get("index.html")).isEqualTo(entry);
+
+        Files.writeString(file, "changed content");
+        fileIndex.addFile("test-project", file);
+        assertThat(snapshot.getManifestEntry("index.html")).isNotEqualTo(entry);
+        assertThat(VersionManifest.load(versionPath).get("index.html"))
+            .isEqualTo(snapshot.getManifestEntry("index.html"));
+    }
+
+    @Test
+    void shouldNotHashFilesOfProjectRoot() throws IOException {
+        writeFile(tempDir.resolve("index.html"));
+
+        var snapshot = fileIndex.rebuild("test-project", tempDir, null, null);
+
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.getManifestEntry("index.html")).isNull();
+    }
+
+    @Test
+    void shouldSummarizeFilesOfVersion() throws IOException {
+        var versionPath = tempDir.resolve("versions/version-1");
+        writeFile(versionPath.resolve("index.html"));
+        Files.writeString(versionPath.resolve("app.js"), "x".repeat(100));
+        // Precompressed variant of app.js, not part of the uploaded site
+        Files.writeString(versionPath.resolve("app.js.gz"), "x".repeat(20));
+        // Uploaded as is, without an uncompressed sibling
+        Files.writeString(versionPath.resolve("data.gz"), "x".repeat(10));
+        var snapshot = fileIndex.rebuild("test-project", tempDir, "test-project-version-1",
+            "versions/version-1");
+        assertThat(snapshot).isNotNull();
+
+        var statistics = snapshot.getStatistics();
+        assertThat(statistics).isNotNull();
+        assertThat(statistics.size()).isEqualTo(117);
+        assertThat(statistics.fileCount()).isEqualTo(3);
+        assertThat(statistics.largestFiles()).containsExactly(Map.entry("app.js", 100L),
+            Map.entry("data.gz", 10L), Map.entry("index.html", 7L));
+
+        fileIndex.removeFile("test-project", versionPath.resolve("app.js"));
+        statistics = snapshot.getStatistics();
+        assertThat(statistics).isNotNull();
+        assertThat(statistics.size()).isEqualTo(37);
+        assertThat(statistics.fileCount()).isEqualTo(3);
+
+        var rootSnapshot = fileIndex.rebuild("test-project", tempDir, null, null);
+        assertThat(rootSnapshot).isNotNull();
+        assertThat(rootSnapshot.getStatistics()).isNull();
+    }
+
+    private static void writeFile(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "content");
+    }
+}
@@ -2,14 +2,22 @@ package cc.ryanc.staticpages.service;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
 class ProjectLockManagerTest {
@@ -144,4 +152,181 @@ class ProjectLockManagerTest {
             .expectNext("new")
             .verifyComplete();
     }
+    
+    @Test
+    void testMutualExclusionFromEventLoopThreads() {
+        // Long retention, so the lock is not evicted while operations queue on it
+        var lockManager = new ProjectLockManager(60_000);
+        var eventLoops = Schedulers.newParallel("event-loop", 4);
+        try {
+            AtomicInteger active = new AtomicInteger(0);
+            AtomicInteger maxActive = new AtomicInteger(0);
+            AtomicInteger counter = new AtomicInteger(0);
+            
+            // Every subscription happens on a non-blocking thread, and every tenth operation
+            // completes on another one, so the lock is released on a different thread
+            Flux<Integer> operations = Flux.range(0, 2000)
+                .flatMap(i -> {
+                    Mono<Integer> operation = Mono.fromCallable(() -> {
+                        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        // Not atomic on purpose, lost updates reveal overlapping holders
+                        counter.set(counter.get() + 1);
+                        return i;
+                    });
+                    if (i % 10 == 0) {
+                        operation = operation.delayElement(Duration.ofMillis(1), eventLoops);
+                    }
+                    return lockManager.withLock("test-project", operation
+                            .doOnSuccess(v -> active.decrementAndGet()))
+                        .subscribeOn(eventLoops);
+                }, 2000);
+            
+            StepVerifier.create(operations.count())
+                .expectNext(2000L)
+                .expectComplete()
+                .verify(Duration.ofSeconds(30));
+            
+            assertEquals(2000, counter.get());
+            assertEquals(1, maxActive.get());
+        } finally {
+            eventLoops.dispose();
+        }
+    }
+    
+    @Test
+    void testWaitersAreServedInOrder() {
+        Sinks.Empty<Void> gate = Sinks.empty();
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        lockManager.withLock("test-project", gate.asMono()).subscribe();
+        
+        for (int i = 1; i <= 3; i++) {
+            int index = i;
+            lockManager.withLock("test-project",
+                Mono.fromRunnable(() -> order.add(index))).subscribe();
+        }
+        assertTrue(order.isEmpty());
+        
+        gate.tryEmitEmpty();
+        assertEquals(List.of(1, 2, 3), order);
+    }
+    
+    @Test
+    void testAcquireTimeout() {
+        Sinks.Empty<Void> gate = Sinks.empty();
+        lockManager.withLock("test-project", gate.asMono()).subscribe();
+        
+        StepVerifier.create(lockManager.withLock("test-project", Duration.ofMillis(50),
+                Mono.just("late")))
+            .expectError(ResponseStatusException.class)
+            .verify(Duration.ofSeconds(5));
+        
+        // The timed out waiter must not keep the lock once it is released
+        gate.tryEmitEmpty();
+        StepVerifier.create(lockManager.withLock("test-project", Duration.ofMillis(50),
+                Mono.just("next")))
+            .expectNext("next")
+            .verifyComplete();
+    }
+    
+    @Test
+    void testCancellationReleasesLock() {
+        var holder = lockManager.withLock("test-project", Mono.never()).subscribe();
+        var waiter = lockManager.withLock("test-project", Mono.just("waiter")).subscribe();
+        
+        waiter.dispose();
+        holder.dispose();
+        
+        StepVerifier.create(lockManager.withLock("test-project", Duration.ofMillis(50),
+                Mono.just("next")))
+            .expectNext("next")
+            .verifyComplete();
+    }
+    
+    @Test
+    void testSharedLocksRunConcurrently() {
+        Sinks.Empty<Void> firstReader = Sinks.empty();
+        List<String> events = new CopyOnWriteArrayList<>();
+        lockManager.withSharedLock("test-project", firstReader.asMono()).subscribe();
+        
+        lockManager.withSharedLock("test-project",
+            Mono.fromRunnable(() -> events.add("second reader"))).subscribe();
+        lockManager.withLock("test-project",
+            Mono.fromRunnable(() -> events.add("writer"))).subscribe();
+        // Queued behind the writer, so the writer is not starved
+        lockManager.withSharedLock("test-project",
+            Flux.just("third reader").doOnNext(events::add)).subscribe();
+        assertEquals(List.of("second reader"), events);
+        
+        firstReader.tryEmitEmpty();
+        assertEquals(List.of("second reader", "writer", "third reader"), events);
+    }
+    
+    @Test
+    void testCancelledWriterUnblocksQueuedReaders() {
+        Sinks.Empty<Void> reader = Sinks.empty();
+        List<String> events = new CopyOnWriteArrayList<>();
+        lockManager.withSharedLock("test-project", reader.asMono()).subscribe();
+        var writer = lockManager.withLock("test-project",
+            Mono.fromRunnable(() -> events.add("writer"))).subscribe();
+        lockManager.withSharedLock("test-project",
+            Mono.fromRunnable(() -> events.add("reader"))).subscribe();
+        assertTrue(events.isEmpty());
+        
+        writer.dispose();
+        assertEquals(List.of("reader"), events);
+    }
+    
+    @Test
+    void testLockStatusesListHoldersAndWaiters() {
+        Sinks.Empty<Void> gate = Sinks.empty();
+        lockManager.withLock("test-project", gate.asMono()).subscribe();
+        lockManager.withSharedLock("test-project", Mono.just("waiter")).subscribe();
+        lockManager.withLock("idle-project", Mono.just("done")).block();
+        
+        var statuses = lockManager.getLockStatuses();
+        assertEquals(1, statuses.size());
+        assertEquals("test-project", statuses.get(0).getProjectName());
+        assertEquals("exclusive", statuses.get(0).getHolders().get(0).getMode());
+        assertEquals("shared", statuses.get(0).getWaiters().get(0).getMode());
+        
+        gate.tryEmitEmpty();
+        assertTrue(lockManager.getLockStatuses().isEmpty());
+    }
+    
+    @Test
+    void testLockMetrics() {
+        var registry = new SimpleMeterRegistry();
+        Metrics.globalRegistry.add(registry);
+        try {
+            var lockManager = new ProjectLockManager(60_000);
+            Sinks.Empty<Void> gate = Sinks.empty();
+            lockManager.withLock("metrics-project", gate.asMono()).subscribe();
+            lockManager.withLock("metrics-project", Mono.just("waiter")).subscribe();
+            
+            assertEquals(1, registry.get("staticpages.lock.queue")
+                .tag("project", "metrics-project").gauge().value());
+            StepVerifier.create(lockManager.withLock("metrics-project", Duration.ofMillis(10),
+                    Mono.just("late")))
+                .expectError(ResponseStatusException.class)
+                .verify(Duration.ofSeconds(5));
+            assertEquals(1, registry.get("staticpages.lock.timeouts")
+                .tag("project", "metrics-project").tag("mode", "exclusive").counter().count());
+            
+            gate.tryEmitEmpty();
+            assertEquals(0, registry.get("staticpages.lock.queue")
+                .tag("project", "metrics-project").gauge().value());
+            assertEquals(2, registry.get("staticpages.lock.wait")
+                .tag("project", "metrics-project").tag("mode", "exclusive").timer().count());
+            assertEquals(2, registry.get("staticpages.lock.hold")
+                .tag("project", "metrics-project").tag("mode", "exclusive").timer().count());
+            
+            lockManager.removeLock("metrics-project");
+            assertTrue(registry.find("staticpages.lock.wait")
+                .tag("project", "metrics-project").meters().isEmpty());
+            assertTrue(registry.find("staticpages.lock.queue")
+                .tag("project", "metrics-project").meters().isEmpty());
+        } finally {
+            Metrics.globalRegistry.remove(registry);
+        }
+    }
 }
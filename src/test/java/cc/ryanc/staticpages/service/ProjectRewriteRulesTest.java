@@ -0,0 +1,156 @@
+package cc.ryanc.staticpages.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cc.ryanc.staticpages.extensions.Project;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.PathContainer;
+import run.halo.app.extension.Metadata;
+
+class ProjectRewriteRulesTest {
+
+    private ProjectRewriteRules rewriteRules;
+
+    @BeforeEach
+    void setUp() {
+        rewriteRules = new ProjectRewriteRules(new NotFoundCache(100));
+    }
+
+    @Test
+    void shouldFindProjectByLongestRootPrefix() {
+        rewriteRules.updateRules(createProject("foo", "foo"));
+        rewriteRules.updateRules(createProject("foobar", "foobar"));
+        rewriteRules.updateRules(createProject("nested", "foo/bar"));
+
+        assertThat(find("/foo")).isEqualTo("foo");
+        assertThat(find("/foo/")).isEqualTo("foo");
+        assertThat(find("/foo/a/b")).isEqualTo("foo");
+        assertThat(find("/foobar/a")).isEqualTo("foobar");
+        assertThat(find("/foo/bar/a")).isEqualTo("nested");
+        assertThat(find("/fo")).isNull();
+        assertThat(find("/")).isNull();
+    }
+
+    @Test
+    void shouldMoveProjectWhenDirectoryChanges() {
+        rewriteRules.updateRules(createProject("foo", "foo"));
+        rewriteRules.updateRules(createProject("foo", "bar"));
+
+        assertThat(find("/foo/a")).isNull();
+        assertThat(find("/bar/a")).isEqualTo("foo");
+        assertThat(rewriteRules.getMatcher("/foo")).isNull();
+        assertThat(rewriteRules.getMatcher("/bar")).isNotNull();
+    }
+
+    @Test
+    void shouldRemoveRules() {
+        var project = createProject("foo", "foo");
+        rewriteRules.updateRules(project);
+        rewriteRules.removeRules(project);
+
+        assertThat(find("/foo/a")).isNull();
+        assertThat(rewriteRules.getMatcher("/foo")).isNull();
+    }
+
+    @Test
+    void shouldMatchMostSpecificRuleFirst() {
+        var project = createProject("foo", "foo");
+        project.getSpec().setRewrites(List.of(
+            createRewrite("/**", "/index.html"),
+            createRewrite("/docs/**", "/docs/index.html")
+        ));
+        rewriteRules.updateRules(project);
+
+        var matcher = rewriteRules.getMatcher("/foo");
+        assertThat(matcher).isNotNull();
+        var index = matcher.indexOfMatch(PathContainer.parsePath("/foo/docs/guide"), 0);
+        assertThat(matcher.targetAt(index)).isEqualTo("/foo/docs/index.html");
+        index = matcher.indexOfMatch(PathContainer.parsePath("/foo/docs/guide"), index + 1);
+        assertThat(matcher.targetAt(index)).isEqualTo("/foo/index.html");
+    }
+
+    @Test
+    void shouldRankImplicitIndexHtmlBySpecificity() {
+        var project = createProject("foo", "foo");
+        project.getSpec().setRewrites(List.of(
+            createRewrite("/docs/**", "/docs/index.html"),
+            createRewrite("/docs/", "/guide.html")
+        ));
+        rewriteRules.updateRules(project);
+
+        var matcher = rewriteRules.getMatcher("/foo");
+        assertThat(matcher).isNotNull();
+        var path = PathContainer.parsePath("/foo/docs");
+        assertThat(matcher.targetAt(0)).isEqualTo("/foo/guide.html");
+        assertThat(matcher.precedesIndexHtml(0, path)).isTrue();
+        var index = matcher.indexOfMatch(path, 1);
+        assertThat(matcher.targetAt(index)).isEqualTo("/foo/docs/index.html");
+        assertThat(matcher.precedesIndexHtml(index, path)).isFalse();
+    }
+
+    @Test
+    void shouldResolveCacheControlByPolicyThenHashedFileName() {
+        var project = createProject("foo", "foo");
+        project.getSpec().setCachePolicies(List.of(
+            createCachePolicy("**/*.html", "no-store"),
+            createCachePolicy("assets/**", "public, max-age=3600")
+        ));
+        rewriteRules.updateRules(project);
+
+        var matcher = rewriteRules.getMatcher("/foo");
+        assertThat(matcher).isNotNull();
+        assertThat(matcher.cacheControlOf("index.html")).isEqualTo("no-store");
+        assertThat(matcher.cacheControlOf("docs/index.html")).isEqualTo("no-store");
+        assertThat(matcher.cacheControlOf("assets/logo.png")).isEqualTo("public, max-age=3600");
+        assertThat(matcher.cacheControlOf("js/app.3f9a1c.js"))
+            .isEqualTo(ProjectRewriteMatcher.IMMUTABLE);
+        assertThat(matcher.cacheControlOf("js/app.js")).isNull();
+
+        project.getSpec().setImmutableHashedFiles(false);
+        rewriteRules.updateRules(project);
+        assertThat(rewriteRules.getMatcher("/foo").cacheControlOf("js/app.3f9a1c.js")).isNull();
+    }
+
+    @Test
+    void shouldDetectHashedFileNames() {
+        assertThat(ProjectRewriteMatcher.isHashedFileName("app.3f9a1c.js")).isTrue();
+        assertThat(ProjectRewriteMatcher.isHashedFileName("assets/index-4f2c81ab.css")).isTrue();
+        assertThat(ProjectRewriteMatcher.isHashedFileName("chunk-B3x9YzQa.js")).isTrue();
+        assertThat(ProjectRewriteMatcher.isHashedFileName("app.js")).isFalse();
+        assertThat(ProjectRewriteMatcher.isHashedFileName("jquery-3.6.0.min.js")).isFalse();
+        assertThat(ProjectRewriteMatcher.isHashedFileName("my-component.js")).isFalse();
+        assertThat(ProjectRewriteMatcher.isHashedFileName("report-2024.pdf")).isFalse();
+        assertThat(ProjectRewriteMatcher.isHashedFileName("banner-1920x1080.jpg")).isFalse();
+        assertThat(ProjectRewriteMatcher.isHashedFileName("3f9a1c.js")).isFalse();
+    }
+
+    private String find(String path) {
+        var matcher = rewriteRules.findMatcher(PathContainer.parsePath(path));
+        return matcher == null ? null : matcher.getProjectName();
+    }
+
+    private static Project.Rewrite createRewrite(String source, String target) {
+        var rewrite = new Project.Rewrite();
+        rewrite.setSource(source);
+        rewrite.setTarget(target);
+        return rewrite;
+    }
+
+    private static Project.CachePolicy createCachePolicy(String pattern, String cacheControl) {
+        var policy = new Project.CachePolicy();
+        policy.setPattern(pattern);
+        policy.setCacheControl(cacheControl);
+        return policy;
+    }
+
+    private static Project createProject(String name, String directory) {
+        var project = new Project();
+        project.setMetadata(new Metadata());
+        project.getMetadata().setName(name);
+        project.setSpec(new Project.Spec());
+        project.getSpec().setDirectory(directory);
+        return project;
+    }
+}
@@ -0,0 +1,61 @@
+package cc.ryanc.staticpages.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProjectRootMaterializerTest {
+
+    @TempDir
+    private Path projectPath;
+
+    private Path versionPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        versionPath = projectPath.resolve("versions/version-2");
+        writeFile(versionPath.resolve("index.html"), "v2");
+        writeFile(versionPath.resolve("assets/app.js"), "app");
+        writeFile(projectPath.resolve("index.html"), "v1");
+        writeFile(projectPath.resolve("stale/old.html"), "v1");
+    }
+
+    @Test
+    void shouldOnlyClearRootByDefault() throws IOException {
+        new ProjectRootMaterializer("none").materialize(projectPath, versionPath);
+
+        assertThat(projectPath.resolve("index.html")).doesNotExist();
+        assertThat(projectPath.resolve("stale")).doesNotExist();
+        assertThat(versionPath.resolve("index.html")).hasContent("v2");
+    }
+
+    @Test
+    void shouldMirrorVersionWithHardLinks() throws IOException {
+        new ProjectRootMaterializer("link").materialize(projectPath, versionPath);
+
+        assertThat(projectPath.resolve("index.html")).hasContent("v2");
+        assertThat(Files.isSameFile(projectPath.resolve("assets/app.js"),
+            versionPath.resolve("assets/app.js"))).isTrue();
+        assertThat(projectPath.resolve("stale")).doesNotExist();
+        assertThat(versionPath.resolve("index.html")).hasContent("v2");
+    }
+
+    @Test
+    void shouldMirrorVersionWithCopies() throws IOException {
+        new ProjectRootMaterializer("copy").materialize(projectPath, versionPath);
+
+        assertThat(projectPath.resolve("index.html")).hasContent("v2");
+        assertThat(projectPath.resolve("assets/app.js")).hasContent("app");
+        assertThat(projectPath.resolve("stale")).doesNotExist();
+    }
+
+    private static void writeFile(Path path, String content) throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+    }
+}
@@ -0,0 +1,128 @@
+package cc.ryanc.staticpages.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import cc.ryanc.staticpages.model.UploadSession;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+class UploadSessionManagerTest {
+
+    @TempDir
+    private Path spoolDir;
+
+    private final UploadSessionManager manager = new UploadSessionManager(60_000, 1024);
+
+    @Test
+    void shouldAssembleChunksReceivedOutOfOrder() {
+        var session = manager.create("fake-project", spoolDir, "site.zip", 11, true, null)
+            .block();
+        assertThat(session).isNotNull();
+
+        StepVerifier.create(writeChunk(session, 1, 6, "world"))
+            .assertNext(s -> assertThat(s.getReceivedChunks()).containsExactly(1))
+            .verifyComplete();
+        StepVerifier.create(manager.commit("fake-project", session.getId()))
+            .expectError(ServerWebInputException.class)
+            .verify();
+
+        StepVerifier.create(writeChunk(session, 0, 0, "hello "))
+            .assertNext(s -> assertThat(s.getReceivedBytes()).isEqualTo(11))
+            .verifyComplete();
+        StepVerifier.create(manager.commit("fake-project", session.getId())
+                .flatMap(context -> DataBufferUtils.join(context.getContent()))
+                .map(buffer -> buffer.toString(StandardCharsets.UTF_8)))
+            .expectNext("hello world")
+            .verifyComplete();
+
+        manager.remove(session.getId());
+        assertThat(spoolDir.resolve(session.getId())).doesNotExist();
+    }
+
+    @Test
+    void shouldRejectChunkWithWrongChecksum() {
+        var session = manager.create("fake-project", spoolDir, "site.zip", 5, true, null)
+            .block();
+        assertThat(session).isNotNull();
+
+        StepVerifier.create(manager.writeChunk("fake-project", session.getId(), 0, 0,
+                sha256("other"), content("hello")))
+            .expectError(ServerWebInputException.class)
+            .verify();
+
+        StepVerifier.create(manager.get("fake-project", session.getId()))
+            .assertNext(s -> assertThat(s.getReceivedChunks()).isEmpty())
+            .verifyComplete();
+    }
+
+    @Test
+    void shouldRejectChunkBeyondFileSize() {
+        var session = manager.create("fake-project", spoolDir, "site.zip", 5, true, null)
+            .block();
+        assertThat(session).isNotNull();
+
+        StepVerifier.create(writeChunk(session, 0, 0, "hello world"))
+            .expectError(ServerWebInputException.class)
+            .verify();
+        assertThat(Files.exists(spoolDir.resolve(session.getId()))).isTrue();
+    }
+
+    @Test
+    void shouldNotCommitWhileChunkIsWritten() {
+        var session = manager.create("fake-project", spoolDir, "site.zip", 5, true, null)
+            .block();
+        assertThat(session).isNotNull();
+        writeChunk(session, 0, 0, "hello").block();
+
+        var content = Sinks.many().unicast().<DataBuffer>onBackpressureBuffer();
+        var write = manager.writeChunk("fake-project", session.getId(), 0, 0,
+                sha256("hello"), content.asFlux())
+            .toFuture();
+        StepVerifier.create(manager.commit("fake-project", session.getId()))
+            .expectErrorSatisfies(e -> assertThat(e).isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("still being written"))
+            .verify();
+
+        content.tryEmitNext(DefaultDataBufferFactory.sharedInstance.wrap(
+            "hello".getBytes(StandardCharsets.UTF_8)));
+        content.tryEmitComplete();
+        assertThat(write.join().getReceivedBytes()).isEqualTo(5);
+        StepVerifier.create(manager.commit("fake-project", session.getId()))
+            .expectNextCount(1)
+            .verifyComplete();
+    }
+
+    private Mono<UploadSession> writeChunk(UploadSession session,
+        int index, long offset, String content) {
+        return manager.writeChunk("fake-project", session.getId(), index, offset,
+            sha256(content), content(content));
+    }
+
+    private static Flux<DataBuffer> content(String content) {
+        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(
+            content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String sha256(String content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
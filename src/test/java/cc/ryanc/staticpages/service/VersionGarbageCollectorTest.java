@@ -0,0 +1,165 @@
+package cc.ryanc.staticpages.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+import cc.ryanc.staticpages.extensions.Project;
+import cc.ryanc.staticpages.extensions.ProjectVersion;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import run.halo.app.extension.Metadata;
+import run.halo.app.extension.ReactiveExtensionClient;
+import run.halo.app.infra.BackupRootGetter;
+
+@ExtendWith(MockitoExtension.class)
+class VersionGarbageCollectorTest {
+
+    @Mock
+    private ReactiveExtensionClient client;
+
+    @Mock
+    private VersionService versionService;
+
+    @Mock
+    private BackupRootGetter backupRootGetter;
+
+    @TempDir
+    private Path tempDir;
+
+    private final UploadSessionManager uploadSessionManager =
+        new UploadSessionManager(60_000, 1024);
+
+    private VersionGarbageCollector garbageCollector;
+
+    private Path versionsPath;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(backupRootGetter.get()).thenReturn(tempDir.resolve("backup"));
+        versionsPath = tempDir.resolve("static/test-dir/versions");
+        var fileIndex = new ProjectFileIndex(new NotFoundCache(100), new HotFileCache(1024, 128));
+        garbageCollector = new VersionGarbageCollector(client, versionService, new ContentStore(),
+            fileIndex, uploadSessionManager, backupRootGetter, 3_600_000, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        garbageCollector.destroy();
+    }
+
+    @Test
+    void shouldSweepOrphansOlderThanGracePeriod() throws IOException {
+        var version = createVersion("test-project", 1);
+        var versionDir = createOld(versionsPath.resolve("version-1"), true);
+        var orphanDir = createOld(versionsPath.resolve("version-2"), true);
+        var orphanManifest = createOld(versionsPath.resolve("version-2.manifest"), false);
+        var recentDir = Files.createDirectories(versionsPath.resolve("version-3"));
+        var stagingDir = createOld(
+            versionsPath.resolve(".version-4.staging-" + UUID.randomUUID()), true);
+        var spoolFile = createOld(
+            versionsPath.resolve(".version-4.spool-" + UUID.randomUUID()), false);
+        var uploadFile = createOld(versionsPath.resolve(".upload-123.tmp"), false);
+        var spoolDir = UploadSessionManager.spoolDirOf(tempDir, "test-project");
+        var uploadSpoolFile = createOld(spoolDir.resolve(UUID.randomUUID().toString()), false);
+        var session = uploadSessionManager.create("test-project", spoolDir, "site.zip", 1, true,
+            null).block();
+        assertThat(session).isNotNull();
+        var openSessionFile = spoolDir.resolve(session.getId());
+        Files.setLastModifiedTime(openSessionFile, oldTime());
+        var objectsDir = createOld(versionsPath.resolve(ContentStore.OBJECTS_DIR), true);
+
+        when(client.fetch(Project.class, "test-project")).thenReturn(Mono.just(createProject()));
+        when(versionService.cleanupOldVersions("test-project")).thenReturn(Mono.empty());
+        when(versionService.listVersions("test-project")).thenReturn(Flux.just(version));
+
+        StepVerifier.create(garbageCollector.collect("test-project"))
+            .verifyComplete();
+
+        assertThat(versionDir).exists();
+        assertThat(orphanDir).doesNotExist();
+        assertThat(orphanManifest).doesNotExist();
+        assertThat(recentDir).exists();
+        assertThat(stagingDir).doesNotExist();
+        assertThat(spoolFile).doesNotExist();
+        assertThat(uploadFile).doesNotExist();
+        assertThat(uploadSpoolFile).doesNotExist();
+        assertThat(openSessionFile).exists();
+        assertThat(objectsDir).exists();
+    }
+
+    @Test
+    void shouldSweepSpoolWithoutVersionsDirectory() throws IOException {
+        var spoolDir = UploadSessionManager.spoolDirOf(tempDir, "test-project");
+        var uploadSpoolFile = createOld(spoolDir.resolve(UUID.randomUUID().toString()), false);
+
+        when(client.fetch(Project.class, "test-project")).thenReturn(Mono.just(createProject()));
+        when(versionService.cleanupOldVersions("test-project")).thenReturn(Mono.empty());
+        when(versionService.listVersions("test-project")).thenReturn(Flux.empty());
+
+        StepVerifier.create(garbageCollector.collect("test-project"))
+            .verifyComplete();
+
+        assertThat(versionsPath).doesNotExist();
+        assertThat(uploadSpoolFile).doesNotExist();
+    }
+
+    @Test
+    void shouldSkipDeletedProject() {
+        when(client.fetch(Project.class, "test-project")).thenReturn(Mono.empty());
+
+        StepVerifier.create(garbageCollector.collect("test-project"))
+            .verifyComplete();
+    }
+
+    private static Path createOld(Path path, boolean directory) throws IOException {
+        Files.createDirectories(path.getParent());
+        if (directory) {
+            Files.createDirectory(path);
+        } else {
+            Files.createFile(path);
+        }
+        Files.setLastModifiedTime(path, oldTime());
+        return path;
+    }
+
+    private static FileTime oldTime() {
+        return FileTime.from(Instant.now().minus(Duration.ofDays(2)));
+    }
+
+    private static Project createProject() {
+        var project = new Project();
+        project.setMetadata(new Metadata());
+        project.getMetadata().setName("test-project");
+        project.setSpec(new Project.Spec());
+        project.getSpec().setDirectory("test-dir");
+        return project;
+    }
+
+    private static ProjectVersion createVersion(String projectName, int versionNumber) {
+        var version = new ProjectVersion();
+        version.setMetadata(new Metadata());
+        version.getMetadata().setName(projectName + "-version-" + versionNumber);
+        var spec = new ProjectVersion.Spec();
+        spec.setProjectName(projectName);
+        spec.setVersion(versionNumber);
+        spec.setDirectory("versions/version-" + versionNumber);
+        version.setSpec(spec);
+        return version;
+    }
+}
@@ -2,26 +2,43 @@ package cc.ryanc.staticpages.service.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import cc.ryanc.staticpages.extensions.Project;
 import cc.ryanc.staticpages.extensions.ProjectVersion;
+import cc.ryanc.staticpages.service.ContentStore;
+import cc.ryanc.staticpages.service.HotFileCache;
+import cc.ryanc.staticpages.service.NotFoundCache;
+import cc.ryanc.staticpages.service.ProjectFileIndex;
 import cc.ryanc.staticpages.service.ProjectLockManager;
+import cc.ryanc.staticpages.service.ProjectRootMaterializer;
+import cc.ryanc.staticpages.service.VersionManifest;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Comparator;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.function.Predicate;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
+import run.halo.app.extension.ListOptions;
 import run.halo.app.extension.Metadata;
 import run.halo.app.extension.ReactiveExtensionClient;
 import run.halo.app.infra.BackupRootGetter;
@@ -40,62 +57,115 @@ class DefaultVersionServiceTest {
     
     private DefaultVersionService versionService;
     private ProjectLockManager lockManager;
+    private ProjectFileIndex fileIndex;
     
     @BeforeEach
     void setUp() {
         lenient().when(backupRootGetter.get()).thenReturn(tempDir.resolve("backup"));
         lockManager = new ProjectLockManager(3600000); // 1 hour
-        versionService = new DefaultVersionService(client, backupRootGetter, lockManager);
+        fileIndex = new ProjectFileIndex(new NotFoundCache(100), new HotFileCache(1024, 128));
+        versionService = new DefaultVersionService(client, backupRootGetter, lockManager,
+            fileIndex, new ProjectRootMaterializer("none"), new ContentStore());
     }
     
     @Test
-    void shouldGetNextVersionNumber() {
+    void shouldAllocateVersionNumberFromCounter() {
+        // Given
+        String projectName = "test-project";
+        
+        when(client.get(Project.class, projectName))
+            .thenAnswer(invocation -> Mono.just(createProject(5)));
+        when(client.update(any(Project.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        
+        // When & Then
+        StepVerifier.create(versionService.allocateVersionNumber(projectName))
+            .expectNext(6)
+            .verifyComplete();
+        verify(client).update(argThat((Project project) ->
+            project.getStatus().getLastVersion() == 6));
+        verify(client, never()).listAll(eq(ProjectVersion.class), any(ListOptions.class),
+            any(Sort.class));
+    }
+    
+    @Test
+    void shouldAllocateVersionNumberAfterExistingVersions() {
         // Given
         String projectName = "test-project";
         
         ProjectVersion v1 = createVersion(projectName, 1);
         ProjectVersion v2 = createVersion(projectName, 2);
         
-        when(client.list(eq(ProjectVersion.class), any(Predicate.class), any(Comparator.class)))
+        when(client.get(Project.class, projectName))
+            .thenAnswer(invocation -> Mono.just(createProject(null)));
+        when(client.listAll(eq(ProjectVersion.class), any(ListOptions.class), any(Sort.class)))
             .thenReturn(Flux.just(v2, v1));
+        when(client.update(any(Project.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
         
         // When & Then
-        StepVerifier.create(versionService.getNextVersionNumber(projectName))
+        StepVerifier.create(versionService.allocateVersionNumber(projectName))
             .expectNext(3)
             .verifyComplete();
     }
     
     @Test
-    void shouldGetNextVersionNumberWhenNoVersions() {
+    void shouldAllocateFirstVersionNumberWhenNoVersions() {
         // Given
         String projectName = "test-project";
         
-        when(client.list(eq(ProjectVersion.class), any(Predicate.class), any(Comparator.class)))
+        when(client.get(Project.class, projectName))
+            .thenAnswer(invocation -> Mono.just(createProject(null)));
+        when(client.listAll(eq(ProjectVersion.class), any(ListOptions.class), any(Sort.class)))
             .thenReturn(Flux.empty());
+        when(client.update(any(Project.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
         
         // When & Then
-        StepVerifier.create(versionService.getNextVersionNumber(projectName))
+        StepVerifier.create(versionService.allocateVersionNumber(projectName))
             .expectNext(1)
             .verifyComplete();
     }
     
+    @Test
+    void shouldRetryVersionNumberAllocationOnConflict() {
+        // Given
+        String projectName = "test-project";
+        var lastVersion = new AtomicInteger(5);
+        
+        when(client.get(Project.class, projectName))
+            .thenAnswer(invocation -> Mono.just(createProject(lastVersion.get())));
+        when(client.update(any(Project.class)))
+            .thenAnswer(invocation -> {
+                // Another writer allocated a number in between
+                lastVersion.incrementAndGet();
+                return Mono.error(new OptimisticLockingFailureException("Conflict"));
+            })
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        
+        // When & Then
+        StepVerifier.create(versionService.allocateVersionNumber(projectName))
+            .expectNext(7)
+            .verifyComplete();
+    }
+    
     @Test
     void shouldCreateVersion() {
         // Given
         String projectName = "test-project";
         String description = "Test version";
         
-        Project project = new Project();
-        project.setSpec(new Project.Spec());
-        project.getSpec().setDirectory("test-dir");
+        Project project = createProject(null);
         project.getSpec().setMaxVersions(10);
         
         ProjectVersion newVersion = createVersion(projectName, 1);
         
-        when(client.list(eq(ProjectVersion.class), any(Predicate.class), any(Comparator.class)))
+        when(client.listAll(eq(ProjectVersion.class), any(ListOptions.class), any(Sort.class)))
             .thenReturn(Flux.empty());
         when(client.create(any(ProjectVersion.class))).thenReturn(Mono.just(newVersion));
         when(client.get(Project.class, projectName)).thenReturn(Mono.just(project));
+        when(client.update(any(Project.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
         
         // When & Then
         StepVerifier.create(versionService.createVersion(projectName, description))
@@ -115,8 +185,8 @@ class DefaultVersionServiceTest {
         ProjectVersion v2 = createVersion(projectName, 2);
         ProjectVersion v3 = createVersion(projectName, 3);
         
-        when(client.list(eq(ProjectVersion.class), any(Predicate.class), any(Comparator.class)))
-            .thenReturn(Flux.just(v3, v2, v1));
+        when(client.listAll(eq(ProjectVersion.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.just(v2, v3, v1));
         
         // When & Then
         StepVerifier.create(versionService.listVersions(projectName))
@@ -133,8 +203,8 @@ class DefaultVersionServiceTest {
         ProjectVersion v2 = createVersion(projectName, 2);
         v2.getSpec().setActive(true);
         
-        when(client.list(eq(ProjectVersion.class), any(Predicate.class), any(Comparator.class)))
-            .thenReturn(Flux.just(v2, v1));
+        when(client.listAll(eq(ProjectVersion.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.just(v2));
         
         // When & Then
         StepVerifier.create(versionService.getActiveVersion(projectName))
@@ -142,6 +212,195 @@ class DefaultVersionServiceTest {
             .verifyComplete();
     }
     
+    @Test
+    void shouldSelectVersionsExpiredByRetentionPolicies() {
+        // Given
+        String projectName = "test-project";
+        var now = Instant.now();
+        
+        var versions = new ArrayList<ProjectVersion>();
+        for (int i = 6; i >= 1; i--) {
+            var version = createVersion(projectName, i);
+            version.getSpec().setCreationTime(now.minus(Duration.ofDays(10 - i)));
+            version.getSpec().setSize(100L);
+            versions.add(version);
+        }
+        // v2 is active
+        versions.get(4).getSpec().setActive(true);
+        var spec = new Project.Spec();
+        var gracePeriod = Duration.ofDays(1);
+        
+        // Then
+        spec.setMaxVersions(3);
+        assertThat(DefaultVersionService.selectExpiredVersions(versions, spec, now,
+                gracePeriod))
+            .extracting(v -> v.getSpec().getVersion())
+            .containsExactly(3, 1);
+        
+        spec.setMaxVersions(0);
+        spec.setMaxVersionAgeDays(7);
+        assertThat(DefaultVersionService.selectExpiredVersions(versions, spec, now,
+                gracePeriod))
+            .extracting(v -> v.getSpec().getVersion())
+            .containsExactly(1);
+        
+        // The active version counts towards the total size
+        spec.setMaxVersionAgeDays(0);
+        spec.setMaxTotalSize(450L);
+        assertThat(DefaultVersionService.selectExpiredVersions(versions, spec, now,
+                gracePeriod))
+            .extracting(v -> v.getSpec().getVersion())
+            .containsExactly(3, 1);
+    }
+    
+    @Test
+    void shouldKeepVersionsThatMayStillBeWritten() {
+        // Given
+        String projectName = "test-project";
+        var now = Instant.now();
+        
+        // v3 is the newest, v2 is an overlapping upload still extracting
+        var versions = new ArrayList<ProjectVersion>();
+        for (int i = 3; i >= 1; i--) {
+            var version = createVersion(projectName, i);
+            version.getSpec().setCreationTime(now.minus(Duration.ofHours(3 - i)));
+            versions.add(version);
+        }
+        versions.get(2).getSpec().setCreationTime(now.minus(Duration.ofDays(2)));
+        var spec = new Project.Spec();
+        spec.setMaxVersions(1);
+        
+        // Then
+        assertThat(DefaultVersionService.selectExpiredVersions(versions, spec, now,
+                Duration.ofDays(1)))
+            .extracting(v -> v.getSpec().getVersion())
+            .containsExactly(1);
+    }
+    
+    @Test
+    void shouldUpdateStatistics() {
+        // Given
+        ProjectVersion v1 = createVersion("test-project", 1);
+        var statistics = new VersionManifest.Statistics(107, 2,
+            List.of(Map.entry("app.js", 100L), Map.entry("index.html", 7L)));
+        
+        when(client.get(ProjectVersion.class, v1.getMetadata().getName()))
+            .thenReturn(Mono.just(v1));
+        when(client.update(any(ProjectVersion.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        
+        // When & Then
+        StepVerifier.create(versionService.updateStatistics(v1.getMetadata().getName(),
+                statistics))
+            .assertNext(version -> {
+                assertThat(version.getSpec().getSize()).isEqualTo(107);
+                assertThat(version.getSpec().getFileCount()).isEqualTo(2);
+                assertThat(version.getSpec().getLargestFiles())
+                    .extracting(ProjectVersion.FileSize::getPath)
+                    .containsExactly("app.js", "index.html");
+            })
+            .verifyComplete();
+        
+        // Unchanged statistics are not written again
+        StepVerifier.create(versionService.updateStatistics(v1.getMetadata().getName(),
+                statistics))
+            .expectNext(v1)
+            .verifyComplete();
+        verify(client).update(any(ProjectVersion.class));
+    }
+    
+    @Test
+    void shouldActivateVersionInPlace() throws IOException {
+        // Given
+        String projectName = "test-project";
+        
+        Project project = new Project();
+        project.setSpec(new Project.Spec());
+        project.getSpec().setDirectory("test-dir");
+        
+        ProjectVersion v1 = createVersion(projectName, 1);
+        ProjectVersion v2 = createVersion(projectName, 2);
+        v1.getSpec().setActive(true);
+        
+        Path projectPath = tempDir.resolve("static/test-dir");
+        Path versionPath = projectPath.resolve("versions/version-2");
+        Files.createDirectories(versionPath);
+        Files.writeString(versionPath.resolve("index.html"), "v2");
+        // Left behind by releases that copied the active version into the project root
+        Files.writeString(projectPath.resolve("index.html"), "v1");
+        
+        when(client.get(ProjectVersion.class, v2.getMetadata().getName()))
+            .thenReturn(Mono.just(v2));
+        when(client.get(Project.class, projectName)).thenReturn(Mono.just(project));
+        when(client.listAll(eq(ProjectVersion.class), any(ListOptions.class), any(Sort.class)))
+            .thenReturn(Flux.just(v2, v1));
+        when(client.update(any(ProjectVersion.class)))
+            .thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        
+        // When & Then
+        StepVerifier.create(versionService.activateVersion(v2.getMetadata().getName()))
+            .assertNext(version -> assertThat(version.getSpec().getActive()).isTrue())
+            .verifyComplete();
+        
+        assertThat(v1.getSpec().getActive()).isFalse();
+        var snapshot = fileIndex.get(projectName);
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.getRoot()).isEqualTo(versionPath);
+        assertThat(snapshot.getVersionDirectory()).isEqualTo("versions/version-2");
+        assertThat(snapshot.exists("index.html")).isTrue();
+        assertThat(projectPath.resolve("index.html")).doesNotExist();
+        assertThat(versionPath.resolve("index.html")).hasContent("v2");
+    }
+    
+    @Test
+    void shouldKeepServingPreviousVersionWhenActivationFails() throws IOException {
+        // Given
+        String projectName = "test-project";
+        
+        Project project = new Project();
+        project.setSpec(new Project.Spec());
+        project.getSpec().setDirectory("test-dir");
+        
+        ProjectVersion v1 = createVersion(projectName, 1);
+        ProjectVersion v2 = createVersion(projectName, 2);
+        v1.getSpec().setActive(true);
+        
+        Path projectPath = tempDir.resolve("static/test-dir");
+        Path versionPath = projectPath.resolve("versions/version-1");
+        Files.createDirectories(versionPath);
+        Files.writeString(versionPath.resolve("index.html"), "v1");
+        fileIndex.rebuild(projectName, projectPath, v1.getMetadata().getName(),
+            v1.getSpec().getDirectory());
+        // The directory of version 2 is missing
+        
+        when(client.get(ProjectVersion.class, v2.getMetadata().getName()))
+            .thenReturn(Mono.just(v2));
+        when(client.get(Project.class, projectName)).thenReturn(Mono.just(project));
+        
+        // When & Then
+        StepVerifier.create(versionService.activateVersion(v2.getMetadata().getName()))
+            .expectError(IllegalStateException.class)
+            .verify();
+        
+        verify(client, never()).update(any(ProjectVersion.class));
+        assertThat(v1.getSpec().getActive()).isTrue();
+        assertThat(v2.getSpec().getActive()).isFalse();
+        var snapshot = fileIndex.get(projectName);
+        assertThat(snapshot).isNotNull();
+        assertThat(snapshot.getVersionName()).isEqualTo(v1.getMetadata().getName());
+        assertThat(snapshot.exists("index.html")).isTrue();
+    }
+    
+    private Project createProject(Integer lastVersion) {
+        Project project = new Project();
+        project.setMetadata(new Metadata());
+        project.getMetadata().setName("test-project");
+        project.setSpec(new Project.Spec());
+        project.getSpec().setDirectory("test-dir");
+        project.getStatus().setLastVersion(lastVersion);
+        return project;
+    }
+    
     private ProjectVersion createVersion(String projectName, int versionNumber) {
         ProjectVersion version = new ProjectVersion();
         version.setMetadata(new Metadata());
@@ -1,25 +1,60 @@
 package cc.ryanc.staticpages.service.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 import cc.ryanc.staticpages.extensions.Project;
+import cc.ryanc.staticpages.service.HotFileCache;
+import cc.ryanc.staticpages.service.NotFoundCache;
+import cc.ryanc.staticpages.service.PageFileManager;
+import cc.ryanc.staticpages.service.ProjectFileIndex;
+import cc.ryanc.staticpages.service.ProjectLockManager;
+import cc.ryanc.staticpages.service.VersionService;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import run.halo.app.extension.ReactiveExtensionClient;
 import run.halo.app.infra.BackupRootGetter;
 
 @ExtendWith(MockitoExtension.class)
 class PageProjectServiceImplTest {
+    @Mock
+    private ReactiveExtensionClient client;
+
     @Mock
     private BackupRootGetter backupRootGetter;
 
+    @Mock
+    private VersionService versionService;
+
+    @Spy
+    private ProjectFileIndex fileIndex =
+        new ProjectFileIndex(new NotFoundCache(100), new HotFileCache(1024, 128));
+
+    @Spy
+    private PageFileManager pageFileManager = new DefaultPageFileManager();
+
+    @Spy
+    private ProjectLockManager lockManager = new ProjectLockManager(3600000);
+
     @TempDir
     private Path tempDir;
 
@@ -42,6 +77,51 @@ class PageProjectServiceImplTest {
         assertThat(path).isEqualTo(expectedPath);
     }
 
+    @Test
+    void extractProjectFilePathWithVersionFromSnapshot() throws IOException {
+        var projectPath = tempDir.resolve("static/fake-project");
+        Files.createDirectories(projectPath.resolve("versions/version-1"));
+        fileIndex.rebuild("fake-project", projectPath, "fake-project-version-1",
+            "versions/version-1");
+
+        StepVerifier.create(pageProjectService.extractProjectFilePathWithVersion("fake-project",
+                "/assets/app.js"))
+            .expectNext(Paths.get(projectPath.toString(), "versions", "version-1", "assets",
+                "app.js"))
+            .verifyComplete();
+        verifyNoInteractions(client);
+    }
+
+    @Test
+    void shouldResolveEditorPathOnceLockIsHeld() throws IOException {
+        var projectPath = tempDir.resolve("static/fake-project");
+        var v1File = projectPath.resolve("versions/version-1/index.html");
+        var v2File = projectPath.resolve("versions/version-2/index.html");
+        Files.createDirectories(v1File.getParent());
+        Files.createDirectories(v2File.getParent());
+        Files.writeString(v1File, "v1");
+        Files.writeString(v2File, "v2");
+        fileIndex.rebuild("fake-project", projectPath, "fake-project-version-1",
+            "versions/version-1");
+        when(versionService.updateStatistics(any(), any())).thenReturn(Mono.empty());
+
+        // An activation of version 2 holds the lock while the write is issued
+        var activation = Sinks.empty();
+        lockManager.withLock("fake-project", activation.asMono()
+                .then(Mono.fromRunnable(() -> fileIndex.rebuild("fake-project", projectPath,
+                    "fake-project-version-2", "versions/version-2"))))
+            .subscribe();
+        var write = pageProjectService.writeContent("fake-project", "/index.html", "edited")
+            .toFuture();
+        assertThat(write).isNotDone();
+
+        activation.tryEmitEmpty();
+        write.join();
+
+        assertThat(v2File).hasContent("edited");
+        assertThat(v1File).hasContent("v1");
+    }
+
     @Test
     void concatPath() {
         var path = PageProjectServiceImpl.concatPath(tempDir);
@@ -50,4 +130,17 @@ class PageProjectServiceImplTest {
         path = PageProjectServiceImpl.concatPath(tempDir, "a", "b", "c");
         assertThat(path).isEqualTo(Paths.get(tempDir.toString(), "a", "b", "c"));
     }
+
+    @Test
+    void normalizeManifest() {
+        var hash = "A".repeat(64);
+        var manifest = PageProjectServiceImpl.normalizeManifest(Map.of("/assets//app.js", hash));
+        assertThat(manifest).containsExactly(Map.entry("assets/app.js", "a".repeat(64)));
+
+        assertThatThrownBy(() -> PageProjectServiceImpl.normalizeManifest(Map.of("/", hash)))
+            .isInstanceOf(ServerWebInputException.class);
+        assertThatThrownBy(() -> PageProjectServiceImpl.normalizeManifest(
+            Map.of("index.html", "not-a-hash")))
+            .isInstanceOf(ServerWebInputException.class);
+    }
 }
@@ -0,0 +1,87 @@
+package cc.ryanc.staticpages.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class FileUtilsTest {
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void shouldPublishExtractedArchiveInPlace() throws IOException {
+        var storePath = tempDir.resolve("versions/version-1");
+        Files.createDirectories(storePath);
+
+        StepVerifier.create(FileUtils.unzipTo(zip(), storePath))
+            .verifyComplete();
+
+        assertThat(storePath.resolve("index.html")).hasContent("index");
+        assertThat(storePath.resolve("assets/app.js")).hasContent("app");
+        try (var siblings = Files.list(storePath.getParent())) {
+            assertThat(siblings).containsExactly(storePath);
+        }
+    }
+
+    @Test
+    void shouldMergeIntoNonEmptyDirectory() throws IOException {
+        var storePath = tempDir.resolve("site");
+        Files.createDirectories(storePath);
+        Files.writeString(storePath.resolve("keep.txt"), "keep");
+
+        StepVerifier.create(FileUtils.unzipTo(zip(), storePath))
+            .verifyComplete();
+
+        assertThat(storePath.resolve("keep.txt")).hasContent("keep");
+        assertThat(storePath.resolve("index.html")).hasContent("index");
+        try (var siblings = Files.list(tempDir)) {
+            assertThat(siblings).containsExactly(storePath);
+        }
+    }
+
+    @Test
+    void shouldHashExtractedFilesUnderStorePath() throws IOException {
+        var storePath = tempDir.resolve("versions/version-1");
+        var hashes = new ConcurrentHashMap<Path, String>();
+
+        StepVerifier.create(FileUtils.extractTo(zip(), storePath, ArchiveFormat.ZIP, hashes::put))
+            .verifyComplete();
+
+        assertThat(hashes).containsOnly(
+            entry(storePath.resolve("index.html"), sha256("index")),
+            entry(storePath.resolve("assets/app.js"), sha256("app")));
+    }
+
+    private static String sha256(String content) {
+        var digest = FileUtils.newSha256Digest();
+        return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Flux<DataBuffer> zip() throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var zos = new ZipOutputStream(out)) {
+            zos.putNextEntry(new ZipEntry("index.html"));
+            zos.write("index".getBytes(StandardCharsets.UTF_8));
+            zos.putNextEntry(new ZipEntry("assets/"));
+            zos.putNextEntry(new ZipEntry("assets/app.js"));
+            zos.write("app".getBytes(StandardCharsets.UTF_8));
+        }
+        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(out.toByteArray()));
+    }
+}
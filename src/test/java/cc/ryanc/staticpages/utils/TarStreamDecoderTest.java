@@ -0,0 +1,243 @@
+package cc.ryanc.staticpages.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class TarStreamDecoderTest {
+
+    private static final String LONG_NAME = "assets/" + "a".repeat(120) + "/chunk.js";
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 512, Integer.MAX_VALUE})
+    void shouldDecodeEntriesSplitAcrossBuffers(int bufferSize) throws IOException {
+        var tar = new TarWriter();
+        var html = tar.file("index.html", 1000);
+        tar.directory("assets/");
+        var js = tar.gnuLongNameFile(LONG_NAME, 70_000);
+        var css = tar.paxPathFile("assets/" + "b".repeat(150) + ".css", 513);
+        tar.symlink("assets/passwd", "/etc/passwd");
+        var collector = new Collector();
+
+        try (var decoder = new TarStreamDecoder(collector)) {
+            feed(decoder, tar.finish(), bufferSize);
+            decoder.finish();
+        }
+
+        assertThat(collector.entries.keySet()).containsExactly("index.html", "assets/",
+            LONG_NAME, "assets/" + "b".repeat(150) + ".css");
+        assertThat(collector.content("index.html")).isEqualTo(html);
+        assertThat(collector.content(LONG_NAME)).isEqualTo(js);
+        assertThat(collector.content("assets/" + "b".repeat(150) + ".css")).isEqualTo(css);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 4096, Integer.MAX_VALUE})
+    void shouldDecodeConcatenatedGzipMembers(int bufferSize) throws IOException {
+        var tar = new TarWriter();
+        var html = tar.file("index.html", 100_000);
+        var js = tar.file("app.js", 3000);
+        var bytes = tar.finish();
+        var out = new ByteArrayOutputStream();
+        // Two members, as written by parallel gzip implementations
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes, 0, 1024);
+        }
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes, 1024, bytes.length - 1024);
+        }
+        var collector = new Collector();
+
+        try (var decoder = new GzipStreamDecoder(new TarStreamDecoder(collector))) {
+            feed(decoder, out.toByteArray(), bufferSize);
+            decoder.finish();
+        }
+
+        assertThat(collector.content("index.html")).isEqualTo(html);
+        assertThat(collector.content("app.js")).isEqualTo(js);
+    }
+
+    @Test
+    void shouldRejectCorruptGzipStream() throws IOException {
+        var tar = new TarWriter();
+        tar.file("index.html", 100_000);
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(tar.finish());
+        }
+        var bytes = out.toByteArray();
+        // Flip a byte of the CRC-32 in the trailer
+        bytes[bytes.length - 8] ^= 0x55;
+
+        try (var decoder = new GzipStreamDecoder(new TarStreamDecoder(new Collector()))) {
+            assertThatThrownBy(() -> decoder.decode(ByteBuffer.wrap(bytes)))
+                .isInstanceOf(ZipException.class);
+        }
+    }
+
+    @Test
+    void shouldRejectTruncatedStream() throws IOException {
+        var tar = new TarWriter();
+        tar.file("index.html", 10_000);
+        var bytes = tar.finish();
+
+        try (var decoder = new TarStreamDecoder(new Collector())) {
+            decoder.decode(ByteBuffer.wrap(bytes, 0, 5000));
+            assertThatThrownBy(decoder::finish).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    void shouldRejectInvalidChecksum() {
+        var tar = new TarWriter();
+        tar.file("index.html", 10);
+        var bytes = tar.finish();
+        bytes[0] = 'x';
+
+        try (var decoder = new TarStreamDecoder(new Collector())) {
+            assertThatThrownBy(() -> decoder.decode(ByteBuffer.wrap(bytes)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("checksum");
+        }
+    }
+
+    @Test
+    void shouldDetectFormatFromContent() throws IOException {
+        var tar = new TarWriter();
+        tar.file("index.html", 10);
+        var bytes = tar.finish();
+        var gzipped = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(gzipped)) {
+            gzip.write(bytes);
+        }
+
+        assertThat(ArchiveFormat.detect(ByteBuffer.wrap(bytes))).isEqualTo(ArchiveFormat.TAR);
+        assertThat(ArchiveFormat.detect(ByteBuffer.wrap(gzipped.toByteArray())))
+            .isEqualTo(ArchiveFormat.TAR_GZ);
+        assertThat(ArchiveFormat.detect(ByteBuffer.wrap(new byte[] {0x28, (byte) 0xb5, 0x2f,
+            (byte) 0xfd}))).isEqualTo(ArchiveFormat.TAR_ZST);
+        assertThat(ArchiveFormat.detect(ByteBuffer.wrap(new byte[] {'P', 'K', 3, 4})))
+            .isEqualTo(ArchiveFormat.ZIP);
+        assertThat(ArchiveFormat.detect(ByteBuffer.wrap("<html>".getBytes()))).isNull();
+        assertThat(ArchiveFormat.of("tgz")).isEqualTo(ArchiveFormat.TAR_GZ);
+        assertThat(ArchiveFormat.of("auto")).isNull();
+    }
+
+    private static void feed(ArchiveDecoder decoder, byte[] bytes, int bufferSize)
+        throws IOException {
+        for (int offset = 0; offset < bytes.length; offset += bufferSize) {
+            var length = Math.min(bufferSize, bytes.length - offset);
+            var buffer = ByteBuffer.allocateDirect(length);
+            buffer.put(bytes, offset, length).flip();
+            decoder.decode(buffer);
+            assertThat(buffer.hasRemaining()).isFalse();
+        }
+    }
+
+    /**
+     * Writes ustar archives with the extensions the decoder understands.
+     */
+    static class TarWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final Random random = new Random(42);
+
+        byte[] file(String name, int size) {
+            var content = new byte[size];
+            random.nextBytes(content);
+            entry(name, '0', content, "");
+            return content;
+        }
+
+        void directory(String name) {
+            entry(name, '5', new byte[0], "");
+        }
+
+        void symlink(String name, String target) {
+            entry(name, '2', new byte[0], target);
+        }
+
+        byte[] gnuLongNameFile(String name, int size) {
+            entry("././@LongLink", 'L', (name + "\0").getBytes(StandardCharsets.UTF_8), "");
+            return file(name.substring(0, 100), size);
+        }
+
+        byte[] paxPathFile(String name, int size) {
+            var record = " path=" + name + "\n";
+            var length = record.length() + 3;
+            var pax = (length + record).getBytes(StandardCharsets.UTF_8);
+            entry("PaxHeader", 'x', pax, "");
+            return file("truncated.css", size);
+        }
+
+        byte[] finish() {
+            out.writeBytes(new byte[1024]);
+            return out.toByteArray();
+        }
+
+        private void entry(String name, char type, byte[] content, String linkName) {
+            var header = new byte[512];
+            put(header, 0, name, 100);
+            put(header, 100, "0000644", 8);
+            put(header, 124, String.format("%011o", content.length), 12);
+            put(header, 136, "00000000000", 12);
+            header[156] = (byte) type;
+            put(header, 157, linkName, 100);
+            put(header, 257, "ustar", 6);
+            put(header, 263, "00", 2);
+            Arrays.fill(header, 148, 156, (byte) ' ');
+            var checksum = 0;
+            for (var b : header) {
+                checksum += Byte.toUnsignedInt(b);
+            }
+            put(header, 148, String.format("%06o", checksum), 7);
+            out.writeBytes(header);
+            out.writeBytes(content);
+            out.writeBytes(new byte[(512 - content.length % 512) % 512]);
+        }
+
+        private static void put(byte[] header, int offset, String value, int length) {
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(bytes, 0, header, offset, Math.min(bytes.length, length));
+        }
+    }
+
+    private static class Collector implements ArchiveDecoder.EntryHandler {
+        private final Map<String, ByteArrayOutputStream> entries = new LinkedHashMap<>();
+        private ByteArrayOutputStream current;
+
+        @Override
+        public void startEntry(String name) {
+            current = new ByteArrayOutputStream();
+            entries.put(name, current);
+        }
+
+        @Override
+        public void write(ByteBuffer data) {
+            var bytes = new byte[data.remaining()];
+            data.get(bytes);
+            current.writeBytes(bytes);
+        }
+
+        @Override
+        public void endEntry() {
+            current = null;
+        }
+
+        byte[] content(String name) {
+            return entries.get(name).toByteArray();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package cc.ryanc.staticpages.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ZipStreamDecoderTest {
+
+    private final Map<String, byte[]> expected = new LinkedHashMap<>();
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 4096, Integer.MAX_VALUE})
+    void shouldDecodeEntriesSplitAcrossBuffers(int bufferSize) throws IOException {
+        var zip = zip();
+        var collector = new Collector();
+
+        try (var decoder = new ZipStreamDecoder(collector)) {
+            for (int offset = 0; offset < zip.length; offset += bufferSize) {
+                var length = Math.min(bufferSize, zip.length - offset);
+                var buffer = ByteBuffer.allocateDirect(length);
+                buffer.put(zip, offset, length).flip();
+                decoder.decode(buffer);
+                assertThat(buffer.hasRemaining()).isFalse();
+            }
+            decoder.finish();
+        }
+
+        assertThat(collector.entries).containsOnlyKeys(
+            "assets/", "assets/app.js", "assets/logo.png", "index.html");
+        expected.forEach((name, content) ->
+            assertThat(collector.entries.get(name).toByteArray()).isEqualTo(content));
+        assertThat(collector.entries.get("assets/").size()).isZero();
+    }
+
+    @Test
+    void shouldRejectTruncatedStream() throws IOException {
+        var zip = zip();
+
+        try (var decoder = new ZipStreamDecoder(new Collector())) {
+            decoder.decode(ByteBuffer.wrap(zip, 0, zip.length / 2));
+            assertThatThrownBy(decoder::finish).isInstanceOf(ZipException.class);
+        }
+    }
+
+    @Test
+    void shouldRejectCorruptEntry() throws IOException {
+        var zip = zip();
+        // Flip a byte in the content of the stored entry
+        zip[zip.length / 2] ^= 0x55;
+
+        try (var decoder = new ZipStreamDecoder(new Collector())) {
+            assertThatThrownBy(() -> decoder.decode(ByteBuffer.wrap(zip)))
+                .isInstanceOf(ZipException.class);
+        }
+    }
+
+    @Test
+    void shouldAcceptEmptyArchive() throws IOException {
+        var out = new ByteArrayOutputStream();
+        new ZipOutputStream(out).close();
+        var collector = new Collector();
+
+        try (var decoder = new ZipStreamDecoder(collector)) {
+            decoder.decode(ByteBuffer.wrap(out.toByteArray()));
+            decoder.finish();
+        }
+
+        assertThat(collector.entries).isEmpty();
+    }
+
+    private byte[] zip() throws IOException {
+        var random = new Random(42);
+        var html = new byte[100_000];
+        Arrays.fill(html, (byte) 'a');
+        var js = new byte[50_000];
+        random.nextBytes(js);
+        var png = new byte[200_000];
+        random.nextBytes(png);
+
+        var out = new ByteArrayOutputStream();
+        try (var zos = new ZipOutputStream(out)) {
+            zos.putNextEntry(new ZipEntry("assets/"));
+            putEntry(zos, "index.html", html, ZipEntry.DEFLATED);
+            putEntry(zos, "assets/app.js", js, ZipEntry.DEFLATED);
+            putEntry(zos, "assets/logo.png", png, ZipEntry.STORED);
+        }
+        return out.toByteArray();
+    }
+
+    private void putEntry(ZipOutputStream zos, String name, byte[] content, int method)
+        throws IOException {
+        var entry = new ZipEntry(name);
+        entry.setMethod(method);
+        if (method == ZipEntry.STORED) {
+            var crc = new CRC32();
+            crc.update(content);
+            entry.setSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+        zos.putNextEntry(entry);
+        zos.write(content);
+        expected.put(name, content);
+    }
+
+    private static class Collector implements ArchiveDecoder.EntryHandler {
+        private final Map<String, ByteArrayOutputStream> entries = new LinkedHashMap<>();
+        private ByteArrayOutputStream current;
+
+        @Override
+        public void startEntry(String name) {
+            current = new ByteArrayOutputStream();
+            entries.put(name, current);
+        }
+
+        @Override
+        public void write(ByteBuffer data) {
+            var bytes = new byte[data.remaining()];
+            data.get(bytes);
+            current.writeBytes(bytes);
+        }
+
+        @Override
+        public void endEntry() {
+            current = null;
+        }
+    }
+}
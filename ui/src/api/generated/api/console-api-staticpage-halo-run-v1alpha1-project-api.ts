@@ -24,12 +24,24 @@ import { BASE_PATH, COLLECTION_FORMATS, type RequestArgs, BaseAPI, RequiredError
 // @ts-ignore
 import type { CreateFileRequest } from '../models';
 // @ts-ignore
+import type { CreateUploadSessionRequest } from '../models';
+// @ts-ignore
+import type { DeployCheckResult } from '../models';
+// @ts-ignore
+import type { DeployManifest } from '../models';
+// @ts-ignore
+import type { DeployRequestFormData } from '../models';
+// @ts-ignore
 import type { ProjectFile } from '../models';
 // @ts-ignore
+import type { ProjectLockStatus } from '../models';
+// @ts-ignore
 import type { ProjectVersion } from '../models';
 // @ts-ignore
 import type { UploadRequestFormData } from '../models';
 // @ts-ignore
+import type { UploadSession } from '../models';
+// @ts-ignore
 import type { WriteContentRequest } from '../models';
 /**
  * ConsoleApiStaticpageHaloRunV1alpha1ProjectApi - axios parameter creator
@@ -37,6 +49,98 @@ import type { WriteContentRequest } from '../models';
  */
 export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiAxiosParamCreator = function (configuration?: Configuration) {
     return {
+        /**
+         * Find the content of a deployment that is not on the server yet
+         * @param {string} name 
+         * @param {DeployManifest} deployManifest 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        checkProjectDeployment: async (name: string, deployManifest: DeployManifest, options: RawAxiosRequestConfig = {}): Promise<RequestArgs> => {
+            // verify required parameter 'name' is not null or undefined
+            assertParamExists('checkProjectDeployment', 'name', name)
+            // verify required parameter 'deployManifest' is not null or undefined
+            assertParamExists('checkProjectDeployment', 'deployManifest', deployManifest)
+            const localVarPath = `/apis/console.api.staticpage.halo.run/v1alpha1/projects/{name}/deploy/check`
+                .replace(`{${"name"}}`, encodeURIComponent(String(name)));
+            // use dummy base URL string because the URL constructor only accepts absolute URLs.
+            const localVarUrlObj = new URL(localVarPath, DUMMY_BASE_URL);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+
+            const localVarRequestOptions = { method: 'POST', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication basicAuth required
+            // http basic authentication required
+            setBasicAuthToObject(localVarRequestOptions, configuration)
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            await setBearerAuthToObject(localVarHeaderParameter, configuration)
+
+
+    
+            localVarHeaderParameter['Content-Type'] = 'application/json';
+
+            setSearchParams(localVarUrlObj, localVarQueryParameter);
+            let headersFromBaseOptions = baseOptions && baseOptions.headers ? baseOptions.headers : {};
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...headersFromBaseOptions, ...options.headers};
+            localVarRequestOptions.data = serializeDataIfNeeded(deployManifest, localVarRequestOptions, configuration)
+
+            return {
+                url: toPathString(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * Upload the assembled file of a complete upload session
+         * @param {string} name 
+         * @param {string} sessionId 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        commitUploadSession: async (name: string, sessionId: string, options: RawAxiosRequestConfig = {}): Promise<RequestArgs> => {
+            // verify required parameter 'name' is not null or undefined
+            assertParamExists('commitUploadSession', 'name', name)
+            // verify required parameter 'sessionId' is not null or undefined
+            assertParamExists('commitUploadSession', 'sessionId', sessionId)
+            const localVarPath = `/apis/console.api.staticpage.halo.run/v1alpha1/projects/{name}/upload-sessions/{sessionId}/commit`
+                .replace(`{${"name"}}`, encodeURIComponent(String(name)))
+                .replace(`{${"sessionId"}}`, encodeURIComponent(String(sessionId)));
+            // use dummy base URL string because the URL constructor only accepts absolute URLs.
+            const localVarUrlObj = new URL(localVarPath, DUMMY_BASE_URL);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+
+            const localVarRequestOptions = { method: 'POST', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication basicAuth required
+            // http basic authentication required
+            setBasicAuthToObject(localVarRequestOptions, configuration)
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            await setBearerAuthToObject(localVarHeaderParameter, configuration)
+
+
+    
+            setSearchParams(localVarUrlObj, localVarQueryParameter);
+            let headersFromBaseOptions = baseOptions && baseOptions.headers ? baseOptions.headers : {};
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...headersFromBaseOptions, ...options.headers};
+
+            return {
+                url: toPathString(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
         /**
          * 
          * @param {string} name 
@@ -82,6 +186,53 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiAxiosParamCreator = fu
                 options: localVarRequestOptions,
             };
         },
+        /**
+         * Start a resumable upload of a file sent in chunks. Sessions are kept in memory and do not survive a restart, after which the upload has to be started again.
+         * @param {string} name 
+         * @param {CreateUploadSessionRequest} createUploadSessionRequest 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        createUploadSession: async (name: string, createUploadSessionRequest: CreateUploadSessionRequest, options: RawAxiosRequestConfig = {}): Promise<RequestArgs> => {
+            // verify required parameter 'name' is not null or undefined
+            assertParamExists('createUploadSession', 'name', name)
+            // verify required parameter 'createUploadSessionRequest' is not null or undefined
+            assertParamExists('createUploadSession', 'createUploadSessionRequest', createUploadSessionRequest)
+            const localVarPath = `/apis/console.api.staticpage.halo.run/v1alpha1/projects/{name}/upload-sessions`
+                .replace(`{${"name"}}`, encodeURIComponent(String(name)));
+            // use dummy base URL string because the URL constructor only accepts absolute URLs.
+            const localVarUrlObj = new URL(localVarPath, DUMMY_BASE_URL);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+
+            const localVarRequestOptions = { method: 'POST', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication basicAuth required
+            // http basic authentication required
+            setBasicAuthToObject(localVarRequestOptions, configuration)
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            await setBearerAuthToObject(localVarHeaderParameter, configuration)
+
+
+    
+            localVarHeaderParameter['Content-Type'] = 'application/json';
+
+            setSearchParams(localVarUrlObj, localVarQueryParameter);
+            let headersFromBaseOptions = baseOptions && baseOptions.headers ? baseOptions.headers : {};
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...headersFromBaseOptions, ...options.headers};
+            localVarRequestOptions.data = serializeDataIfNeeded(createUploadSessionRequest, localVarRequestOptions, configuration)
+
+            return {
+                url: toPathString(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
         /**
          * Delete file or directory in project by given path
          * @param {string} name 
@@ -128,6 +279,115 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiAxiosParamCreator = fu
                 options: localVarRequestOptions,
             };
         },
+        /**
+         * Abort an upload session and delete the received chunks
+         * @param {string} name 
+         * @param {string} sessionId 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        deleteUploadSession: async (name: string, sessionId: string, options: RawAxiosRequestConfig = {}): Promise<RequestArgs> => {
+            // verify required parameter 'name' is not null or undefined
+            assertParamExists('deleteUploadSession', 'name', name)
+            // verify required parameter 'sessionId' is not null or undefined
+            assertParamExists('deleteUploadSession', 'sessionId', sessionId)
+            const localVarPath = `/apis/console.api.staticpage.halo.run/v1alpha1/projects/{name}/upload-sessions/{sessionId}`
+                .replace(`{${"name"}}`, encodeURIComponent(String(name)))
+                .replace(`{${"sessionId"}}`, encodeURIComponent(String(sessionId)));
+            // use dummy base URL string because the URL constructor only accepts absolute URLs.
+            const localVarUrlObj = new URL(localVarPath, DUMMY_BASE_URL);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+
+            const localVarRequestOptions = { method: 'DELETE', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication basicAuth required
+            // http basic authentication required
+            setBasicAuthToObject(localVarRequestOptions, configuration)
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            await setBearerAuthToObject(localVarHeaderParameter, configuration)
+
+
+    
+            setSearchParams(localVarUrlObj, localVarQueryParameter);
+            let headersFromBaseOptions = baseOptions && baseOptions.headers ? baseOptions.headers : {};
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...headersFromBaseOptions, ...options.headers};
+
+            return {
+                url: toPathString(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * Create a new version from the manifest of a deployment, uploading only the content reported missing by the check
+         * @param {string} name 
+         * @param {string} manifest The deploy manifest as JSON
+         * @param {Array<File>} [file] The missing content, each file named by its hash
+         * @param {DeployRequestFormData} [formData] 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        deployProject: async (name: string, manifest: string, file?: Array<File>, formData?: DeployRequestFormData, options: RawAxiosRequestConfig = {}): Promise<RequestArgs> => {
+            // verify required parameter 'name' is not null or undefined
+            assertParamExists('deployProject', 'name', name)
+            // verify required parameter 'manifest' is not null or undefined
+            assertParamExists('deployProject', 'manifest', manifest)
+            const localVarPath = `/apis/console.api.staticpage.halo.run/v1alpha1/projects/{name}/deploy`
+                .replace(`{${"name"}}`, encodeURIComponent(String(name)));
+            // use dummy base URL string because the URL constructor only accepts absolute URLs.
+            const localVarUrlObj = new URL(localVarPath, DUMMY_BASE_URL);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+
+            const localVarRequestOptions = { method: 'POST', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+            const localVarFormParams = new ((configuration && configuration.formDataCtor) || FormData)();
+
+            // authentication basicAuth required
+            // http basic authentication required
+            setBasicAuthToObject(localVarRequestOptions, configuration)
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            await setBearerAuthToObject(localVarHeaderParameter, configuration)
+
+
+            if (file) {
+                file.forEach((element) => {
+                    localVarFormParams.append('file', element as any);
+                })
+            }
+    
+            if (formData !== undefined) { 
+                localVarFormParams.append('formData', new Blob([JSON.stringify(formData)], { type: "application/json", }));
+            }
+    
+            if (manifest !== undefined) { 
+                localVarFormParams.append('manifest', manifest as any);
+            }
+    
+    
+            localVarHeaderParameter['Content-Type'] = 'multipart/form-data';
+    
+            setSearchParams(localVarUrlObj, localVarQueryParameter);
+            let headersFromBaseOptions = baseOptions && baseOptions.headers ? baseOptions.headers : {};
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...headersFromBaseOptions, ...options.headers};
+            localVarRequestOptions.data = localVarFormParams;
+
+            return {
+                url: toPathString(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
         /**
          * 
          * @param {string} name 
@@ -165,6 +425,51 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiAxiosParamCreator = fu
 
 
     
+            setSearchParams(localVarUrlObj, localVarQueryParameter);
+            let headersFromBaseOptions = baseOptions && baseOptions.headers ? baseOptions.headers : {};
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...headersFromBaseOptions, ...options.headers};
+
+            return {
+                url: toPathString(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * Get the received chunks of an upload session
+         * @param {string} name 
+         * @param {string} sessionId 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        getUploadSession: async (name: string, sessionId: string, options: RawAxiosRequestConfig = {}): Promise<RequestArgs> => {
+            // verify required parameter 'name' is not null or undefined
+            assertParamExists('getUploadSession', 'name', name)
+            // verify required parameter 'sessionId' is not null or undefined
+            assertParamExists('getUploadSession', 'sessionId', sessionId)
+            const localVarPath = `/apis/console.api.staticpage.halo.run/v1alpha1/projects/{name}/upload-sessions/{sessionId}`
+                .replace(`{${"name"}}`, encodeURIComponent(String(name)))
+                .replace(`{${"sessionId"}}`, encodeURIComponent(String(sessionId)));
+            // use dummy base URL string because the URL constructor only accepts absolute URLs.
+            const localVarUrlObj = new URL(localVarPath, DUMMY_BASE_URL);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication basicAuth required
+            // http basic authentication required
+            setBasicAuthToObject(localVarRequestOptions, configuration)
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            await setBearerAuthToObject(localVarHeaderParameter, configuration)
+
+
+    
             setSearchParams(localVarUrlObj, localVarQueryParameter);
             let headersFromBaseOptions = baseOptions && baseOptions.headers ? baseOptions.headers : {};
             localVarRequestOptions.headers = {...localVarHeaderParameter, ...headersFromBaseOptions, ...options.headers};
@@ -211,6 +516,43 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiAxiosParamCreator = fu
 
 
     
+            setSearchParams(localVarUrlObj, localVarQueryParameter);
+            let headersFromBaseOptions = baseOptions && baseOptions.headers ? baseOptions.headers : {};
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...headersFromBaseOptions, ...options.headers};
+
+            return {
+                url: toPathString(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
+        /**
+         * List the holders and waiters of the project locks in use
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        listProjectLocks: async (options: RawAxiosRequestConfig = {}): Promise<RequestArgs> => {
+            const localVarPath = `/apis/console.api.staticpage.halo.run/v1alpha1/locks`;
+            // use dummy base URL string because the URL constructor only accepts absolute URLs.
+            const localVarUrlObj = new URL(localVarPath, DUMMY_BASE_URL);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+
+            const localVarRequestOptions = { method: 'GET', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication basicAuth required
+            // http basic authentication required
+            setBasicAuthToObject(localVarRequestOptions, configuration)
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            await setBearerAuthToObject(localVarHeaderParameter, configuration)
+
+
+    
             setSearchParams(localVarUrlObj, localVarQueryParameter);
             let headersFromBaseOptions = baseOptions && baseOptions.headers ? baseOptions.headers : {};
             localVarRequestOptions.headers = {...localVarHeaderParameter, ...headersFromBaseOptions, ...options.headers};
@@ -337,6 +679,75 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiAxiosParamCreator = fu
                 options: localVarRequestOptions,
             };
         },
+        /**
+         * Write a chunk of an upload session at its offset
+         * @param {string} name 
+         * @param {string} sessionId 
+         * @param {number} index 
+         * @param {number} offset Offset of the chunk in the uploaded file
+         * @param {string} checksum Hex encoded SHA-256 hash of the chunk
+         * @param {File} body 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        writeUploadChunk: async (name: string, sessionId: string, index: number, offset: number, checksum: string, body: File, options: RawAxiosRequestConfig = {}): Promise<RequestArgs> => {
+            // verify required parameter 'name' is not null or undefined
+            assertParamExists('writeUploadChunk', 'name', name)
+            // verify required parameter 'sessionId' is not null or undefined
+            assertParamExists('writeUploadChunk', 'sessionId', sessionId)
+            // verify required parameter 'index' is not null or undefined
+            assertParamExists('writeUploadChunk', 'index', index)
+            // verify required parameter 'offset' is not null or undefined
+            assertParamExists('writeUploadChunk', 'offset', offset)
+            // verify required parameter 'checksum' is not null or undefined
+            assertParamExists('writeUploadChunk', 'checksum', checksum)
+            // verify required parameter 'body' is not null or undefined
+            assertParamExists('writeUploadChunk', 'body', body)
+            const localVarPath = `/apis/console.api.staticpage.halo.run/v1alpha1/projects/{name}/upload-sessions/{sessionId}/chunks/{index}`
+                .replace(`{${"name"}}`, encodeURIComponent(String(name)))
+                .replace(`{${"sessionId"}}`, encodeURIComponent(String(sessionId)))
+                .replace(`{${"index"}}`, encodeURIComponent(String(index)));
+            // use dummy base URL string because the URL constructor only accepts absolute URLs.
+            const localVarUrlObj = new URL(localVarPath, DUMMY_BASE_URL);
+            let baseOptions;
+            if (configuration) {
+                baseOptions = configuration.baseOptions;
+            }
+
+            const localVarRequestOptions = { method: 'PUT', ...baseOptions, ...options};
+            const localVarHeaderParameter = {} as any;
+            const localVarQueryParameter = {} as any;
+
+            // authentication basicAuth required
+            // http basic authentication required
+            setBasicAuthToObject(localVarRequestOptions, configuration)
+
+            // authentication bearerAuth required
+            // http bearer authentication required
+            await setBearerAuthToObject(localVarHeaderParameter, configuration)
+
+            if (offset !== undefined) {
+                localVarQueryParameter['offset'] = offset;
+            }
+
+            if (checksum !== undefined) {
+                localVarQueryParameter['checksum'] = checksum;
+            }
+
+
+    
+            localVarHeaderParameter['Content-Type'] = 'application/octet-stream';
+
+            setSearchParams(localVarUrlObj, localVarQueryParameter);
+            let headersFromBaseOptions = baseOptions && baseOptions.headers ? baseOptions.headers : {};
+            localVarRequestOptions.headers = {...localVarHeaderParameter, ...headersFromBaseOptions, ...options.headers};
+            localVarRequestOptions.data = serializeDataIfNeeded(body, localVarRequestOptions, configuration)
+
+            return {
+                url: toPathString(localVarUrlObj),
+                options: localVarRequestOptions,
+            };
+        },
         /**
          * List all versions for a project
          * @param {string} name Project name
@@ -476,29 +887,96 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp = function(configur
     const localVarAxiosParamCreator = ConsoleApiStaticpageHaloRunV1alpha1ProjectApiAxiosParamCreator(configuration)
     return {
         /**
-         * 
+         * Find the content of a deployment that is not on the server yet
+         * @param {string} name 
+         * @param {DeployManifest} deployManifest 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        async checkProjectDeployment(name: string, deployManifest: DeployManifest, options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<DeployCheckResult>> {
+            const localVarAxiosArgs = await localVarAxiosParamCreator.checkProjectDeployment(name, deployManifest, options);
+            const localVarOperationServerIndex = configuration?.serverIndex ?? 0;
+            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.checkProjectDeployment']?.[localVarOperationServerIndex]?.url;
+            return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
+        },
+        /**
+         * Upload the assembled file of a complete upload session
+         * @param {string} name 
+         * @param {string} sessionId 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        async commitUploadSession(name: string, sessionId: string, options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<string>> {
+            const localVarAxiosArgs = await localVarAxiosParamCreator.commitUploadSession(name, sessionId, options);
+            const localVarOperationServerIndex = configuration?.serverIndex ?? 0;
+            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.commitUploadSession']?.[localVarOperationServerIndex]?.url;
+            return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
+        },
+        /**
+         * 
+         * @param {string} name 
+         * @param {CreateFileRequest} [createFileRequest] 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        async createFileOrDirectory(name: string, createFileRequest?: CreateFileRequest, options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<void>> {
+            const localVarAxiosArgs = await localVarAxiosParamCreator.createFileOrDirectory(name, createFileRequest, options);
+            const localVarOperationServerIndex = configuration?.serverIndex ?? 0;
+            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.createFileOrDirectory']?.[localVarOperationServerIndex]?.url;
+            return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
+        },
+        /**
+         * Start a resumable upload of a file sent in chunks. Sessions are kept in memory and do not survive a restart, after which the upload has to be started again.
+         * @param {string} name 
+         * @param {CreateUploadSessionRequest} createUploadSessionRequest 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        async createUploadSession(name: string, createUploadSessionRequest: CreateUploadSessionRequest, options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<UploadSession>> {
+            const localVarAxiosArgs = await localVarAxiosParamCreator.createUploadSession(name, createUploadSessionRequest, options);
+            const localVarOperationServerIndex = configuration?.serverIndex ?? 0;
+            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.createUploadSession']?.[localVarOperationServerIndex]?.url;
+            return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
+        },
+        /**
+         * Delete file or directory in project by given path
+         * @param {string} name 
+         * @param {string} [path] 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        async deleteFileInProject(name: string, path?: string, options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<boolean>> {
+            const localVarAxiosArgs = await localVarAxiosParamCreator.deleteFileInProject(name, path, options);
+            const localVarOperationServerIndex = configuration?.serverIndex ?? 0;
+            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.deleteFileInProject']?.[localVarOperationServerIndex]?.url;
+            return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
+        },
+        /**
+         * Abort an upload session and delete the received chunks
          * @param {string} name 
-         * @param {CreateFileRequest} [createFileRequest] 
+         * @param {string} sessionId 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        async createFileOrDirectory(name: string, createFileRequest?: CreateFileRequest, options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<void>> {
-            const localVarAxiosArgs = await localVarAxiosParamCreator.createFileOrDirectory(name, createFileRequest, options);
+        async deleteUploadSession(name: string, sessionId: string, options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<void>> {
+            const localVarAxiosArgs = await localVarAxiosParamCreator.deleteUploadSession(name, sessionId, options);
             const localVarOperationServerIndex = configuration?.serverIndex ?? 0;
-            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.createFileOrDirectory']?.[localVarOperationServerIndex]?.url;
+            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.deleteUploadSession']?.[localVarOperationServerIndex]?.url;
             return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
         },
         /**
-         * Delete file or directory in project by given path
+         * Create a new version from the manifest of a deployment, uploading only the content reported missing by the check
          * @param {string} name 
-         * @param {string} [path] 
+         * @param {string} manifest The deploy manifest as JSON
+         * @param {Array<File>} [file] The missing content, each file named by its hash
+         * @param {DeployRequestFormData} [formData] 
          * @param {*} [options] Override http request option.
          * @throws {RequiredError}
          */
-        async deleteFileInProject(name: string, path?: string, options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<boolean>> {
-            const localVarAxiosArgs = await localVarAxiosParamCreator.deleteFileInProject(name, path, options);
+        async deployProject(name: string, manifest: string, file?: Array<File>, formData?: DeployRequestFormData, options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<string>> {
+            const localVarAxiosArgs = await localVarAxiosParamCreator.deployProject(name, manifest, file, formData, options);
             const localVarOperationServerIndex = configuration?.serverIndex ?? 0;
-            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.deleteFileInProject']?.[localVarOperationServerIndex]?.url;
+            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.deployProject']?.[localVarOperationServerIndex]?.url;
             return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
         },
         /**
@@ -514,6 +992,19 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp = function(configur
             const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.getFileContent']?.[localVarOperationServerIndex]?.url;
             return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
         },
+        /**
+         * Get the received chunks of an upload session
+         * @param {string} name 
+         * @param {string} sessionId 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        async getUploadSession(name: string, sessionId: string, options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<UploadSession>> {
+            const localVarAxiosArgs = await localVarAxiosParamCreator.getUploadSession(name, sessionId, options);
+            const localVarOperationServerIndex = configuration?.serverIndex ?? 0;
+            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.getUploadSession']?.[localVarOperationServerIndex]?.url;
+            return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
+        },
         /**
          * 
          * @param {string} name 
@@ -527,6 +1018,17 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp = function(configur
             const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.listFilesInProject']?.[localVarOperationServerIndex]?.url;
             return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
         },
+        /**
+         * List the holders and waiters of the project locks in use
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        async listProjectLocks(options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<Array<ProjectLockStatus>>> {
+            const localVarAxiosArgs = await localVarAxiosParamCreator.listProjectLocks(options);
+            const localVarOperationServerIndex = configuration?.serverIndex ?? 0;
+            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.listProjectLocks']?.[localVarOperationServerIndex]?.url;
+            return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
+        },
         /**
          * 
          * @param {string} name 
@@ -557,6 +1059,23 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp = function(configur
             const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.writeContentToFile']?.[localVarOperationServerIndex]?.url;
             return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
         },
+        /**
+         * Write a chunk of an upload session at its offset
+         * @param {string} name 
+         * @param {string} sessionId 
+         * @param {number} index 
+         * @param {number} offset Offset of the chunk in the uploaded file
+         * @param {string} checksum Hex encoded SHA-256 hash of the chunk
+         * @param {File} body 
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        async writeUploadChunk(name: string, sessionId: string, index: number, offset: number, checksum: string, body: File, options?: RawAxiosRequestConfig): Promise<(axios?: AxiosInstance, basePath?: string) => AxiosPromise<UploadSession>> {
+            const localVarAxiosArgs = await localVarAxiosParamCreator.writeUploadChunk(name, sessionId, index, offset, checksum, body, options);
+            const localVarOperationServerIndex = configuration?.serverIndex ?? 0;
+            const localVarOperationServerBasePath = operationServerMap['ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.writeUploadChunk']?.[localVarOperationServerIndex]?.url;
+            return (axios, basePath) => createRequestFunction(localVarAxiosArgs, globalAxios, BASE_PATH, configuration)(axios, localVarOperationServerBasePath || basePath);
+        },
         /**
          * List all versions for a project
          * @param {string} name Project name
@@ -605,6 +1124,24 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp = function(configur
 export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFactory = function (configuration?: Configuration, basePath?: string, axios?: AxiosInstance) {
     const localVarFp = ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(configuration)
     return {
+        /**
+         * Find the content of a deployment that is not on the server yet
+         * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCheckProjectDeploymentRequest} requestParameters Request parameters.
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        checkProjectDeployment(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCheckProjectDeploymentRequest, options?: RawAxiosRequestConfig): AxiosPromise<DeployCheckResult> {
+            return localVarFp.checkProjectDeployment(requestParameters.name, requestParameters.deployManifest, options).then((request) => request(axios, basePath));
+        },
+        /**
+         * Upload the assembled file of a complete upload session
+         * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCommitUploadSessionRequest} requestParameters Request parameters.
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        commitUploadSession(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCommitUploadSessionRequest, options?: RawAxiosRequestConfig): AxiosPromise<string> {
+            return localVarFp.commitUploadSession(requestParameters.name, requestParameters.sessionId, options).then((request) => request(axios, basePath));
+        },
         /**
          * 
          * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateFileOrDirectoryRequest} requestParameters Request parameters.
@@ -614,6 +1151,15 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFactory = function (co
         createFileOrDirectory(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateFileOrDirectoryRequest, options?: RawAxiosRequestConfig): AxiosPromise<void> {
             return localVarFp.createFileOrDirectory(requestParameters.name, requestParameters.createFileRequest, options).then((request) => request(axios, basePath));
         },
+        /**
+         * Start a resumable upload of a file sent in chunks. Sessions are kept in memory and do not survive a restart, after which the upload has to be started again.
+         * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateUploadSessionRequest} requestParameters Request parameters.
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        createUploadSession(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateUploadSessionRequest, options?: RawAxiosRequestConfig): AxiosPromise<UploadSession> {
+            return localVarFp.createUploadSession(requestParameters.name, requestParameters.createUploadSessionRequest, options).then((request) => request(axios, basePath));
+        },
         /**
          * Delete file or directory in project by given path
          * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteFileInProjectRequest} requestParameters Request parameters.
@@ -623,6 +1169,24 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFactory = function (co
         deleteFileInProject(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteFileInProjectRequest, options?: RawAxiosRequestConfig): AxiosPromise<boolean> {
             return localVarFp.deleteFileInProject(requestParameters.name, requestParameters.path, options).then((request) => request(axios, basePath));
         },
+        /**
+         * Abort an upload session and delete the received chunks
+         * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteUploadSessionRequest} requestParameters Request parameters.
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        deleteUploadSession(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteUploadSessionRequest, options?: RawAxiosRequestConfig): AxiosPromise<void> {
+            return localVarFp.deleteUploadSession(requestParameters.name, requestParameters.sessionId, options).then((request) => request(axios, basePath));
+        },
+        /**
+         * Create a new version from the manifest of a deployment, uploading only the content reported missing by the check
+         * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeployProjectRequest} requestParameters Request parameters.
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        deployProject(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeployProjectRequest, options?: RawAxiosRequestConfig): AxiosPromise<string> {
+            return localVarFp.deployProject(requestParameters.name, requestParameters.manifest, requestParameters.file, requestParameters.formData, options).then((request) => request(axios, basePath));
+        },
         /**
          * 
          * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetFileContentRequest} requestParameters Request parameters.
@@ -632,6 +1196,15 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFactory = function (co
         getFileContent(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetFileContentRequest, options?: RawAxiosRequestConfig): AxiosPromise<string> {
             return localVarFp.getFileContent(requestParameters.name, requestParameters.path, options).then((request) => request(axios, basePath));
         },
+        /**
+         * Get the received chunks of an upload session
+         * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetUploadSessionRequest} requestParameters Request parameters.
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        getUploadSession(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetUploadSessionRequest, options?: RawAxiosRequestConfig): AxiosPromise<UploadSession> {
+            return localVarFp.getUploadSession(requestParameters.name, requestParameters.sessionId, options).then((request) => request(axios, basePath));
+        },
         /**
          * 
          * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiListFilesInProjectRequest} requestParameters Request parameters.
@@ -641,6 +1214,14 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFactory = function (co
         listFilesInProject(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiListFilesInProjectRequest, options?: RawAxiosRequestConfig): AxiosPromise<Array<ProjectFile>> {
             return localVarFp.listFilesInProject(requestParameters.name, requestParameters.path, options).then((request) => request(axios, basePath));
         },
+        /**
+         * List the holders and waiters of the project locks in use
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        listProjectLocks(options?: RawAxiosRequestConfig): AxiosPromise<Array<ProjectLockStatus>> {
+            return localVarFp.listProjectLocks(options).then((request) => request(axios, basePath));
+        },
         /**
          * 
          * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiUploadFileToProjectRequest} requestParameters Request parameters.
@@ -659,6 +1240,15 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFactory = function (co
         writeContentToFile(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteContentToFileRequest, options?: RawAxiosRequestConfig): AxiosPromise<void> {
             return localVarFp.writeContentToFile(requestParameters.name, requestParameters.path, requestParameters.writeContentRequest, options).then((request) => request(axios, basePath));
         },
+        /**
+         * Write a chunk of an upload session at its offset
+         * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunkRequest} requestParameters Request parameters.
+         * @param {*} [options] Override http request option.
+         * @throws {RequiredError}
+         */
+        writeUploadChunk(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunkRequest, options?: RawAxiosRequestConfig): AxiosPromise<UploadSession> {
+            return localVarFp.writeUploadChunk(requestParameters.name, requestParameters.sessionId, requestParameters.index, requestParameters.offset, requestParameters.checksum, requestParameters.body, options).then((request) => request(axios, basePath));
+        },
         /**
          * List all versions for a project
          * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiListProjectVersionsRequest} requestParameters Request parameters.
@@ -689,6 +1279,48 @@ export const ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFactory = function (co
     };
 };
 
+/**
+ * Request parameters for checkProjectDeployment operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
+ * @export
+ * @interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCheckProjectDeploymentRequest
+ */
+export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCheckProjectDeploymentRequest {
+    /**
+     * 
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCheckProjectDeployment
+     */
+    readonly name: string
+
+    /**
+     * 
+     * @type {DeployManifest}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCheckProjectDeployment
+     */
+    readonly deployManifest: DeployManifest
+}
+
+/**
+ * Request parameters for commitUploadSession operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
+ * @export
+ * @interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCommitUploadSessionRequest
+ */
+export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCommitUploadSessionRequest {
+    /**
+     * 
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCommitUploadSession
+     */
+    readonly name: string
+
+    /**
+     * 
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCommitUploadSession
+     */
+    readonly sessionId: string
+}
+
 /**
  * Request parameters for createFileOrDirectory operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
  * @export
@@ -710,6 +1342,27 @@ export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateFileOrDirect
     readonly createFileRequest?: CreateFileRequest
 }
 
+/**
+ * Request parameters for createUploadSession operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
+ * @export
+ * @interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateUploadSessionRequest
+ */
+export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateUploadSessionRequest {
+    /**
+     * 
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateUploadSession
+     */
+    readonly name: string
+
+    /**
+     * 
+     * @type {CreateUploadSessionRequest}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateUploadSession
+     */
+    readonly createUploadSessionRequest: CreateUploadSessionRequest
+}
+
 /**
  * Request parameters for deleteFileInProject operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
  * @export
@@ -731,6 +1384,62 @@ export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteFileInProjec
     readonly path?: string
 }
 
+/**
+ * Request parameters for deleteUploadSession operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
+ * @export
+ * @interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteUploadSessionRequest
+ */
+export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteUploadSessionRequest {
+    /**
+     * 
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteUploadSession
+     */
+    readonly name: string
+
+    /**
+     * 
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteUploadSession
+     */
+    readonly sessionId: string
+}
+
+/**
+ * Request parameters for deployProject operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
+ * @export
+ * @interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeployProjectRequest
+ */
+export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeployProjectRequest {
+    /**
+     * 
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeployProject
+     */
+    readonly name: string
+
+    /**
+     * The deploy manifest as JSON
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeployProject
+     */
+    readonly manifest: string
+
+    /**
+     * The missing content, each file named by its hash
+     * @type {Array<File>}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeployProject
+     */
+    readonly file?: Array<File>
+
+    /**
+     * 
+     * @type {DeployRequestFormData}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeployProject
+     */
+    readonly formData?: DeployRequestFormData
+}
+
 /**
  * Request parameters for getFileContent operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
  * @export
@@ -752,6 +1461,27 @@ export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetFileContentRequ
     readonly path?: string
 }
 
+/**
+ * Request parameters for getUploadSession operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
+ * @export
+ * @interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetUploadSessionRequest
+ */
+export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetUploadSessionRequest {
+    /**
+     * 
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetUploadSession
+     */
+    readonly name: string
+
+    /**
+     * 
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetUploadSession
+     */
+    readonly sessionId: string
+}
+
 /**
  * Request parameters for listFilesInProject operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
  * @export
@@ -843,6 +1573,55 @@ export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteContentToFile
     readonly writeContentRequest?: WriteContentRequest
 }
 
+/**
+ * Request parameters for writeUploadChunk operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
+ * @export
+ * @interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunkRequest
+ */
+export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunkRequest {
+    /**
+     * 
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunk
+     */
+    readonly name: string
+
+    /**
+     * 
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunk
+     */
+    readonly sessionId: string
+
+    /**
+     * 
+     * @type {number}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunk
+     */
+    readonly index: number
+
+    /**
+     * Offset of the chunk in the uploaded file
+     * @type {number}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunk
+     */
+    readonly offset: number
+
+    /**
+     * Hex encoded SHA-256 hash of the chunk
+     * @type {string}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunk
+     */
+    readonly checksum: string
+
+    /**
+     * 
+     * @type {File}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunk
+     */
+    readonly body: File
+}
+
 /**
  * Request parameters for listProjectVersions operation in ConsoleApiStaticpageHaloRunV1alpha1ProjectApi.
  * @export
@@ -906,6 +1685,28 @@ export interface ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteProjectVersi
  * @extends {BaseAPI}
  */
 export class ConsoleApiStaticpageHaloRunV1alpha1ProjectApi extends BaseAPI {
+    /**
+     * Find the content of a deployment that is not on the server yet
+     * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCheckProjectDeploymentRequest} requestParameters Request parameters.
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApi
+     */
+    public checkProjectDeployment(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCheckProjectDeploymentRequest, options?: RawAxiosRequestConfig) {
+        return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).checkProjectDeployment(requestParameters.name, requestParameters.deployManifest, options).then((request) => request(this.axios, this.basePath));
+    }
+
+    /**
+     * Upload the assembled file of a complete upload session
+     * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCommitUploadSessionRequest} requestParameters Request parameters.
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApi
+     */
+    public commitUploadSession(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCommitUploadSessionRequest, options?: RawAxiosRequestConfig) {
+        return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).commitUploadSession(requestParameters.name, requestParameters.sessionId, options).then((request) => request(this.axios, this.basePath));
+    }
+
     /**
      * 
      * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateFileOrDirectoryRequest} requestParameters Request parameters.
@@ -917,6 +1718,17 @@ export class ConsoleApiStaticpageHaloRunV1alpha1ProjectApi extends BaseAPI {
         return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).createFileOrDirectory(requestParameters.name, requestParameters.createFileRequest, options).then((request) => request(this.axios, this.basePath));
     }
 
+    /**
+     * Start a resumable upload of a file sent in chunks. Sessions are kept in memory and do not survive a restart, after which the upload has to be started again.
+     * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateUploadSessionRequest} requestParameters Request parameters.
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApi
+     */
+    public createUploadSession(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiCreateUploadSessionRequest, options?: RawAxiosRequestConfig) {
+        return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).createUploadSession(requestParameters.name, requestParameters.createUploadSessionRequest, options).then((request) => request(this.axios, this.basePath));
+    }
+
     /**
      * Delete file or directory in project by given path
      * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteFileInProjectRequest} requestParameters Request parameters.
@@ -928,6 +1740,28 @@ export class ConsoleApiStaticpageHaloRunV1alpha1ProjectApi extends BaseAPI {
         return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).deleteFileInProject(requestParameters.name, requestParameters.path, options).then((request) => request(this.axios, this.basePath));
     }
 
+    /**
+     * Abort an upload session and delete the received chunks
+     * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteUploadSessionRequest} requestParameters Request parameters.
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApi
+     */
+    public deleteUploadSession(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeleteUploadSessionRequest, options?: RawAxiosRequestConfig) {
+        return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).deleteUploadSession(requestParameters.name, requestParameters.sessionId, options).then((request) => request(this.axios, this.basePath));
+    }
+
+    /**
+     * Create a new version from the manifest of a deployment, uploading only the content reported missing by the check
+     * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeployProjectRequest} requestParameters Request parameters.
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApi
+     */
+    public deployProject(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiDeployProjectRequest, options?: RawAxiosRequestConfig) {
+        return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).deployProject(requestParameters.name, requestParameters.manifest, requestParameters.file, requestParameters.formData, options).then((request) => request(this.axios, this.basePath));
+    }
+
     /**
      * 
      * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetFileContentRequest} requestParameters Request parameters.
@@ -939,6 +1773,17 @@ export class ConsoleApiStaticpageHaloRunV1alpha1ProjectApi extends BaseAPI {
         return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).getFileContent(requestParameters.name, requestParameters.path, options).then((request) => request(this.axios, this.basePath));
     }
 
+    /**
+     * Get the received chunks of an upload session
+     * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetUploadSessionRequest} requestParameters Request parameters.
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApi
+     */
+    public getUploadSession(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiGetUploadSessionRequest, options?: RawAxiosRequestConfig) {
+        return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).getUploadSession(requestParameters.name, requestParameters.sessionId, options).then((request) => request(this.axios, this.basePath));
+    }
+
     /**
      * 
      * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiListFilesInProjectRequest} requestParameters Request parameters.
@@ -950,6 +1795,16 @@ export class ConsoleApiStaticpageHaloRunV1alpha1ProjectApi extends BaseAPI {
         return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).listFilesInProject(requestParameters.name, requestParameters.path, options).then((request) => request(this.axios, this.basePath));
     }
 
+    /**
+     * List the holders and waiters of the project locks in use
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApi
+     */
+    public listProjectLocks(options?: RawAxiosRequestConfig) {
+        return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).listProjectLocks(options).then((request) => request(this.axios, this.basePath));
+    }
+
     /**
      * 
      * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiUploadFileToProjectRequest} requestParameters Request parameters.
@@ -972,6 +1827,17 @@ export class ConsoleApiStaticpageHaloRunV1alpha1ProjectApi extends BaseAPI {
         return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).writeContentToFile(requestParameters.name, requestParameters.path, requestParameters.writeContentRequest, options).then((request) => request(this.axios, this.basePath));
     }
 
+    /**
+     * Write a chunk of an upload session at its offset
+     * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunkRequest} requestParameters Request parameters.
+     * @param {*} [options] Override http request option.
+     * @throws {RequiredError}
+     * @memberof ConsoleApiStaticpageHaloRunV1alpha1ProjectApi
+     */
+    public writeUploadChunk(requestParameters: ConsoleApiStaticpageHaloRunV1alpha1ProjectApiWriteUploadChunkRequest, options?: RawAxiosRequestConfig) {
+        return ConsoleApiStaticpageHaloRunV1alpha1ProjectApiFp(this.configuration).writeUploadChunk(requestParameters.name, requestParameters.sessionId, requestParameters.index, requestParameters.offset, requestParameters.checksum, requestParameters.body, options).then((request) => request(this.axios, this.basePath));
+    }
+
     /**
      * List all versions for a project
      * @param {ConsoleApiStaticpageHaloRunV1alpha1ProjectApiListProjectVersionsRequest} requestParameters Request parameters.
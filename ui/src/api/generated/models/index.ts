@@ -2,12 +2,19 @@ export * from './add-operation';
 export * from './condition';
 export * from './copy-operation';
 export * from './create-file-request';
+export * from './create-upload-session-request';
+export * from './deploy-check-result';
+export * from './deploy-manifest';
+export * from './deploy-request-form-data';
+export * from './entry';
 export * from './json-patch-inner';
 export * from './metadata';
 export * from './move-operation';
 export * from './project';
+export * from './project-cache-policy';
 export * from './project-file';
 export * from './project-list';
+export * from './project-lock-status';
 export * from './project-rewrite';
 export * from './project-spec';
 export * from './project-status';
@@ -16,4 +23,5 @@ export * from './remove-operation';
 export * from './replace-operation';
 export * from './test-operation';
 export * from './upload-request-form-data';
+export * from './upload-session';
 export * from './write-content-request';
@@ -13,6 +13,9 @@
  */
 
 
+// May contain unused imports in some cases
+// @ts-ignore
+import type { ProjectCachePolicy } from './project-cache-policy';
 // May contain unused imports in some cases
 // @ts-ignore
 import type { ProjectRewrite } from './project-rewrite';
@@ -23,6 +26,12 @@ import type { ProjectRewrite } from './project-rewrite';
  * @interface ProjectSpec
  */
 export interface ProjectSpec {
+    /**
+     * Cache-Control policies of files under the project root, the first policy whose pattern matches wins
+     * @type {Array<ProjectCachePolicy>}
+     * @memberof ProjectSpec
+     */
+    'cachePolicies'?: Array<ProjectCachePolicy>;
     /**
      * 
      * @type {string}
@@ -41,6 +50,30 @@ export interface ProjectSpec {
      * @memberof ProjectSpec
      */
     'icon'?: string;
+    /**
+     * Whether files with a content hash in their name, e.g. app.3f9a1c.js, are cached as immutable when no policy matches
+     * @type {boolean}
+     * @memberof ProjectSpec
+     */
+    'immutableHashedFiles'?: boolean;
+    /**
+     * Maximum total size in bytes of the versions to keep, the newest versions are kept first, 0 means unlimited
+     * @type {number}
+     * @memberof ProjectSpec
+     */
+    'maxTotalSize'?: number;
+    /**
+     * Maximum age in days of versions to keep, 0 means unlimited
+     * @type {number}
+     * @memberof ProjectSpec
+     */
+    'maxVersionAgeDays'?: number;
+    /**
+     * Maximum number of versions to keep, 0 means unlimited
+     * @type {number}
+     * @memberof ProjectSpec
+     */
+    'maxVersions'?: number;
     /**
      * 
      * @type {Array<ProjectRewrite>}
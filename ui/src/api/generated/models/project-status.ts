@@ -29,6 +29,12 @@ export interface ProjectStatus {
      * @memberof ProjectStatus
      */
     'conditions': Array<Condition>;
+    /**
+     * Number of the last version allocated to the project, numbers are never reused
+     * @type {number}
+     * @memberof ProjectStatus
+     */
+    'lastVersion'?: number;
     /**
      * 
      * @type {string}
@@ -59,6 +59,18 @@ export interface ProjectVersionSpec {
      * @memberof ProjectVersionSpec
      */
     'size'?: number;
+    /**
+     * Number of files in the version
+     * @type {number}
+     * @memberof ProjectVersionSpec
+     */
+    'fileCount'?: number;
+    /**
+     * Largest files of the version, largest first
+     * @type {Array<ProjectVersionFileSize>}
+     * @memberof ProjectVersionSpec
+     */
+    'largestFiles'?: Array<ProjectVersionFileSize>;
     /**
      * Creation timestamp
      * @type {string}
@@ -73,6 +85,26 @@ export interface ProjectVersionSpec {
     'description'?: string;
 }
 
+/**
+ * 
+ * @export
+ * @interface ProjectVersionFileSize
+ */
+export interface ProjectVersionFileSize {
+    /**
+     * Path relative to the version directory
+     * @type {string}
+     * @memberof ProjectVersionFileSize
+     */
+    'path': string;
+    /**
+     * Size of the file in bytes
+     * @type {number}
+     * @memberof ProjectVersionFileSize
+     */
+    'size': number;
+}
+
 /**
  * 
  * @export
@@ -1,4 +1,4 @@
-import type { ProjectRewrite } from '@/api/generated';
+import type { ProjectCachePolicy, ProjectRewrite } from '@/api/generated';
 
 export interface ProjectFormState {
   title: string;
@@ -7,4 +7,6 @@ export interface ProjectFormState {
   directory: string;
   rewrites?: ProjectRewrite[];
   maxVersions?: number;
+  cachePolicies?: ProjectCachePolicy[];
+  immutableHashedFiles?: boolean;
 }